@@ -16,6 +16,7 @@
 package org.telosys.tools.generator ;
 
 import java.io.File;
+import java.util.ArrayList;
 import java.util.LinkedList;
 import java.util.List;
 
@@ -24,7 +25,6 @@ import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
 import org.telosys.tools.commons.io.CopyHandler;
 import org.telosys.tools.commons.io.OverwriteChooser;
-import org.telosys.tools.commons.io.ResourcesCopier;
 import org.telosys.tools.commons.variables.Variable;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.Target;
@@ -36,6 +36,7 @@ public class BundleResourcesManager {
 	private final TelosysToolsCfg    _telosysToolsCfg ;
 	private final String             _bundleName ;
 	private final TelosysToolsLogger _logger;
+	private int                      _parallelism = ResourcesCopyEngine.DEFAULT_PARALLELISM ; // v 3.0.0
 	
 	//----------------------------------------------------------------------------------------------------
 	/**
@@ -81,55 +82,85 @@ public class BundleResourcesManager {
 	}
 	
 	
+	//----------------------------------------------------------------------------------------------------
+	/**
+	 * Set the number of threads used to copy the resources files
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if ( parallelism < 1 ) {
+			throw new IllegalArgumentException("Invalid parallelism (" + parallelism + ")");
+		}
+		_parallelism = parallelism ;
+	}
+	
 	//----------------------------------------------------------------------------------------------------
 	/**
 	 * Copy all the given resources targets definitions
 	 * @param targetsDefinitions
 	 * @param overwriteChooser - OverwriteChooser implementation (or null if none)
 	 * @param copyHandler - handler for action 'before' and 'after' copy (can be null)
-	 * @return
+	 * @return the number of files copied, or -1 if canceled
 	 * @throws Exception
 	 */
 	public int copyTargetsResourcesInProject( List<TargetDefinition> targetsDefinitions, OverwriteChooser overwriteChooser, CopyHandler copyHandler ) throws Exception {
-		log("copyResourcesInProject()... " );
-		
-		int count = 0 ;
-		
-		//--- Build the real resources targets from the targets definitions 
-		List<Target> resourcesTargets = getResourcesTargets( targetsDefinitions ) ;
-		//--- For each target 
-		for ( Target target : resourcesTargets ) {
-			int n = copyTargetResourcesInProject(target, overwriteChooser, copyHandler );
-			if ( n < 0 ) {
-				// Copy canceled 
-				return -1 ;
-			}
-			count = count + n ;
+		ResourcesCopyResult result = copyResourcesInProject(targetsDefinitions, overwriteChooser, copyHandler);
+		if ( result.isCanceled() ) {
+			return -1 ;
 		}
-		return count ;
+		return result.getNumberOfFilesCopied() ;
 	}
 
 	//----------------------------------------------------------------------------------------------------
 	/**
-	 * @param target
-	 * @param overwriteChooser
+	 * Copy all the given resources targets definitions <br>
+	 * The files are copied in parallel, the destination files already up to date are not copied again
+	 * @param targetsDefinitions
+	 * @param overwriteChooser - OverwriteChooser implementation (or null if none)
 	 * @param copyHandler - handler for action 'before' and 'after' copy (can be null)
-	 * @return
+	 * @return the copy result ( files copied and skipped )
 	 * @throws Exception
 	 */
-	private int copyTargetResourcesInProject( Target target, OverwriteChooser overwriteChooser, CopyHandler copyHandler ) throws Exception {
-		log("copyTargetResourcesInProject() : target = " + target );
+	public ResourcesCopyResult copyResourcesInProject( List<TargetDefinition> targetsDefinitions, OverwriteChooser overwriteChooser, CopyHandler copyHandler ) throws Exception {
+		ResourcesCopyResult result = startResourcesCopyInProject(targetsDefinitions, overwriteChooser, copyHandler).waitForEnd();
+		log("copy result : " + result );
+		return result ;
+	}
 
-		File origin = getOrigin(target); 
-		log("origin      : " + origin);
-		File destination = getDestination(target); 
-		log("destination : " + destination);
-		int count = copy(origin, destination, overwriteChooser, copyHandler);
-		log(count + "file(s) copied");
+	//----------------------------------------------------------------------------------------------------
+	/**
+	 * Starts the copy of all the given resources targets definitions <br>
+	 * The overwrite choices are made in the current thread, then the files are copied in background <br>
+	 * until 'waitForEnd' is called on the returned object
+	 * @param targetsDefinitions
+	 * @param overwriteChooser - OverwriteChooser implementation (or null if none)
+	 * @param copyHandler - handler for action 'before' and 'after' copy (can be null)
+	 * @return the running copy
+	 * @throws Exception
+	 */
+	public ResourcesCopyEngine.RunningCopy startResourcesCopyInProject( List<TargetDefinition> targetsDefinitions, OverwriteChooser overwriteChooser, CopyHandler copyHandler ) throws Exception {
+		log("startResourcesCopyInProject()... " );
 		
-		return count ;
+		//--- Build the real resources targets from the targets definitions 
+		List<Target> resourcesTargets = getResourcesTargets( targetsDefinitions ) ;
+		//--- Origin and destination for each target 
+		List<File> origins      = new ArrayList<File>(resourcesTargets.size());
+		List<File> destinations = new ArrayList<File>(resourcesTargets.size());
+		for ( Target target : resourcesTargets ) {
+			log("target = " + target );
+			File origin = getOrigin(target); 
+			log("origin      : " + origin);
+			File destination = getDestination(target); 
+			log("destination : " + destination);
+			origins.add(origin);
+			destinations.add(destination);
+		}
+		//--- Copy all the targets at once
+		ResourcesCopyEngine copyEngine = new ResourcesCopyEngine(overwriteChooser, copyHandler);
+		copyEngine.setParallelism(_parallelism);
+		return copyEngine.start(origins, destinations);
 	}
-	
+
 	//----------------------------------------------------------------------------------------------------
 	private File getOrigin(Target target) throws Exception {
 		// "resources to be copied" = "template file" in .cfg file 
@@ -153,20 +184,6 @@ public class BundleResourcesManager {
 		File destinationFile = new File(destinationFullPath);
 		return destinationFile ;
 	}
-	//----------------------------------------------------------------------------------------------------
-	private int copy(File origin, File destination, OverwriteChooser overwriteChooser, CopyHandler copyHandler ) {
-		int n = 0 ;
-		log("copy from '" + origin + "' to '" + destination + "'...");
-		ResourcesCopier copier = new ResourcesCopier(overwriteChooser, copyHandler );
-		try {
-			n = copier.copy(origin, destination);
-			log(n + " file(s) copied");
-		} catch (Exception e) {
-			log("Error : exception " + e);
-		}
-		return n ;
-	}	
-	
 	//----------------------------------------------------------------------------------------------------
 	/**
 	 * Returns the folder full path where the static resources are located
@@ -0,0 +1,147 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.dbcfg.DatabasesConfigurations;
+import org.telosys.tools.commons.dbcfg.DbConfigManager;
+import org.telosys.tools.generator.context.DatabasesInContext;
+
+/**
+ * Databases configurations cache shared by all the generators of the JVM <br>
+ *
+ * Key : the absolute path of the 'dbcfg' file <br>
+ * The file is loaded again only if its 'last modified' or size has changed. <br>
+ * Long-lived processes (IDE, daemon) can also force the reload with 'invalidate'.
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class DatabasesConfigurationsCache {
+
+	private static final DatabasesConfigurationsCache sharedInstance = new DatabasesConfigurationsCache();
+
+	/**
+	 * Returns the cache shared by all the generators
+	 * @return
+	 */
+	public static DatabasesConfigurationsCache getInstance() {
+		return sharedInstance ;
+	}
+
+	//--------------------------------------------------------------------------------------
+	private static class CacheEntry {
+		private final long                    lastModified ;
+		private final long                    length ;
+		private final DatabasesConfigurations databasesConfigurations ;
+		private DatabasesInContext            databasesInContext = null ; // built on demand
+
+		private CacheEntry(long lastModified, long length, DatabasesConfigurations databasesConfigurations) {
+			this.lastModified = lastModified ;
+			this.length       = length ;
+			this.databasesConfigurations = databasesConfigurations ;
+		}
+	}
+
+	//--------------------------------------------------------------------------------------
+	private final Map<String, CacheEntry> _entries = new HashMap<String, CacheEntry>();
+	private int _loadsCount = 0 ;
+
+	/**
+	 * Constructor
+	 */
+	public DatabasesConfigurationsCache() {
+		super();
+	}
+
+	private CacheEntry getEntry(String dbcfgFileName) {
+		File dbcfgFile = new File(dbcfgFileName);
+		String key = dbcfgFile.getAbsolutePath();
+		long lastModified = dbcfgFile.lastModified(); // 0 if the file doesn't exist
+		long length = dbcfgFile.length(); // 0 if the file doesn't exist
+		CacheEntry entry = _entries.get(key);
+		if ( entry == null || entry.lastModified != lastModified || entry.length != length ) {
+			entry = new CacheEntry(lastModified, length, load(dbcfgFile));
+			_entries.put(key, entry);
+		}
+		return entry ;
+	}
+
+	private DatabasesConfigurations load(File dbcfgFile) {
+		_loadsCount++ ;
+		if ( dbcfgFile.exists() ) {
+			try {
+				DbConfigManager dbConfigManager = new DbConfigManager( dbcfgFile );
+				return dbConfigManager.load() ;
+			} catch (TelosysToolsException e) {
+				return new DatabasesConfigurations() ; // Void
+			}
+		}
+		else {
+			return new DatabasesConfigurations() ; // Void
+		}
+	}
+
+	/**
+	 * Returns the databases configurations defined in the given 'dbcfg' file <br>
+	 * ( void configurations if the file doesn't exist or cannot be loaded )
+	 * @param dbcfgFileName
+	 * @return
+	 */
+	public synchronized DatabasesConfigurations getDatabasesConfigurations(String dbcfgFileName) {
+		return getEntry(dbcfgFileName).databasesConfigurations ;
+	}
+
+	/**
+	 * Returns the '$databases' object for the given 'dbcfg' file
+	 * @param dbcfgFileName
+	 * @return
+	 */
+	public synchronized DatabasesInContext getDatabasesInContext(String dbcfgFileName) {
+		CacheEntry entry = getEntry(dbcfgFileName);
+		if ( entry.databasesInContext == null ) {
+			entry.databasesInContext = new DatabasesInContext(entry.databasesConfigurations);
+		}
+		return entry.databasesInContext ;
+	}
+
+	/**
+	 * Removes the given 'dbcfg' file from the cache (it will be reloaded at the next call)
+	 * @param dbcfgFileName
+	 */
+	public synchronized void invalidate(String dbcfgFileName) {
+		_entries.remove(new File(dbcfgFileName).getAbsolutePath());
+	}
+
+	/**
+	 * Removes all the 'dbcfg' files from the cache
+	 */
+	public synchronized void invalidateAll() {
+		_entries.clear();
+	}
+
+	/**
+	 * Returns the number of 'dbcfg' files loaded since the cache creation
+	 * @return
+	 */
+	public synchronized int getLoadsCount() {
+		return _loadsCount ;
+	}
+}
@@ -0,0 +1,264 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.CharBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.Charset;
+import java.nio.charset.CharsetEncoder;
+import java.nio.charset.CoderResult;
+import java.nio.charset.CodingErrorAction;
+
+/**
+ * Writer for the generation results <br>
+ * The generated text is encoded with the given charset directly in a buffer <br>
+ * reused for all the files written by the same thread (no intermediate byte array) <br>
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GeneratedFileWriter {
+
+	public static final int BUFFER_SIZE = 64 * 1024 ;
+
+	//--- One buffer per thread, reused for all the files
+	private static final ThreadLocal<ByteBuffer> threadFileBuffer = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocateDirect(BUFFER_SIZE);
+		}
+	};
+	private static final ThreadLocal<ByteBuffer> threadMemoryBuffer = new ThreadLocal<ByteBuffer>() {
+		@Override
+		protected ByteBuffer initialValue() {
+			return ByteBuffer.allocate(BUFFER_SIZE);
+		}
+	};
+	private static final ThreadLocal<byte[]> threadReadBuffer = new ThreadLocal<byte[]>() {
+		@Override
+		protected byte[] initialValue() {
+			return new byte[BUFFER_SIZE];
+		}
+	};
+
+	/**
+	 * Consumer of the encoded bytes ( called each time the buffer is full, and at the end )
+	 */
+	private interface ChunkConsumer {
+		/**
+		 * Consumes the bytes between the position and the limit of the given buffer
+		 * @param buffer
+		 * @return true to continue the encoding, false to stop it
+		 * @throws IOException
+		 */
+		boolean consume(ByteBuffer buffer) throws IOException ;
+	}
+
+	private final Charset _charset ;
+
+	/**
+	 * Constructor
+	 * @param charset the charset used to encode the generated text
+	 */
+	public GeneratedFileWriter(Charset charset) {
+		super();
+		if ( charset == null ) {
+			throw new IllegalArgumentException("Charset parameter is null");
+		}
+		_charset = charset ;
+	}
+
+	public Charset getCharset() {
+		return _charset ;
+	}
+
+	private CharsetEncoder newEncoder() {
+		//--- Same behavior as 'String.getBytes' : invalid chars are replaced
+		return _charset.newEncoder()
+				.onMalformedInput(CodingErrorAction.REPLACE)
+				.onUnmappableCharacter(CodingErrorAction.REPLACE);
+	}
+
+	/**
+	 * Writes the given text in the given file (the file is created or replaced)
+	 * @param content
+	 * @param file
+	 * @throws IOException
+	 */
+	public void write(CharSequence content, File file) throws IOException {
+		FileOutputStream fileOutputStream = new FileOutputStream(file);
+		try {
+			final FileChannel channel = fileOutputStream.getChannel();
+			ByteBuffer buffer = threadFileBuffer.get();
+			buffer.clear();
+			encode(content, buffer, new ChunkConsumer() {
+				public boolean consume(ByteBuffer chunk) throws IOException {
+					while ( chunk.hasRemaining() ) {
+						channel.write(chunk);
+					}
+					return true ;
+				}
+			});
+		}
+		finally {
+			fileOutputStream.close();
+		}
+	}
+
+	/**
+	 * Writes the given text in the given file only if the file doesn't exist or has a different content <br>
+	 * ( the content is encoded chunk by chunk and compared with the file, no copy of the whole content )
+	 * @param content
+	 * @param file
+	 * @return true if the file has been written, false if unchanged
+	 * @throws IOException
+	 */
+	public boolean writeIfChanged(CharSequence content, File file) throws IOException {
+		if ( file.exists() && hasSameContent(content, file) ) {
+			return false ; // same content : the file is not touched
+		}
+		write(content, file);
+		return true ;
+	}
+
+	/**
+	 * Returns true if the given file contains exactly the given text encoded with the current charset <br>
+	 * ( stops at the first difference )
+	 * @param content
+	 * @param file
+	 * @return
+	 * @throws IOException
+	 */
+	public boolean hasSameContent(CharSequence content, File file) throws IOException {
+		//--- Cannot be the same if the file is bigger than the maximum size of the encoded text
+		long maxLength = (long) Math.ceil( newEncoder().maxBytesPerChar() * content.length() ) ;
+		if ( file.length() > maxLength ) {
+			return false ;
+		}
+		final InputStream in = new FileInputStream(file);
+		try {
+			final byte[] readBuffer = threadReadBuffer.get();
+			ByteBuffer buffer = threadMemoryBuffer.get();
+			buffer.clear();
+			boolean same = encode(content, buffer, new ChunkConsumer() {
+				public boolean consume(ByteBuffer chunk) throws IOException {
+					while ( chunk.hasRemaining() ) {
+						int length = Math.min(chunk.remaining(), readBuffer.length);
+						if ( ! readFully(in, readBuffer, length) ) {
+							return false ; // file shorter than the content
+						}
+						for ( int i = 0 ; i < length ; i++ ) {
+							if ( readBuffer[i] != chunk.get() ) {
+								return false ;
+							}
+						}
+					}
+					return true ;
+				}
+			});
+			return same && in.read() < 0 ; // nothing more in the file
+		}
+		finally {
+			in.close();
+		}
+	}
+
+	private boolean readFully(InputStream in, byte[] bytes, int length) throws IOException {
+		int offset = 0 ;
+		while ( offset < length ) {
+			int n = in.read(bytes, offset, length - offset);
+			if ( n < 0 ) {
+				return false ;
+			}
+			offset += n ;
+		}
+		return true ;
+	}
+
+	/**
+	 * Returns the given text encoded with the current charset <br>
+	 * ( in-memory fallback when the result cannot be written directly in a file )
+	 * @param content
+	 * @return
+	 */
+	public byte[] toBytes(CharSequence content) {
+		final ByteArrayOutputStream out = new ByteArrayOutputStream(content.length());
+		ByteBuffer buffer = threadMemoryBuffer.get();
+		buffer.clear();
+		try {
+			encode(content, buffer, new ChunkConsumer() {
+				public boolean consume(ByteBuffer chunk) {
+					out.write(chunk.array(), chunk.arrayOffset() + chunk.position(), chunk.remaining());
+					chunk.position(chunk.limit());
+					return true ;
+				}
+			});
+		} catch (IOException e) {
+			// Cannot happen with a ByteArrayOutputStream
+			throw new IllegalStateException("Unexpected IOException", e);
+		}
+		return out.toByteArray();
+	}
+
+	/**
+	 * Encodes the given text in the given buffer, each chunk is given to the consumer
+	 * @param content
+	 * @param buffer
+	 * @param consumer
+	 * @return true if all the text has been encoded, false if stopped by the consumer
+	 * @throws IOException
+	 */
+	private boolean encode(CharSequence content, ByteBuffer buffer, ChunkConsumer consumer) throws IOException {
+		CharsetEncoder encoder = newEncoder();
+		CharBuffer input = CharBuffer.wrap(content);
+		//--- Encode all the chars
+		while ( true ) {
+			CoderResult coderResult = encoder.encode(input, buffer, true);
+			if ( coderResult.isOverflow() ) {
+				if ( ! flush(buffer, consumer) ) {
+					return false ;
+				}
+			}
+			else if ( coderResult.isUnderflow() ) {
+				break ;
+			}
+			else {
+				coderResult.throwException(); // not expected with 'REPLACE' actions
+			}
+		}
+		//--- Encoder final state
+		while ( encoder.flush(buffer).isOverflow() ) {
+			if ( ! flush(buffer, consumer) ) {
+				return false ;
+			}
+		}
+		return flush(buffer, consumer);
+	}
+
+	private boolean flush(ByteBuffer buffer, ChunkConsumer consumer) throws IOException {
+		buffer.flip();
+		boolean next = consumer.consume(buffer);
+		buffer.clear();
+		return next ;
+	}
+}
@@ -0,0 +1,313 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.nio.charset.Charset;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.generator.context.ModelInContext;
+import org.telosys.tools.generator.context.ModelInContextBuilder;
+import org.telosys.tools.generator.engine.GeneratorTemplate;
+import org.telosys.tools.generator.sink.FileSystemSink;
+import org.telosys.tools.generator.sink.GenerationSink;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Generation session shared by all the targets generated in the same run <br>
+ * ( main targets and sub-targets generated with the embedded generator ) <br>
+ *
+ * It holds the objects that are the same for all the targets, <br>
+ * typically the model context that is built only once for the whole run. <br>
+ * The state specific to each generation ( '$env', '$target', ... ) is never stored here.
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationSession {
+
+	private final Model              _model ;
+	private final TelosysToolsCfg    _telosysToolsCfg ;
+	private final String             _bundleName ;
+	private final TelosysToolsLogger _logger ;
+
+	private ModelInContext           _modelInContext = null ; // built on first use
+	private Charset                  _outputCharset  = Charset.defaultCharset() ; // v 3.0.0
+	private boolean                  _skipUnchangedFiles = false ; // v 3.0.0
+	private int                      _modelBuildParallelism = 1 ; // v 3.0.0
+	private final OutputDirectories  _outputDirectories = new OutputDirectories(); // v 3.0.0
+	private GenerationSink           _generationSink = null ; // file system by default // v 3.0.0
+	private GeneratorBaseContext     _baseContext = null ; // built by the first generator
+	private final Map<String, GeneratorTemplate> _checkedTemplates = new HashMap<String, GeneratorTemplate>(); // v 3.0.0
+
+	private final ThreadLocal<GeneratorEngineHolder> _threadEngine = new ThreadLocal<GeneratorEngineHolder>(); // v 3.0.0
+	private final List<GeneratorEngineHolder>        _allEngines   = new LinkedList<GeneratorEngineHolder>(); // v 3.0.0
+
+	/**
+	 * Constructor
+	 * @param model
+	 * @param telosysToolsCfg
+	 * @param bundleName
+	 * @param logger
+	 */
+	public GenerationSession(Model model, TelosysToolsCfg telosysToolsCfg, String bundleName, TelosysToolsLogger logger) {
+		super();
+		if ( model == null ) {
+			throw new IllegalArgumentException("Model parameter is null");
+		}
+		if ( telosysToolsCfg == null ) {
+			throw new IllegalArgumentException("TelosysToolsCfg parameter is null");
+		}
+		if ( bundleName == null ) {
+			throw new IllegalArgumentException("Bundle name parameter is null");
+		}
+		_model           = model ;
+		_telosysToolsCfg = telosysToolsCfg ;
+		_bundleName      = bundleName ;
+		_logger          = logger ;
+	}
+
+	public Model getModel() {
+		return _model;
+	}
+
+	public TelosysToolsCfg getTelosysToolsCfg() {
+		return _telosysToolsCfg;
+	}
+
+	public String getBundleName() {
+		return _bundleName;
+	}
+
+	public TelosysToolsLogger getLogger() {
+		return _logger;
+	}
+
+	/**
+	 * Returns the charset used to write the generated files ( platform default charset if not set )
+	 * @return
+	 */
+	public Charset getOutputCharset() {
+		return _outputCharset;
+	}
+
+	/**
+	 * Set the charset used to write the generated files 
+	 * @param outputCharset
+	 */
+	public void setOutputCharset(Charset outputCharset) {
+		if ( outputCharset == null ) {
+			throw new IllegalArgumentException("Charset parameter is null");
+		}
+		_outputCharset = outputCharset;
+	}
+
+	/**
+	 * Returns true if the existing files with the same content are not rewritten
+	 * @return
+	 */
+	public boolean isSkipUnchangedFiles() {
+		return _skipUnchangedFiles;
+	}
+
+	/**
+	 * Set the write policy : if true an existing file is rewritten only if its content has changed <br>
+	 * ( false by default : the file is always rewritten )
+	 * @param skipUnchangedFiles
+	 */
+	public void setSkipUnchangedFiles(boolean skipUnchangedFiles) {
+		_skipUnchangedFiles = skipUnchangedFiles;
+	}
+
+	/**
+	 * Returns the number of threads used to build all the entities of the model context
+	 * @return
+	 */
+	public int getModelBuildParallelism() {
+		return _modelBuildParallelism;
+	}
+
+	/**
+	 * Set the number of threads used to build all the entities of the model context <br>
+	 * ( 1 by default : each entity is built on first use ) <br>
+	 * Must be set before the first call to 'getModelInContext'
+	 * @param modelBuildParallelism
+	 */
+	public void setModelBuildParallelism(int modelBuildParallelism) {
+		if ( modelBuildParallelism < 1 ) {
+			throw new IllegalArgumentException("Invalid parallelism (" + modelBuildParallelism + ")");
+		}
+		_modelBuildParallelism = modelBuildParallelism;
+	}
+
+	/**
+	 * Returns the output directories known to exist during the session
+	 * @return
+	 */
+	public OutputDirectories getOutputDirectories() {
+		return _outputDirectories;
+	}
+
+	/**
+	 * Returns the destination of the generated files <br>
+	 * ( by default a 'FileSystemSink' writing in the destination folder of the configuration )
+	 * @return
+	 */
+	public synchronized GenerationSink getGenerationSink() {
+		if ( _generationSink == null ) {
+			_generationSink = new FileSystemSink( _telosysToolsCfg.getDestinationFolderAbsolutePath(), _outputDirectories );
+		}
+		return _generationSink;
+	}
+
+	/**
+	 * Set the destination of the generated files <br>
+	 * The sink is closed with the session
+	 * @param generationSink
+	 */
+	public synchronized void setGenerationSink(GenerationSink generationSink) {
+		if ( generationSink == null ) {
+			throw new IllegalArgumentException("Generation sink parameter is null");
+		}
+		_generationSink = generationSink;
+	}
+
+	/**
+	 * Returns the context objects shared by all the targets (or null if not yet built)
+	 * @return
+	 */
+	public synchronized GeneratorBaseContext getBaseContext() {
+		return _baseContext;
+	}
+
+	/**
+	 * Set the context objects shared by all the targets 
+	 * @param baseContext
+	 */
+	public synchronized void setBaseContext(GeneratorBaseContext baseContext) {
+		_baseContext = baseContext;
+	}
+
+	/**
+	 * Returns the template already checked during the session (or null if not yet checked) <br>
+	 * ( the template file is read by the engine at each generation, so a modified template is always used )
+	 * @param templateKey
+	 * @return
+	 */
+	public GeneratorTemplate getCheckedTemplate(String templateKey) {
+		synchronized (_checkedTemplates) {
+			return _checkedTemplates.get(templateKey);
+		}
+	}
+
+	/**
+	 * Keeps the given template as checked for the rest of the session <br>
+	 * ( the template directory and file existence are checked only once )
+	 * @param templateKey
+	 * @param template
+	 */
+	public void putCheckedTemplate(String templateKey, GeneratorTemplate template) {
+		synchronized (_checkedTemplates) {
+			_checkedTemplates.put(templateKey, template);
+		}
+	}
+
+	/**
+	 * Returns the model context for this session ( built once, at the first call ) <br>
+	 * The returned instance is shared by all the targets, the '$env' object of each <br>
+	 * generation is bound to it only during the generation ( see ModelInContext.bindEnv )
+	 * @return
+	 * @throws GeneratorException
+	 */
+	public synchronized ModelInContext getModelInContext() throws GeneratorException {
+		if ( _modelInContext == null ) {
+			if ( _logger != null ) {
+				_logger.log("GenerationSession : building model context...");
+			}
+			ModelInContextBuilder builder = new ModelInContextBuilder(_modelBuildParallelism); // v 3.0.0
+			_modelInContext = builder.build(_model, _telosysToolsCfg.getEntityPackage(), null );
+		}
+		return _modelInContext ;
+	}
+
+	/**
+	 * Returns the generator engine of the current thread ( initialized at the first call ) <br>
+	 * The same engine is reused for all the files generated by the thread during the session
+	 * @return
+	 */
+	public GeneratorEngineHolder getGeneratorEngine() {
+		GeneratorEngineHolder engine = _threadEngine.get();
+		if ( engine == null || ! engine.isInitialized() ) {
+			engine = new GeneratorEngineHolder();
+			engine.init();
+			_threadEngine.set(engine);
+			synchronized (_allEngines) {
+				_allEngines.add(engine);
+			}
+		}
+		return engine ;
+	}
+
+	/**
+	 * Shutdown the generator engine of the current thread (if any) <br>
+	 * Not required at the end of each work : all the engines are shutdown by 'close()'
+	 */
+	public void releaseGeneratorEngine() {
+		GeneratorEngineHolder engine = _threadEngine.get();
+		if ( engine != null ) {
+			engine.shutdown();
+			_threadEngine.remove();
+			synchronized (_allEngines) {
+				_allEngines.remove(engine);
+			}
+		}
+	}
+
+	/**
+	 * Closes the session : all the generator engines are shutdown and the shared objects closed <br>
+	 * To be called at the end of the run, by the thread that launched it
+	 */
+	public void close() {
+		releaseGeneratorEngine();
+		synchronized (_allEngines) {
+			for ( GeneratorEngineHolder engine : _allEngines ) {
+				engine.shutdown();
+			}
+			_allEngines.clear();
+		}
+		GeneratorBaseContext baseContext = getBaseContext();
+		if ( baseContext != null ) {
+			baseContext.close(); // v 3.0.0
+		}
+		GenerationSink generationSink ;
+		synchronized (this) {
+			generationSink = _generationSink ;
+		}
+		if ( generationSink != null ) {
+			try {
+				generationSink.close(); // v 3.0.0
+			} catch (GeneratorException e) {
+				if ( _logger != null ) {
+					_logger.error("Cannot close generation sink : " + e.getMessage());
+				}
+			}
+		}
+	}
+}
@@ -15,27 +15,18 @@
  */
 package org.telosys.tools.generator;
 
-import java.io.ByteArrayInputStream;
 import java.io.File;
-import java.io.FileNotFoundException;
-import java.io.FileOutputStream;
-import java.io.IOException;
-import java.io.InputStream;
-import java.io.OutputStream;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 
-import org.telosys.tools.commons.DirUtil;
 import org.telosys.tools.commons.FileUtil;
 import org.telosys.tools.commons.StrUtil;
-import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
-import org.telosys.tools.commons.dbcfg.DatabasesConfigurations;
-import org.telosys.tools.commons.dbcfg.DbConfigManager;
 import org.telosys.tools.commons.variables.Variable;
 import org.telosys.tools.generator.context.BeanValidation;
 import org.telosys.tools.generator.context.Const;
-import org.telosys.tools.generator.context.DatabasesInContext;
 import org.telosys.tools.generator.context.EmbeddedGenerator;
 import org.telosys.tools.generator.context.EntityInContext;
 import org.telosys.tools.generator.context.EnvInContext;
@@ -51,7 +42,6 @@ import org.telosys.tools.generator.context.Target;
 import org.telosys.tools.generator.context.Today;
 import org.telosys.tools.generator.context.names.ContextName;
 import org.telosys.tools.generator.engine.GeneratorContext;
-import org.telosys.tools.generator.engine.GeneratorEngine;
 import org.telosys.tools.generator.engine.GeneratorTemplate;
 import org.telosys.tools.generic.model.Model;
 
@@ -91,10 +81,12 @@ public class Generator {
 	private final TelosysToolsCfg          _telosysToolsCfg ; // v 3.0.0
 	private final String                   _bundleName ; // v 3.0.0
 
-	private final DatabasesConfigurations  _databasesConfigurations ; // v 3.0.0
+//	private final DatabasesConfigurations  _databasesConfigurations ; // v 3.0.0 ( now in DatabasesConfigurationsCache )
 	
 	private final TelosysToolsLogger       _logger ;
 
+	private final GenerationSession        _session ; // shared by all the targets of the run (can be null)
+
 //	private final String             _sTemplateFileName ; // removed in v 3.0
 
 	/**
@@ -115,7 +107,24 @@ public class Generator {
 		}
 		_bundleName = bundleName ; // v 3.0.0
 		
-		_databasesConfigurations = loadDatabasesConfigurations(_telosysToolsCfg); // v 3.0.0
+//		_databasesConfigurations = loadDatabasesConfigurations(_telosysToolsCfg); // v 3.0.0
+		
+		_session = null ; // no session : the model context is built for each target
+	}
+	
+	/**
+	 * Constructor for a generator working in the given generation session <br>
+	 * ( the model context of the session is reused for each target )
+	 * @param session
+	 */
+	public Generator( GenerationSession session ) {
+		if ( session == null ) {
+			throw new IllegalArgumentException("GenerationSession parameter is null");
+		}
+		_session         = session ;
+		_logger          = session.getLogger();
+		_telosysToolsCfg = session.getTelosysToolsCfg();
+		_bundleName      = session.getBundleName();
 	}
 	
 //	/**
@@ -150,7 +159,7 @@ public class Generator {
 ////		_generatorConfig = generatorConfig ; // removed in v 3.0.0
 //		_telosysToolsCfg = generatorConfig.getTelosysToolsCfg();
 //		
-//		_databasesConfigurations = loadDatabasesConfigurations(_telosysToolsCfg); // v 3.0.0
+////		_databasesConfigurations = loadDatabasesConfigurations(_telosysToolsCfg); // v 3.0.0
 //		
 ///****  v 3.0.0
 //		//------------------------------------------------------------------
@@ -229,37 +238,42 @@ public class Generator {
 	 * Loads the databases configurations if any
 	 * @return
 	 */
-	private DatabasesConfigurations loadDatabasesConfigurations( TelosysToolsCfg telosysToolsCfg )  // v 3.0.0
-	{
-		DatabasesConfigurations databasesConfigurations = null ;
-		String dbcfgFileName = telosysToolsCfg.getDatabasesDbCfgFileAbsolutePath();
-		File dbcfgFile = new File(dbcfgFileName);
-		if ( dbcfgFile.exists() ) {
-			try {
-				DbConfigManager dbConfigManager = new DbConfigManager( dbcfgFile );
-				databasesConfigurations = dbConfigManager.load() ;
-			} catch (TelosysToolsException e) {
-				databasesConfigurations = new DatabasesConfigurations() ; // Void
-			}
-			return databasesConfigurations ;
-		}
-		else {
-			return new DatabasesConfigurations() ; // Void
-		}
-	}
+//	private DatabasesConfigurations loadDatabasesConfigurations( TelosysToolsCfg telosysToolsCfg )  // v 3.0.0
+//	{
+//		DatabasesConfigurations databasesConfigurations = null ;
+//		String dbcfgFileName = telosysToolsCfg.getDatabasesDbCfgFileAbsolutePath();
+//		File dbcfgFile = new File(dbcfgFileName);
+//		if ( dbcfgFile.exists() ) {
+//			try {
+//				DbConfigManager dbConfigManager = new DbConfigManager( dbcfgFile );
+//				databasesConfigurations = dbConfigManager.load() ;
+//			} catch (TelosysToolsException e) {
+//				databasesConfigurations = new DatabasesConfigurations() ; // Void
+//			}
+//			return databasesConfigurations ;
+//		}
+//		else {
+//			return new DatabasesConfigurations() ; // Void
+//		}
+//	}
 
 	//========================================================================
 	// TEMPLATE MANAGEMENT
 	//========================================================================
-	private GeneratorTemplate loadTemplate(Target target) throws GeneratorException {
+	private GeneratorTemplate loadTemplate(Target target, GenerationSession session) throws GeneratorException {
 		
 		String templateFileName  = target.getTemplate();
 		//String templateDirectory = this._generatorConfig.getTemplatesFolderFullPath();	
 		String templateDirectory = _telosysToolsCfg.getTemplatesFolderAbsolutePath(); // v 3.0.0
 
-		File file = checkTemplate( templateDirectory, templateFileName);
-		
-		GeneratorTemplate generatorTemplate = new GeneratorTemplate(file);
+		//--- Already checked during the session ? ( the file itself is read by the engine at each generation )
+		String templateKey = templateDirectory + "|" + _bundleName + "|" + templateFileName ;
+		GeneratorTemplate generatorTemplate = session.getCheckedTemplate(templateKey); // v 3.0.0
+		if ( generatorTemplate == null ) {
+			File file = checkTemplate( templateDirectory, templateFileName);
+			generatorTemplate = new GeneratorTemplate(file);
+			session.putCheckedTemplate(templateKey, generatorTemplate);
+		}
 		
 		return generatorTemplate ;
 	}
@@ -338,49 +352,87 @@ public class Generator {
 	//========================================================================
 //	private GeneratorContext createContext( GeneratorConfig generatorConfig, TelosysToolsLogger logger)
 //			//throws GeneratorException
-	private GeneratorContext createContext( TelosysToolsLogger logger) // v 3.0.0
+//	private GeneratorContext createContext( TelosysToolsLogger logger) // v 3.0.0
+	private GeneratorContext createContext( GenerationSession session ) // v 3.0.0
 	{
 		//--- Create a context
 		log("Generator : createContext() ...");
 		GeneratorContext generatorContext = new GeneratorContext(); // v 3.0 			
 		
 //		initContext(generatorContext, generatorConfig, logger); // v 3.0.0
-		initContext(generatorContext, logger); // v 3.0.0
+		initContext(generatorContext, session); // v 3.0.0
 		return generatorContext ;
 	}
 	
 //	private void initContext( GeneratorContext generatorContext, GeneratorConfig generatorConfig, TelosysToolsLogger logger)
-	private void initContext( GeneratorContext generatorContext, TelosysToolsLogger logger)
+	private void initContext( GeneratorContext generatorContext, GenerationSession session)
 		//throws GeneratorException
 	{
 		log("Generator : initContext() ...");
 
+		//--- Objects with a state : specific to each generation
+		generatorContext.put(ContextName.GENERATOR,       new EmbeddedGenerator());  // Limited generator without generation capability 
+		generatorContext.put(ContextName.FN,              new Fn(generatorContext));    // Utility function
+		generatorContext.put(ContextName.JDBC_FACTORY,    new JdbcFactoryInContext());  // JDBC factory ( ver 2.1.1 )
+
+		//--- Stateless objects and variables : built once for all the targets of the session ( v 3.0.0 )
+		GeneratorBaseContext baseContext = getBaseContext(session);
+		baseContext.copyTo(generatorContext);
+		
+		//--- Specific classes changed since the previous target ? ( checked once per target )
+		Object loader = baseContext.get(ContextName.LOADER);
+		if ( loader instanceof Loader ) {
+			((Loader) loader).checkForChanges();
+		}
+	}
+
+	/**
+	 * Returns the base context of the given session ( built at the first call )
+	 * @param session
+	 * @return
+	 */
+	private GeneratorBaseContext getBaseContext(GenerationSession session) {
+		synchronized (session) {
+			GeneratorBaseContext baseContext = session.getBaseContext() ;
+			if ( baseContext == null ) {
+				baseContext = buildBaseContext() ;
+				session.setBaseContext(baseContext);
+			}
+			return baseContext ;
+		}
+	}
+	
+	private GeneratorBaseContext buildBaseContext()
+	{
+		log("Generator : buildBaseContext() ...");
+		Map<String, Object> baseContext = new LinkedHashMap<String, Object>();
+
 		// Since v 3.0 _velocityContext has been replaced by _generatorContext
 		//--- Special Characters  [LGU 2012-11-29 ]
-		generatorContext.put(ContextName.DOLLAR , "$"  );
-		generatorContext.put(ContextName.SHARP,   "#"  );
-		generatorContext.put(ContextName.AMP,     "&"  ); // ampersand 
-		generatorContext.put(ContextName.QUOT,    "\"" ); // double quotation mark
-		generatorContext.put(ContextName.LT,      "<"  ); // less-than sign
-		generatorContext.put(ContextName.GT,      ">"  ); // greater-than sign
-		generatorContext.put(ContextName.LBRACE,  "{"  ); // left brace
-		generatorContext.put(ContextName.RBRACE,  "}"  ); // right brace
+		baseContext.put(ContextName.DOLLAR , "$"  );
+		baseContext.put(ContextName.SHARP,   "#"  );
+		baseContext.put(ContextName.AMP,     "&"  ); // ampersand 
+		baseContext.put(ContextName.QUOT,    "\"" ); // double quotation mark
+		baseContext.put(ContextName.LT,      "<"  ); // less-than sign
+		baseContext.put(ContextName.GT,      ">"  ); // greater-than sign
+		baseContext.put(ContextName.LBRACE,  "{"  ); // left brace
+		baseContext.put(ContextName.RBRACE,  "}"  ); // right brace
 		
 		//--- Set the standard Velocity variables in the context
-		generatorContext.put(ContextName.GENERATOR,       new EmbeddedGenerator());  // Limited generator without generation capability 
-		generatorContext.put(ContextName.TODAY,           new Today()); // Current date and time 
-		generatorContext.put(ContextName.CONST,           new Const()); // Constants (static values)
-		generatorContext.put(ContextName.FN,              new Fn(generatorContext));    // Utility function
-		generatorContext.put(ContextName.JAVA,            new Java());  // Java utility functions
-		generatorContext.put(ContextName.JPA,             new Jpa());   // JPA utility functions
+		baseContext.put(ContextName.TODAY,           new Today()); // Current date and time 
+		baseContext.put(ContextName.CONST,           new Const()); // Constants (static values)
+		baseContext.put(ContextName.JAVA,            new Java());  // Java utility functions
+		baseContext.put(ContextName.JPA,             new Jpa());   // JPA utility functions
 //		_velocityContext.put(ContextName.JDBC,            new JdbcInContext());  // JDBC utility functions ( ver 2.1.1 )
-		generatorContext.put(ContextName.JDBC_FACTORY,    new JdbcFactoryInContext());  // JDBC factory ( ver 2.1.1 )
-		generatorContext.put(ContextName.BEAN_VALIDATION, new BeanValidation()); // Bean Validation utility functions
-		generatorContext.put(ContextName.H2,              new H2InContext());  // JDBC factory ( ver 2.1.1 )
+		baseContext.put(ContextName.BEAN_VALIDATION, new BeanValidation()); // Bean Validation utility functions
+		baseContext.put(ContextName.H2,              new H2InContext());  // JDBC factory ( ver 2.1.1 )
 
 //		generatorContext.put(ContextName.DATABASES,
 //							new DatabasesInContext( generatorConfig.getDatabasesConfigurations() ) ); // ver 2.1.0
-		generatorContext.put(ContextName.DATABASES,	new DatabasesInContext(_databasesConfigurations) ); // ver 3.0.0
+//		baseContext.put(ContextName.DATABASES,	new DatabasesInContext(_databasesConfigurations) ); // ver 3.0.0
+		//--- 'dbcfg' file loaded only if modified since the last generation 
+		baseContext.put(ContextName.DATABASES, DatabasesConfigurationsCache.getInstance().getDatabasesInContext(
+				_telosysToolsCfg.getDatabasesDbCfgFileAbsolutePath()) ); // ver 3.0.0
 				
 		//_velocityContext.put(ContextName.CLASS, null);
 		
@@ -388,13 +440,13 @@ public class Generator {
 		//Loader loader = new Loader(projectConfiguration, _velocityContext);
 //		Loader loader = new Loader( generatorConfig.getTemplatesFolderFullPath() ); // ver 2.1.0
 		Loader loader = new Loader( _telosysToolsCfg.getTemplatesFolderAbsolutePath(this._bundleName) ); // ver 3.0.0
-		generatorContext.put(ContextName.LOADER, loader);
+		baseContext.put(ContextName.LOADER, loader);
 		
 		//--- Set the "$project" variable in the context
 //		ProjectConfiguration projectConfiguration = generatorConfig.getProjectConfiguration();
 //		_velocityContext.put(ContextName.PROJECT, projectConfiguration);
 //		generatorContext.put(ContextName.PROJECT, new ProjectInContext(generatorConfig)); // ver 2.1.0
-		generatorContext.put(ContextName.PROJECT, new ProjectInContext(_telosysToolsCfg)); // ver 3.0.0
+		baseContext.put(ContextName.PROJECT, new ProjectInContext(_telosysToolsCfg)); // ver 3.0.0
 
 // removed in v 3.0.0
 //		//--- Set the "$generation" variable in the context
@@ -412,9 +464,10 @@ public class Generator {
 			for ( int i = 0 ; i < projectVariables.length ; i++ )
 			{
 				Variable var = projectVariables[i];
-				generatorContext.put( var.getName(), var.getValue() );
+				baseContext.put( var.getName(), var.getValue() );
 			}
 		}
+		return new GeneratorBaseContext(baseContext);
 	}
 
 // Unused : removed in v 3.0
@@ -474,10 +527,11 @@ public class Generator {
 //			throw new GeneratorException("Generation error : Exception ", e);
 //		}
 //	}
-	private String generate( GeneratorTemplate generatorTemplate, GeneratorContext generatorContext)
-			throws Exception {
+	private String generate( GeneratorTemplate generatorTemplate, GeneratorContext generatorContext, 
+			GeneratorEngineHolder generatorEngine ) throws Exception {
 		log("generate(generatorTemplate, generatorContext)...");
-		GeneratorEngine generatorEngine = new GeneratorEngine();
+//		GeneratorEngine generatorEngine = new GeneratorEngine();
+		//--- The engine is initialized once and reused for all the targets of the session (v 3.0.0)
 		String result = generatorEngine.generate(generatorTemplate, generatorContext );
 		return result ;
 		
@@ -507,47 +561,48 @@ public class Generator {
 //	}
 
 	/**
-	 * Generates in memory and returns the InputStream on the generation result
+	 * Generates in memory and returns the generation result
 	 * @return
 	 * @throws GeneratorException
 	 */
-	private InputStream generateInMemory(Target target, GeneratorContext generatorContext) throws Exception // GeneratorException 
+	private String generateInMemory(Target target, GeneratorContext generatorContext, 
+			GenerationSession session) throws Exception // GeneratorException 
 	{
 		log("generateInMemory()...");
 //		StringWriter stringWriter = new StringWriter();
 		
-		
-		//------------------------------------------------------------------
-		// Workaround for Velocity error in OSGi environment 
 		//------------------------------------------------------------------
-		Thread currentThread = Thread.currentThread();
-		ClassLoader originalClassLoader = currentThread.getContextClassLoader();
-		currentThread.setContextClassLoader(this.getClass().getClassLoader()); // Set the context ClassLoader for this Thread
-		String result = null ;
-		try {
-			//------------------------------------------------------------------
-			//--- Load the TEMPLATE for the given TARGET
-			GeneratorTemplate template = loadTemplate(target) ;
-			//--- Call the GENERATOR ENGINE
-			//generate(stringWriter, template);
-			result = generate(template, generatorContext);
-			//------------------------------------------------------------------
-		}
-		finally {
-			currentThread.setContextClassLoader(originalClassLoader); // Restore the original classLoader
-		}
-		//------------------------------------------------------------------
-		// End of Workaround for Velocity error in OSGi environment
+		// Workaround for Velocity error in OSGi environment : 
+		// now done once per engine ( see GeneratorEngineHolder ) 
 		//------------------------------------------------------------------
+		GeneratorEngineHolder generatorEngine = session.getGeneratorEngine(); // v 3.0.0
+		//--- Load the TEMPLATE for the given TARGET
+		GeneratorTemplate template = loadTemplate(target, session) ;
+		//--- Call the GENERATOR ENGINE
+		//generate(stringWriter, template);
+		return generate(template, generatorContext, generatorEngine);
 			
 //		byte[] bytes = stringWriter.toString().getBytes();
 //		return new ByteArrayInputStream(bytes);
-		return new ByteArrayInputStream(result.getBytes());
+//		return new ByteArrayInputStream(result.getBytes());
 	}
 
 	//================================================================================================
 	// generateTarget moved from GenerationManager to Generator 
 	//================================================================================================
+	/**
+	 * Returns the generation session to be used for the given model <br>
+	 * ( the current session if it's based on the same model, else a new session )
+	 * @param model
+	 * @return
+	 */
+	private GenerationSession getSession(Model model) {
+		if ( _session != null && _session.getModel() == model ) {
+			return _session ;
+		}
+		return new GenerationSession(model, _telosysToolsCfg, _bundleName, _logger);
+	}
+	
 	/**
 	 * Generates the given target 
 	 * @param target the target to be generated
@@ -559,11 +614,31 @@ public class Generator {
 	public void generateTarget(Target target, Model model, 
 			List<String> selectedEntitiesNames,
 			List<Target> generatedTargets) throws GeneratorException
+	{
+		generateTarget(target, model, selectedEntitiesNames, generatedTargets, null);
+	}
+	
+	/**
+	 * Generates the given target 
+	 * @param target the target to be generated
+	 * @param model  the current 'model' with all the entities
+	 * @param selectedEntitiesNames list of names for all the selected entities (or null if none)
+	 * @param generatedTargets list of generated targets to be updated (or null if not useful)
+	 * @param unchangedTargets list of targets not written because unchanged (or null if not useful) <br>
+	 *        if null the unchanged targets are put in the 'generatedTargets' list
+	 * @throws GeneratorException
+	 */
+	public void generateTarget(Target target, Model model, 
+			List<String> selectedEntitiesNames,
+			List<Target> generatedTargets, 
+			List<Target> unchangedTargets ) throws GeneratorException // v 3.0.0
 	{
 		_logger.info("Generation in progress : target = " + target.getTargetName() + " / entity = " + target.getEntityName() );
 		
 //		GeneratorContext generatorContext = createContext(this._generatorConfig, this._logger);
-		GeneratorContext generatorContext = createContext(this._logger); // v 3.0.0
+//		GeneratorContext generatorContext = createContext(this._logger); // v 3.0.0
+		GenerationSession session = getSession(model);
+		GeneratorContext generatorContext = createContext(session); // v 3.0.0
 		
 		//--- Set "$env" object ( environment configuration )
 		EnvInContext env = new EnvInContext() ;
@@ -574,7 +649,8 @@ public class Generator {
 		
 		//--- Set "$model" object : full model with  all the entities (v 2.0.7)
 //		ModelInContext modelInContext = new ModelInContext(model, entitiesManager );
-		ModelInContext modelInContext = new ModelInContext(model, _telosysToolsCfg.getEntityPackage(), env ); // v 3.0.0
+//		ModelInContext modelInContext = new ModelInContext(model, _telosysToolsCfg.getEntityPackage(), env ); // v 3.0.0
+		ModelInContext modelInContext = session.getModelInContext(); // built once per session 
 		generatorContext.put(ContextName.MODEL, modelInContext); 
 		
 		//--- Set "$target" object in the context 
@@ -604,76 +680,58 @@ public class Generator {
 //				model, _generatorConfig, _logger, selectedEntitiesNames, generatedTargets );
 //		EmbeddedGenerator embeddedGenerator = new EmbeddedGenerator(
 //				model, _telosysToolsCfg, _logger, selectedEntitiesNames, generatedTargets ); // v 3.0.0
-		EmbeddedGenerator embeddedGenerator = new EmbeddedGenerator( _telosysToolsCfg, _bundleName, _logger,
-				model, selectedEntitiesNames, generatedTargets ); // v 3.0.0
+//		EmbeddedGenerator embeddedGenerator = new EmbeddedGenerator( _telosysToolsCfg, _bundleName, _logger,
+//				model, selectedEntitiesNames, generatedTargets ); // v 3.0.0
+		EmbeddedGenerator embeddedGenerator = new EmbeddedGenerator( session, selectedEntitiesNames, 
+				generatedTargets, unchangedTargets );
 		generatorContext.put(ContextName.GENERATOR, embeddedGenerator );
 		
 		//---------- ((( GENERATION ))) 
-		InputStream is;
+		boolean written ;
 		try {
-			is = generateInMemory(target, generatorContext);
-		} catch (Exception e) {
-			//_logger.error( ExceptionUtil.getStackTraceAsString(e) ); // Useless : "ASTMethod.handleInvocationException"
-			String msg = "Entity '" + target.getEntityName() + "' - Template '" + target.getTemplate() + "'" ;
-			_logger.error(msg);
-			_logger.error(e.getMessage());
-			throw new GeneratorException(msg + " : " + e.getMessage(), e);
-		} // Generate the target in memory
-		_logger.info("Generation done.");
-
-		//---------- Save the result in the file
-//		String outputFileName = target.getOutputFileNameInFileSystem( _generatorConfig.getProjectLocation() );
-//		String outputFileName = target.getOutputFileNameInFileSystem( _generatorConfig.getTelosysToolsCfg().getProjectAbsolutePath() ); // v 3.0.0
-//		String outputFileName = target.getOutputFileNameInFileSystem( _telosysToolsCfg.getProjectAbsolutePath() ); // v 3.0.0
-		String outputFileName = target.getOutputFileNameInFileSystem( _telosysToolsCfg.getDestinationFolderAbsolutePath() ); // v 3.0.0
-		_logger.info("Saving target file : " + outputFileName );
-		saveStreamInFile(is, outputFileName, true );
-		_logger.info("Target file saved." );
-		
-		//---------- Add the generated target in the list if any
-		if ( generatedTargets != null ) {
-			generatedTargets.add(target);
-		}
-	}
-	
-	private void saveStreamInFile(InputStream is, String fileName, boolean bCreateDir) throws GeneratorException
-	{
-		File file = new File(fileName);
-		
-		//--- Check if it's possible to write the file
-		if ( file.exists() ) {
-			if ( ! file.canWrite() ) {
-				throw new GeneratorException("Cannot write on existing target file '"+ file.toString() + "' !");
+			String result ;
+			//--- The shared model uses the "$env" of this generation (restored after : embedded generation)
+			EnvInContext previousEnv = modelInContext.bindEnv(env);
+			try {
+				result = generateInMemory(target, generatorContext, session);
+			} catch (Exception e) {
+				//_logger.error( ExceptionUtil.getStackTraceAsString(e) ); // Useless : "ASTMethod.handleInvocationException"
+				String msg = "Entity '" + target.getEntityName() + "' - Template '" + target.getTemplate() + "'" ;
+				_logger.error(msg);
+				_logger.error(e.getMessage());
+				throw new GeneratorException(msg + " : " + e.getMessage(), e);
+			} // Generate the target in memory
+			finally {
+				modelInContext.restoreEnv(previousEnv);
 			}
+			_logger.info("Generation done.");
+
+			//---------- Save the result in the file
+//			String outputFileName = target.getOutputFileNameInFileSystem( _generatorConfig.getProjectLocation() );
+//			String outputFileName = target.getOutputFileNameInFileSystem( _generatorConfig.getTelosysToolsCfg().getProjectAbsolutePath() ); // v 3.0.0
+//			String outputFileName = target.getOutputFileNameInFileSystem( _telosysToolsCfg.getProjectAbsolutePath() ); // v 3.0.0
+//			String outputFileName = target.getOutputFileNameInFileSystem( _telosysToolsCfg.getDestinationFolderAbsolutePath() ); // v 3.0.0
+			_logger.info("Saving target file : " + target.getOutputFileNameInProject() );
+			written = session.getGenerationSink().write(target, result, // v 3.0.0
+					session.getOutputCharset(), session.isSkipUnchangedFiles() );
 		}
-		else {
-			File parentFile = file.getParentFile();
-			if ( ! parentFile.exists() ) {
-				if ( bCreateDir == false ) {
-					throw new GeneratorException("Target directory '"+ parentFile.toString() + "' not found !");
-				}
-				else {
-					// Create the target file directory(ies)
-					//parentFile.mkdirs();
-					DirUtil.createDirectory(parentFile); // v 3.0.0
-				}
+		finally {
+			if ( session != _session ) {
+				//--- Session created only for this target : release its engine and close its sink ( after the write )
+				session.close();
 			}
 		}
 		
-		//--- Write the file
-		try {
-			OutputStream out = new FileOutputStream(file);
-			byte buf[] = new byte[1024];
-			int len;
-			while ((len = is.read(buf)) > 0) {
-				out.write(buf, 0, len);
+		//---------- Add the generated target in the list if any
+		if ( written || unchangedTargets == null ) {
+			_logger.info("Target file saved." );
+			if ( generatedTargets != null ) {
+				generatedTargets.add(target);
 			}
-			out.close();
-			is.close();
-		} catch (FileNotFoundException e) {
-			throw new GeneratorException("Cannot save file "+fileName, e);
-		} catch (IOException e) {
-			throw new GeneratorException("Cannot save file "+fileName, e);
+		}
+		else {
+			_logger.info("Target file unchanged." );
+			unchangedTargets.add(target);
 		}
 	}
 	
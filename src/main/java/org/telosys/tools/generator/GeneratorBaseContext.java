@@ -0,0 +1,103 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.util.Map;
+
+import org.telosys.tools.generator.engine.GeneratorContext;
+
+/**
+ * Frozen set of context objects shared by all the targets of a generation session <br>
+ * ( special characters, stateless tools, project variables ) <br>
+ *
+ * Each target gets its own GeneratorContext initialized with these objects, <br>
+ * so a template can still redefine a name ( '#set' ) without any effect on the other targets. <br>
+ * The objects with a state ( '$fn', '$jdbcFactory', '$target', '$entity', etc ) are never stored here.
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GeneratorBaseContext {
+
+	private final String[] _names ;
+	private final Object[] _values ;
+
+	/**
+	 * Constructor
+	 * @param entries the objects in the order they must be put in the context
+	 */
+	public GeneratorBaseContext(Map<String, Object> entries) {
+		super();
+		_names  = new String[entries.size()];
+		_values = new Object[entries.size()];
+		int i = 0 ;
+		for ( Map.Entry<String, Object> entry : entries.entrySet() ) {
+			_names[i]  = entry.getKey();
+			_values[i] = entry.getValue();
+			i++ ;
+		}
+	}
+
+	/**
+	 * Returns the number of objects
+	 * @return
+	 */
+	public int size() {
+		return _names.length ;
+	}
+
+	/**
+	 * Returns the object for the given name (or null if none)
+	 * @param name
+	 * @return
+	 */
+	public Object get(String name) {
+		for ( int i = 0 ; i < _names.length ; i++ ) {
+			if ( _names[i].equals(name) ) {
+				return _values[i] ;
+			}
+		}
+		return null ;
+	}
+
+	/**
+	 * Put all the shared objects in the given context
+	 * @param generatorContext
+	 */
+	public void copyTo(GeneratorContext generatorContext) {
+		for ( int i = 0 ; i < _names.length ; i++ ) {
+			generatorContext.put(_names[i], _values[i]);
+		}
+	}
+
+	/**
+	 * Closes the shared objects holding resources ( ie the '$loader' class loader ) <br>
+	 * Called at the end of the session
+	 */
+	public void close() {
+		for ( Object value : _values ) {
+			if ( value instanceof Closeable ) {
+				try {
+					((Closeable) value).close();
+				} catch (IOException e) {
+					// nothing to do : end of the session
+				}
+			}
+		}
+	}
+}
@@ -0,0 +1,120 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import org.telosys.tools.generator.engine.GeneratorContext;
+import org.telosys.tools.generator.engine.GeneratorEngine;
+import org.telosys.tools.generator.engine.GeneratorTemplate;
+
+/**
+ * Generator engine owned by a single thread and reused for all the files generated by this thread <br>
+ *
+ * Life cycle : init() --> generate() x N --> shutdown() <br>
+ *
+ * The workaround for the Velocity error in OSGi environment ( context ClassLoader ) <br>
+ * is applied only during the engine creation and each generation : the thread keeps its own <br>
+ * context ClassLoader between two generations ( callbacks, IDE refresh, pool threads reuse ) <br>
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GeneratorEngineHolder {
+
+	private final ClassLoader     _engineClassLoader ;
+
+	private GeneratorEngine       _generatorEngine = null ;
+	private int                   _generationsCount = 0 ;
+
+	/**
+	 * Constructor
+	 */
+	public GeneratorEngineHolder() {
+		super();
+		_engineClassLoader = this.getClass().getClassLoader() ;
+	}
+
+	/**
+	 * Initializes the engine for the current thread
+	 */
+	public void init() {
+		if ( _generatorEngine != null ) {
+			throw new IllegalStateException("Generator engine already initialized");
+		}
+		Thread currentThread = Thread.currentThread();
+		ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+		currentThread.setContextClassLoader(_engineClassLoader);
+		try {
+			_generatorEngine = new GeneratorEngine();
+		}
+		finally {
+			currentThread.setContextClassLoader(originalClassLoader); // Restore the original classLoader
+		}
+	}
+
+	/**
+	 * Returns true if the engine is initialized (and not yet shutdown)
+	 * @return
+	 */
+	public boolean isInitialized() {
+		return _generatorEngine != null ;
+	}
+
+	/**
+	 * Generates the given template with the given context
+	 * @param generatorTemplate
+	 * @param generatorContext
+	 * @return the generation result
+	 * @throws Exception
+	 */
+	public String generate(GeneratorTemplate generatorTemplate, GeneratorContext generatorContext) throws Exception {
+		if ( _generatorEngine == null ) {
+			throw new IllegalStateException("Generator engine not initialized");
+		}
+		_generationsCount++ ;
+		//------------------------------------------------------------------
+		// Workaround for Velocity error in OSGi environment
+		// "The specified class for ResourceManager (ResourceManagerImpl) does not implement ResourceManager"
+		// ( see https://github.com/whitesource/whitesource-bamboo-agent/issues/9 )
+		//------------------------------------------------------------------
+		Thread currentThread = Thread.currentThread();
+		ClassLoader originalClassLoader = currentThread.getContextClassLoader();
+		currentThread.setContextClassLoader(_engineClassLoader); // Set the context ClassLoader for this Thread
+		try {
+			return _generatorEngine.generate(generatorTemplate, generatorContext);
+		}
+		finally {
+			currentThread.setContextClassLoader(originalClassLoader); // Restore the original classLoader
+		}
+		//------------------------------------------------------------------
+		// End of Workaround for Velocity error in OSGi environment
+		//------------------------------------------------------------------
+	}
+
+	/**
+	 * Returns the number of generations done with this engine
+	 * @return
+	 */
+	public int getGenerationsCount() {
+		return _generationsCount ;
+	}
+
+	/**
+	 * Shutdown the engine ( can be called by any thread )
+	 */
+	public void shutdown() {
+		_generatorEngine = null ;
+	}
+}
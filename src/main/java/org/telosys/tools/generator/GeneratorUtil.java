@@ -15,8 +15,21 @@
  */
 package org.telosys.tools.generator;
 
+import java.util.Arrays;
+
 public class GeneratorUtil {
 
+	//--- Blanks strings built once for the usual sizes ( v 3.0.0 )
+	private static final int      MAX_CACHED_BLANKS = 128 ;
+	private static final String[] BLANKS = new String[MAX_CACHED_BLANKS + 1] ;
+	static {
+		char[] chars = new char[MAX_CACHED_BLANKS];
+		Arrays.fill(chars, ' ');
+		for ( int i = 0 ; i <= MAX_CACHED_BLANKS ; i++ ) {
+			BLANKS[i] = new String(chars, 0, i);
+		}
+	}
+
 	//-------------------------------------------------------------
     /**
      * Return a string composed of iSize blanks
@@ -25,17 +38,17 @@ public class GeneratorUtil {
      */
 	public static String blanks(int iSize)
     {
-        String sTrailingBlanks = "";
-        if (iSize > 0) // if needs trailing blanks
+        if (iSize <= 0) // no trailing blanks
+        {
+        	return BLANKS[0];
+        }
+        if (iSize <= MAX_CACHED_BLANKS) 
         {
-            StringBuffer sb = new StringBuffer();
-            for ( int i = 0 ; i < iSize ; i++ )
-            {
-                sb.append(' ');
-            }
-            sTrailingBlanks = sb.toString();
+        	return BLANKS[iSize];
         }
-        return sTrailingBlanks;
+        char[] chars = new char[iSize];
+        Arrays.fill(chars, ' ');
+        return new String(chars);
     }
     
 	/**
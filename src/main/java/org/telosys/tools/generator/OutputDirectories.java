@@ -0,0 +1,127 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.util.Collection;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.Set;
+
+import org.telosys.tools.commons.DirUtil;
+
+/**
+ * Output directories known to exist during a generation session <br>
+ * A directory is checked ( and created if needed ) only once for all the files generated in it <br>
+ * ( thread-safe : used by all the generation threads of the session, a directory created <br>
+ *   at the same time by two threads is not an error )
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class OutputDirectories {
+
+	private final Set<String> _knownDirectories = new HashSet<String>();
+	private int _numberOfDirectoriesCreated = 0 ;
+
+	/**
+	 * Constructor
+	 */
+	public OutputDirectories() {
+		super();
+	}
+
+	/**
+	 * Returns true if the given directory is known to exist
+	 * @param directory
+	 * @return
+	 */
+	public synchronized boolean isKnown(File directory) {
+		return _knownDirectories.contains(directory.getPath());
+	}
+
+	/**
+	 * Checks that the given directory exists, and creates it if not <br>
+	 * ( no file system access if the directory is already known )
+	 * @param directory
+	 * @param create true to create the directory if it doesn't exist, false to throw an exception
+	 * @throws GeneratorException
+	 */
+	public void checkDirectory(File directory, boolean create) throws GeneratorException {
+		if ( isKnown(directory) ) {
+			return ;
+		}
+		boolean created = false ;
+		if ( ! directory.exists() ) {
+			if ( create == false ) {
+				throw new GeneratorException("Target directory '"+ directory.toString() + "' not found !");
+			}
+			else {
+				// Create the target file directory(ies)
+				try {
+					DirUtil.createDirectory(directory);
+					created = true ;
+				} catch (RuntimeException e) {
+					// Can be created at the same time by another generation thread : not an error
+					if ( ! directory.isDirectory() ) {
+						throw e ;
+					}
+				}
+			}
+		}
+		synchronized (this) {
+			_knownDirectories.add(directory.getPath());
+			if ( created ) {
+				_numberOfDirectoriesCreated++ ;
+			}
+		}
+	}
+
+	/**
+	 * Creates all the given directories if they don't exist ( each directory is checked only once )
+	 * @param directories
+	 * @throws GeneratorException
+	 */
+	public void createDirectories(Collection<File> directories) throws GeneratorException {
+		//--- Remove the duplicates
+		Map<String, File> distinctDirectories = new LinkedHashMap<String, File>();
+		for ( File directory : directories ) {
+			if ( directory != null ) {
+				distinctDirectories.put(directory.getPath(), directory);
+			}
+		}
+		for ( File directory : distinctDirectories.values() ) {
+			checkDirectory(directory, true);
+		}
+	}
+
+	/**
+	 * Returns the number of directories created since the beginning of the session
+	 * @return
+	 */
+	public synchronized int getNumberOfDirectoriesCreated() {
+		return _numberOfDirectoriesCreated ;
+	}
+
+	/**
+	 * Returns the number of directories known to exist
+	 * @return
+	 */
+	public synchronized int getNumberOfKnownDirectories() {
+		return _knownDirectories.size() ;
+	}
+}
@@ -0,0 +1,424 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import org.telosys.tools.commons.io.CopyHandler;
+import org.telosys.tools.commons.io.OverwriteChooser;
+
+/**
+ * Copy engine for the bundle resources <br>
+ *
+ * 1) the origin files and folders are walked once and the action is decided for each file <br>
+ *    in the current thread : the 'overwrite chooser' is called in the files order as before <br>
+ *    and a destination file with the same size and 'last modified' date is not copied again <br>
+ * 2) the files to be copied are copied in parallel ( with 'FileChannel.transferTo' ), in background threads <br>
+ *    ( the caller can do something else in the meantime, see 'start' ) <br>
+ * 3) the 'copy handler' is notified in the thread waiting for the end of the copy, in the files order <br>
+ *
+ * A copied file keeps the 'last modified' date of the origin file ( used to detect the up to date files )
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class ResourcesCopyEngine {
+
+	/**
+	 * Default number of threads used to copy the files
+	 */
+	public static final int DEFAULT_PARALLELISM = 4 ;
+
+	private final OverwriteChooser _overwriteChooser ;
+	private final CopyHandler      _copyHandler ;
+	private int                    _parallelism = DEFAULT_PARALLELISM ;
+	private boolean                _skipUpToDateFiles = true ;
+
+	//--- Overwrite choice kept for all the next files ( 'yes to all' or 'no to all' )
+	private int _overwriteChoiceForAll = -1 ;
+
+	//----------------------------------------------------------------------------------------------------
+	private static class FileCopy {
+		private final File    origin ;
+		private final File    destination ;
+		private final boolean copy ;
+		private volatile boolean done = false ; // set by the copy thread
+		private FileCopy(File origin, File destination, boolean copy) {
+			this.origin      = origin ;
+			this.destination = destination ;
+			this.copy        = copy ;
+		}
+	}
+
+	//----------------------------------------------------------------------------------------------------
+	/**
+	 * Constructor
+	 * @param overwriteChooser - OverwriteChooser implementation (or null if none : always overwrite)
+	 * @param copyHandler - handler for action 'before' and 'after' copy (can be null)
+	 */
+	public ResourcesCopyEngine(OverwriteChooser overwriteChooser, CopyHandler copyHandler) {
+		super();
+		_overwriteChooser = overwriteChooser ;
+		_copyHandler      = copyHandler ;
+	}
+
+	/**
+	 * Set the number of threads used to copy the files ( 1 : sequential copy in a single background thread )
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if ( parallelism < 1 ) {
+			throw new IllegalArgumentException("Invalid parallelism (" + parallelism + ")");
+		}
+		_parallelism = parallelism ;
+	}
+
+	/**
+	 * Set the policy for the existing files with the same size and 'last modified' date as the origin <br>
+	 * if true ( default ) these files are not copied again
+	 * @param skipUpToDateFiles
+	 */
+	public void setSkipUpToDateFiles(boolean skipUpToDateFiles) {
+		_skipUpToDateFiles = skipUpToDateFiles ;
+	}
+
+	//----------------------------------------------------------------------------------------------------
+	/**
+	 * A copy started in background
+	 */
+	public class RunningCopy {
+		private final ResourcesCopyResult result ;
+		private final List<FileCopy>      filesCopies ;
+		private final ExecutorService     executorService ; // null if nothing to copy
+		private final List<Future<Long>>  futures ;
+		private final AtomicBoolean       stopped ;
+
+		private RunningCopy(ResourcesCopyResult result, List<FileCopy> filesCopies, 
+				ExecutorService executorService, List<Future<Long>> futures, AtomicBoolean stopped) {
+			this.result          = result ;
+			this.filesCopies     = filesCopies ;
+			this.executorService = executorService ;
+			this.futures         = futures ;
+			this.stopped         = stopped ;
+		}
+
+		/**
+		 * Cancels the copy : the files not yet started are not copied <br>
+		 * ( 'waitForEnd' must still be called )
+		 */
+		public void cancel() {
+			stopped.set(true);
+		}
+
+		/**
+		 * Waits for the end of the copy and notifies the 'copy handler' in the current thread
+		 * @return the copy result
+		 * @throws GeneratorException if a file cannot be copied
+		 */
+		public ResourcesCopyResult waitForEnd() throws GeneratorException {
+			GeneratorException error = null ;
+			try {
+				for ( Future<Long> future : futures ) {
+					try {
+						waitFor(future);
+					} catch (GeneratorException e) {
+						stopped.set(true);
+						if ( error == null ) {
+							error = e ;
+						}
+					}
+				}
+			}
+			finally {
+				if ( executorService != null ) {
+					executorService.shutdown();
+				}
+			}
+			//--- Notify the handler
+			for ( FileCopy fileCopy : filesCopies ) {
+				if ( fileCopy.done ) {
+					if ( _copyHandler != null ) {
+						_copyHandler.afterFileCopy(fileCopy.origin, fileCopy.destination);
+					}
+				}
+				else {
+					if ( _copyHandler != null ) {
+						_copyHandler.afterFileNotCopied(fileCopy.origin, fileCopy.destination);
+					}
+					result.addFileSkipped();
+				}
+			}
+			if ( error != null ) {
+				throw error ;
+			}
+			return result ;
+		}
+	}
+
+	//----------------------------------------------------------------------------------------------------
+	/**
+	 * Copies all the given origins ( file or folder ) to the corresponding destinations
+	 * @param origins
+	 * @param destinations
+	 * @return the copy result ( 'canceled' if the overwrite chooser returned CANCEL, nothing copied in this case )
+	 * @throws GeneratorException
+	 */
+	public ResourcesCopyResult copy(List<File> origins, List<File> destinations) throws GeneratorException {
+		return start(origins, destinations).waitForEnd();
+	}
+
+	/**
+	 * Starts the copy of all the given origins ( file or folder ) to the corresponding destinations <br>
+	 * The files are walked and the overwrite choices are made in the current thread, <br>
+	 * then the files are copied in background until 'waitForEnd' is called on the returned object
+	 * @param origins
+	 * @param destinations
+	 * @return the running copy ( 'canceled' result if the overwrite chooser returned CANCEL, nothing copied in this case )
+	 */
+	public RunningCopy start(List<File> origins, List<File> destinations) {
+		if ( origins.size() != destinations.size() ) {
+			throw new IllegalArgumentException("Origins and destinations lists must have the same size");
+		}
+		ResourcesCopyResult result = new ResourcesCopyResult();
+
+		//--- 1) Walk all the origins and decide what to do for each file
+		List<FileCopy> filesCopies = new ArrayList<FileCopy>();
+		for ( int i = 0 ; i < origins.size() ; i++ ) {
+			File origin = origins.get(i);
+			File destination = destinations.get(i);
+			if ( _copyHandler != null ) {
+				_copyHandler.beforeCopy(origin, destination);
+			}
+			if ( origin.isFile() && destination.isDirectory() ) {
+				destination = new File(destination, origin.getName());
+			}
+			if ( ! walk(origin, destination, filesCopies) ) {
+				result.setCanceled();
+				return new RunningCopy(result, new ArrayList<FileCopy>(), null, new ArrayList<Future<Long>>(), new AtomicBoolean(true) );
+			}
+		}
+
+		//--- 2) Copy the files in background ( 3 : see RunningCopy )
+		return startCopies(removeDuplicateDestinations(filesCopies), result);
+	}
+
+	/**
+	 * Keeps only the last copy for each destination file ( 'last one wins' as with a sequential copy ) <br>
+	 * The previous copies to the same destination are not copied ( else 2 threads could write the same file )
+	 * @param filesCopies
+	 * @return
+	 */
+	private List<FileCopy> removeDuplicateDestinations(List<FileCopy> filesCopies) {
+		Map<File, Integer> lastCopy = new HashMap<File, Integer>();
+		for ( int i = 0 ; i < filesCopies.size() ; i++ ) {
+			lastCopy.put(filesCopies.get(i).destination.getAbsoluteFile(), i);
+		}
+		if ( lastCopy.size() == filesCopies.size() ) {
+			return filesCopies ; // no duplicate
+		}
+		List<FileCopy> list = new ArrayList<FileCopy>(filesCopies.size());
+		for ( int i = 0 ; i < filesCopies.size() ; i++ ) {
+			FileCopy fileCopy = filesCopies.get(i);
+			if ( fileCopy.copy && lastCopy.get(fileCopy.destination.getAbsoluteFile()) != i ) {
+				list.add( new FileCopy(fileCopy.origin, fileCopy.destination, false) ); // replaced by a next copy
+			}
+			else {
+				list.add(fileCopy);
+			}
+		}
+		return list ;
+	}
+
+	//----------------------------------------------------------------------------------------------------
+	/**
+	 * Adds the files of the given origin in the list
+	 * @param origin file or folder
+	 * @param destination file or folder
+	 * @param filesCopies
+	 * @return false if canceled
+	 */
+	private boolean walk(File origin, File destination, List<FileCopy> filesCopies) {
+		if ( origin.isDirectory() ) {
+			File[] files = origin.listFiles();
+			if ( files != null ) {
+				for ( File file : files ) {
+					if ( ! walk(file, new File(destination, file.getName()), filesCopies) ) {
+						return false ;
+					}
+				}
+			}
+			return true ;
+		}
+		else {
+			int choice = chooseAction(origin, destination) ;
+			if ( choice == OverwriteChooser.CANCEL ) {
+				return false ;
+			}
+			filesCopies.add( new FileCopy(origin, destination, choice == OverwriteChooser.YES) );
+			return true ;
+		}
+	}
+
+	/**
+	 * Returns YES if the file must be copied, NO if not, CANCEL if the whole copy is canceled
+	 * @param origin
+	 * @param destination
+	 * @return
+	 */
+	private int chooseAction(File origin, File destination) {
+		if ( ! destination.exists() ) {
+			return OverwriteChooser.YES ;
+		}
+		if ( _skipUpToDateFiles && destination.length() == origin.length()
+				&& destination.lastModified() == origin.lastModified() ) {
+			return OverwriteChooser.NO ; // up to date
+		}
+		if ( _overwriteChooser == null ) {
+			return OverwriteChooser.YES ;
+		}
+		if ( _overwriteChoiceForAll >= 0 ) {
+			return _overwriteChoiceForAll ;
+		}
+		int choice = _overwriteChooser.choose(origin, destination);
+		switch ( choice ) {
+		case OverwriteChooser.YES_TO_ALL :
+			_overwriteChoiceForAll = OverwriteChooser.YES ;
+			return OverwriteChooser.YES ;
+		case OverwriteChooser.NO_TO_ALL :
+			_overwriteChoiceForAll = OverwriteChooser.NO ;
+			return OverwriteChooser.NO ;
+		case OverwriteChooser.YES :
+		case OverwriteChooser.CANCEL :
+			return choice ;
+		default :
+			return OverwriteChooser.NO ;
+		}
+	}
+
+	//----------------------------------------------------------------------------------------------------
+	private RunningCopy startCopies(List<FileCopy> filesCopies, final ResourcesCopyResult result) {
+		List<FileCopy> toBeCopied = new ArrayList<FileCopy>(filesCopies.size());
+		for ( FileCopy fileCopy : filesCopies ) {
+			if ( fileCopy.copy ) {
+				toBeCopied.add(fileCopy);
+			}
+		}
+		final AtomicBoolean stopped = new AtomicBoolean(false);
+		List<Future<Long>> futures = new ArrayList<Future<Long>>(toBeCopied.size());
+		if ( toBeCopied.isEmpty() ) {
+			return new RunningCopy(result, filesCopies, null, futures, stopped);
+		}
+		ExecutorService executorService = Executors.newFixedThreadPool( Math.min(_parallelism, toBeCopied.size()) );
+		for ( final FileCopy fileCopy : toBeCopied ) {
+			futures.add( executorService.submit( new Callable<Long>() {
+				public Long call() throws GeneratorException {
+					if ( stopped.get() ) {
+						return 0L ; // canceled
+					}
+					long bytes = copyFile(fileCopy.origin, fileCopy.destination);
+					fileCopy.done = true ;
+					result.addFileCopied(bytes);
+					return bytes ;
+				}
+			}));
+		}
+		return new RunningCopy(result, filesCopies, executorService, futures, stopped);
+	}
+
+	private void waitFor(Future<Long> future) throws GeneratorException {
+		try {
+			future.get();
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GeneratorException("Resources copy interrupted", e);
+		} catch (ExecutionException e) {
+			Throwable cause = e.getCause();
+			if ( cause instanceof GeneratorException ) {
+				throw (GeneratorException) cause ;
+			}
+			else if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause ;
+			}
+			else if ( cause instanceof Error ) {
+				throw (Error) cause ;
+			}
+			else {
+				throw new GeneratorException("Resources copy error", cause);
+			}
+		}
+	}
+
+	/**
+	 * Copies the given file
+	 * @param origin
+	 * @param destination
+	 * @return the number of bytes copied
+	 * @throws GeneratorException
+	 */
+	private long copyFile(File origin, File destination) throws GeneratorException {
+		File folder = destination.getParentFile();
+		if ( folder != null && ! folder.exists() ) {
+			folder.mkdirs(); // can be created at the same time by another thread
+		}
+		FileInputStream  in  = null ;
+		FileOutputStream out = null ;
+		long size = 0 ;
+		try {
+			in  = new FileInputStream(origin);
+			out = new FileOutputStream(destination);
+			FileChannel inChannel  = in.getChannel();
+			FileChannel outChannel = out.getChannel();
+			size = inChannel.size();
+			long position = 0 ;
+			while ( position < size ) {
+				position = position + inChannel.transferTo(position, size - position, outChannel);
+			}
+			out.close(); // report the error if the file cannot be completed
+			out = null ;
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot copy '" + origin + "' to '" + destination + "'", e);
+		} finally {
+			close(in);
+			close(out);
+		}
+		destination.setLastModified(origin.lastModified());
+		return size ;
+	}
+
+	private void close(java.io.Closeable closeable) {
+		if ( closeable != null ) {
+			try {
+				closeable.close();
+			} catch (IOException e) {
+				// nothing to do
+			}
+		}
+	}
+}
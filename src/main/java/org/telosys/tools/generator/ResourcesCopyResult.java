@@ -0,0 +1,90 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator;
+
+/**
+ * Result of a resources copy <br>
+ * ( thread-safe : can be updated by the copy threads )
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class ResourcesCopyResult {
+
+	private int     numberOfFilesCopied  = 0 ;
+	private int     numberOfFilesSkipped = 0 ;
+	private long    numberOfBytesCopied  = 0 ;
+	private boolean canceled = false ;
+
+	//--------------------------------------------------------------------------------------
+	/**
+	 * Default constructor with 0 for all values
+	 */
+	public ResourcesCopyResult() {
+		super();
+	}
+
+	//--------------------------------------------------------------------------------------
+	protected synchronized void addFileCopied(long bytes) {
+		numberOfFilesCopied++ ;
+		numberOfBytesCopied = numberOfBytesCopied + bytes ;
+	}
+	/**
+	 * Returns the number of files copied
+	 * @return
+	 */
+	public synchronized int getNumberOfFilesCopied() {
+		return numberOfFilesCopied;
+	}
+	/**
+	 * Returns the number of bytes copied
+	 * @return
+	 */
+	public synchronized long getNumberOfBytesCopied() {
+		return numberOfBytesCopied;
+	}
+
+	//--------------------------------------------------------------------------------------
+	protected synchronized void addFileSkipped() {
+		numberOfFilesSkipped++ ;
+	}
+	/**
+	 * Returns the number of files not copied <br>
+	 * ( destination file up to date, or not overwritten by choice )
+	 * @return
+	 */
+	public synchronized int getNumberOfFilesSkipped() {
+		return numberOfFilesSkipped;
+	}
+
+	//--------------------------------------------------------------------------------------
+	protected synchronized void setCanceled() {
+		canceled = true ;
+	}
+	/**
+	 * Returns true if the copy has been canceled by the 'overwrite chooser'
+	 * @return
+	 */
+	public synchronized boolean isCanceled() {
+		return canceled;
+	}
+
+	@Override
+	public synchronized String toString() {
+		return numberOfFilesCopied + " file(s) copied (" + numberOfBytesCopied + " bytes), "
+				+ numberOfFilesSkipped + " file(s) skipped" + ( canceled ? " (canceled)" : "" ) ;
+	}
+}
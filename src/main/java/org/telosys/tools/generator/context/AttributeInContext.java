@@ -79,6 +79,22 @@ public class AttributeInContext
 	private final String  _sFullType ;    // Full java type with package, : "java.math.BigDecimal", "java.util.Date"
 	private boolean       _bUseFullType = false ;
 	
+	//--- Values built on demand ( v 3.0.0 )
+	private String        _sGetter = null ;
+	private String        _sGetterWithGetPrefix = null ;
+	private String        _sSetter = null ;
+	private Formatted     _formattedName = null ; // for the last size requested
+	private Formatted     _formattedType = null ; // for the last size requested
+	
+	private static class Formatted {
+		private final int    size ;
+		private final String value ;
+		private Formatted(int size, String value) {
+			this.size  = size ;
+			this.value = value ;
+		}
+	}
+	
 	private final String  _sInitialValue ; // can be null 
 	
 	private final String  _sDefaultValue ; // can be null 
@@ -300,9 +316,16 @@ public class AttributeInContext
 	}
     
 	//-----------------------------------------------------------------------------------------------
+	/* package */ EntityInContext getOwnerEntity()
+	{
+		return _entity ;
+	}
+	
 	/* package */ void useFullType ()
 	{
 		_bUseFullType = true ;
+		_sGetter = null ; // depends on the type
+		_formattedType = null ;
 	}
 	
 	@VelocityMethod(
@@ -326,14 +349,18 @@ public class AttributeInContext
 	)
 	public String formattedName(int iSize)
     {
+		Formatted last = _formattedName ;
+		if ( last != null && last.size == iSize ) {
+			return last.value ; // same size as the previous call
+		}
         String s = _sName ;
-        String sTrailingBlanks = "";
         int iDelta = iSize - s.length();
         if (iDelta > 0) // if needs trailing blanks
         {
-            sTrailingBlanks = GeneratorUtil.blanks(iDelta);
+            s = s + GeneratorUtil.blanks(iDelta);
         }
-        return s + sTrailingBlanks;
+        _formattedName = new Formatted(iSize, s) ;
+        return s ;
     }
 
 	//-------------------------------------------------------------------------------------
@@ -374,14 +401,18 @@ public class AttributeInContext
 	)
 	public String formattedType(int iSize)
     {
+		Formatted last = _formattedType ;
+		if ( last != null && last.size == iSize ) {
+			return last.value ; // same size as the previous call
+		}
 		String sType = this.getType() ;
-        String sTrailingBlanks = "";
         int iDelta = iSize - sType.length();
         if (iDelta > 0) // if needs trailing blanks
         {
-            sTrailingBlanks = GeneratorUtil.blanks(iDelta);
+            sType = sType + GeneratorUtil.blanks(iDelta);
         }
-        return sType + sTrailingBlanks;
+        _formattedType = new Formatted(iSize, sType) ;
+        return sType ;
     }	
     
 	//-------------------------------------------------------------------------------------
@@ -488,7 +519,10 @@ public class AttributeInContext
 	)
 	public String getGetter()
 	{
-		return Util.buildGetter(_sName, this.getType() ); // v 2.0.7
+		if ( _sGetter == null ) {
+			_sGetter = Util.buildGetter(_sName, this.getType() ); // v 2.0.7
+		}
+		return _sGetter ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -500,7 +534,10 @@ public class AttributeInContext
 	)
 	public String getGetterWithGetPrefix()
 	{
-		return Util.buildGetter(_sName); // v 2.0.7
+		if ( _sGetterWithGetPrefix == null ) {
+			_sGetterWithGetPrefix = Util.buildGetter(_sName); // v 2.0.7
+		}
+		return _sGetterWithGetPrefix ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -512,7 +549,10 @@ public class AttributeInContext
 	)
 	public String getSetter()
 	{
-		return Util.buildSetter(_sName);
+		if ( _sSetter == null ) {
+			_sSetter = Util.buildSetter(_sName);
+		}
+		return _sSetter ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -726,7 +766,6 @@ public class AttributeInContext
     	if ( null == _sDataBaseName ) {
     		return false ; // No mapping 
     	}
-    	
 		for ( LinkInContext link : links ) {
 			if( link.isOwningSide() ) {
 				if ( link.usesAttribute(this) ) {
@@ -737,6 +776,46 @@ public class AttributeInContext
 		return false ;
     }
 
+    /**
+     * Returns TRUE if the attribute is involved in a Foreign Key of one of the links of its entity <br>
+     * ( same as 'isUsedInLinkJoinColumn($entity.links)' without scanning the links, v 3.0.0 )
+     * @return
+     */
+	@VelocityMethod(
+	text={	
+		"Returns TRUE if the attribute is involved in a Foreign Key of one of the links of its entity",
+		"Same result as 'isUsedInLinkJoinColumn($entity.links)' (faster : the entity links are indexed)"
+		},
+	since="3.0.0"
+	)
+    public boolean isUsedInLinkJoinColumn()
+    {
+    	if ( null == _sDataBaseName || _entity == null ) {
+    		return false ; // No mapping 
+    	}
+    	return _entity.isColumnUsedInOwningSideLink(_sDataBaseName, false);
+    }
+
+    /**
+     * Returns TRUE if the attribute is involved in a Foreign Key of one of the selected links of its entity <br>
+     * ( same as 'isUsedInLinkJoinColumn($entity.selectedLinks)' without scanning the links, v 3.0.0 )
+     * @return
+     */
+	@VelocityMethod(
+	text={	
+		"Returns TRUE if the attribute is involved in a Foreign Key of one of the selected links of its entity",
+		"Same result as 'isUsedInLinkJoinColumn($entity.selectedLinks)' (faster : the entity links are indexed)"
+		},
+	since="3.0.0"
+	)
+    public boolean isUsedInSelectedLinkJoinColumn()
+    {
+    	if ( null == _sDataBaseName || _entity == null ) {
+    		return false ; // No mapping 
+    	}
+    	return _entity.isColumnUsedInOwningSideLink(_sDataBaseName, true);
+    }
+
 	//-------------------------------------------------------------------------------------
     /**
      * Returns TRUE if the attribute is auto-incremented by the Database engine
@@ -1714,11 +1793,10 @@ public class AttributeInContext
 	since="2.1.0"
 	)
 	public String getReferencedEntityType() throws GeneratorException {
-		for( LinkInContext link : _entity.getLinks()  ) {
-			if( link.isOwningSide() && link.getAttributesCount() == 1 ) {
-				if ( link.usesAttribute(this) ) {
-					return link.getTargetEntitySimpleType() ;
-				}					
+		//--- Only the 'owning side' links using this attribute ( v 3.0.0 )
+		for( LinkInContext link : _entity.getOwningSideLinksUsingColumn(_sDataBaseName) ) {
+			if( link.getAttributesCount() == 1 ) {
+				return link.getTargetEntitySimpleType() ;
 			}
 		}
 		return "";
@@ -1735,4 +1813,4 @@ public class AttributeInContext
 	public boolean isReferencingAnotherEntity() throws GeneratorException {
 		return getReferencedEntityType().length() > 0 ;
 	}
-}
\ No newline at end of file
+}
\ No newline at end of file
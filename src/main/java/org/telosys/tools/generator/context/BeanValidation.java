@@ -15,6 +15,8 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.List;
+
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityObject;
 import org.telosys.tools.generator.context.names.ContextName;
@@ -50,8 +52,15 @@ public class BeanValidation {
 	)
 	public String annotations(int iLeftMargin, AttributeInContext attribute )
     {
-		AnnotationsForBeanValidation annotations = new AnnotationsForBeanValidation(attribute);
-		return annotations.getValidationAnnotations(iLeftMargin );
+		FragmentsCache cache = FragmentsCache.of(attribute); // v 3.0.0
+		List<Object> key = FragmentsCache.key("beanValidation.annotations", iLeftMargin, attribute);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			AnnotationsForBeanValidation annotations = new AnnotationsForBeanValidation(attribute);
+			fragment = annotations.getValidationAnnotations(iLeftMargin );
+			cache.put(key, fragment);
+		}
+		return fragment ;
     }
 
 	//-------------------------------------------------------------------------------------------------------------
@@ -20,6 +20,7 @@ import java.util.List;
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
 import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.GenerationSession;
 import org.telosys.tools.generator.Generator;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.GeneratorVersion;
@@ -51,9 +52,11 @@ public class EmbeddedGenerator {
 	private final String             _bundleName ; // v 3.0.0
 	
 	private final TelosysToolsLogger _logger ;
+	private final GenerationSession  _session ; // shared with the main generator
 	private final List<String>       _selectedEntitiesNames;	
 	private final boolean            _canGenerate ;
 	private final List<Target>       _generatedTargets ;
+	private final List<Target>       _unchangedTargets ;
 	
 	/**
 	 * Constructor for limited embedded generator without generation capabilities
@@ -65,9 +68,11 @@ public class EmbeddedGenerator {
 		this._telosysToolsCfg = null ; // v 3.0.0
 		this._bundleName = null ; // v 3.0.0
 		this._logger = null ;
+		this._session = null ;
 		this._selectedEntitiesNames = null ;
 		this._canGenerate = false ;
 		this._generatedTargets = null ;
+		this._unchangedTargets = null ;
 	}
 
 //	public EmbeddedGenerator(	Model model,
@@ -79,34 +84,31 @@ public class EmbeddedGenerator {
 //								List<Target> generatedTargets) {
 	/**
 	 * Constructor for real embedded generator that can generate sub-targets from a template
-	 * @param telosysToolsCfg
-	 * @param bundleName
-	 * @param logger
-	 * @param model
+	 * @param session the generation session of the main generator
 	 * @param selectedEntitiesNames
 	 * @param generatedTargets
+	 * @param unchangedTargets (can be null)
 	 */
 	public EmbeddedGenerator(	
 			// GeneratorConfig generatorConfig,  // v 3.0.0
-			TelosysToolsCfg telosysToolsCfg, // v 3.0.0
-			String bundleName, // v 3.0.0
-			TelosysToolsLogger logger, 
-			
-			Model model, 
+			GenerationSession session, 
 			List<String> selectedEntitiesNames,
-			List<Target> generatedTargets) {
+			List<Target> generatedTargets,
+			List<Target> unchangedTargets) {
 		super();
 		// this.generatorConfig = generatorConfig; // v 3.0.0
-		this._telosysToolsCfg = telosysToolsCfg ; // v 3.0.0
-		this._bundleName = bundleName ; // v 3.0.0
-		this._logger = logger;
+		this._session = session ;
+		this._telosysToolsCfg = session != null ? session.getTelosysToolsCfg() : null ; // v 3.0.0
+		this._bundleName = session != null ? session.getBundleName() : null ; // v 3.0.0
+		this._logger = session != null ? session.getLogger() : null ;
 		
 //		if ( model != null && generatorConfig != null && logger != null ) {
-		this._model = model;
+		this._model = session != null ? session.getModel() : null ;
 		this._selectedEntitiesNames = selectedEntitiesNames ;
 		this._generatedTargets = generatedTargets ;
+		this._unchangedTargets = unchangedTargets ;
 
-		if ( model != null && telosysToolsCfg != null && _bundleName != null && logger != null ) {
+		if ( _model != null && _telosysToolsCfg != null && _bundleName != null && _logger != null ) {
 			this._canGenerate = true ;
 		}
 		else {
@@ -252,9 +254,10 @@ public class EmbeddedGenerator {
 		
 		//Generator generator = new Generator(target, generatorConfig, model, logger); // v 2.0.7
 //		Generator generator = new Generator(generatorConfig, logger); // v 3.0.0
-		Generator generator = new Generator(this._telosysToolsCfg, _bundleName, _logger); // v 3.0.0
+//		Generator generator = new Generator(this._telosysToolsCfg, _bundleName, _logger); // v 3.0.0
+		Generator generator = new Generator(_session); // same session => same model context
 		
-		generator.generateTarget(target, _model, _selectedEntitiesNames, this._generatedTargets);
+		generator.generateTarget(target, _model, _selectedEntitiesNames, this._generatedTargets, this._unchangedTargets);
 	}
 	
 }
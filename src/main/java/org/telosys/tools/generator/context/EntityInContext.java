@@ -15,8 +15,15 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.generator.GeneratorException;
@@ -61,9 +68,9 @@ import org.telosys.tools.generic.model.Link;
 public class EntityInContext 
 {
 	//--- Static void lists
-	private final static List<AttributeInContext>  VOID_ATTRIBUTES_LIST    = new LinkedList<AttributeInContext>();
-	private final static List<ForeignKeyInContext> VOID_FOREIGN_KEYS_LIST  = new LinkedList<ForeignKeyInContext>();
-	private final static List<LinkInContext>       VOID_LINKS_LIST         = new LinkedList<LinkInContext>();
+	private final static List<AttributeInContext>  VOID_ATTRIBUTES_LIST    = Collections.emptyList();
+	private final static List<ForeignKeyInContext> VOID_FOREIGN_KEYS_LIST  = Collections.emptyList();
+	private final static List<LinkInContext>       VOID_LINKS_LIST         = Collections.emptyList();
 	
 	private final String     _sClassName ;
 	private final String     _sPackage ;
@@ -73,20 +80,56 @@ public class EntityInContext
     private final String     _sDatabaseSchema   ; // The table's schema 
     private final String     _sDatabaseType     ; // The table's type "table" or "view" 
     
-	private final LinkedList<AttributeInContext> _attributes ; // The attributes for this class ( ALL ATTRIBUTES )
-	private LinkedList<AttributeInContext>  _keyAttributes     = null ; // The KEY attributes for this class
-	private LinkedList<AttributeInContext>  _nonKeyAttributes  = null ; // The NON KEY attributes for this class
+	//--- Immutable random access lists ( v 3.0.0 )
+	private final List<AttributeInContext> _attributes ; // The attributes for this class ( ALL ATTRIBUTES )
+	private List<AttributeInContext>  _keyAttributes     = null ; // The KEY attributes for this class
+	private List<AttributeInContext>  _nonKeyAttributes  = null ; // The NON KEY attributes for this class
 
-	private final LinkedList<ForeignKeyInContext>  _foreignKeys ; // The database FOREIGN KEYS attributes for this entity ( v 2.0.7)
+	//--- Attributes indexes ( v 3.0.0 )
+	private final Map<String, AttributeInContext> _attributesByColumnName ;
+	private final Map<String, AttributeInContext> _attributesByName ;
+
+	private final List<ForeignKeyInContext>  _foreignKeys ; // The database FOREIGN KEYS attributes for this entity ( v 2.0.7)
 	
 	//--- JPA specific
-	private final LinkedList<LinkInContext> _links ; // The links for this class ( ALL ATTRIBUTES )
+	private final List<LinkInContext> _links ; // The links for this class ( ALL ATTRIBUTES )
+	private List<LinkInContext>       _selectedLinks = null ; // The links selected in the model ( v 3.0.0 )
+
+	//--- Criteria verified by each attribute ( same index as in '_attributes' ) and lists already built ( v 3.0.0 )
+	private int[] _attributesCriteria = null ;
+	private final Map<Integer, List<AttributeInContext>> _attributesByCriteria = new HashMap<Integer, List<AttributeInContext>>();
+
+	//--- Links using each join column ( v 3.0.0 )
+	private final Map<String, List<LinkInContext>> _owningSideLinksByColumn         = new HashMap<String, List<LinkInContext>>();
+	private final Map<String, List<LinkInContext>> _selectedOwningSideLinksByColumn = new HashMap<String, List<LinkInContext>>();
+	private final Map<String, List<LinkInContext>> _inverseSideLinksByColumn        = new HashMap<String, List<LinkInContext>>();
 	
 	// private final EntitiesManager _entitiesManager ; // removed in v 3.0.0
 	private final ModelInContext _modelInContext ;  // v 3.0.0
 	
 	private final EnvInContext    _env ; // ver 2.1.0
 	
+	//--- Names for the last env used ( v 3.0.0 )
+	private static class EnvNames {
+		private final EnvInContext env ;
+		private final int          envVersion ;
+		private final String       name ;
+		private final String       fullName ;
+		private EnvNames(EnvInContext env, int envVersion, String name, String fullName) {
+			this.env        = env ;
+			this.envVersion = envVersion ;
+			this.name       = name ;
+			this.fullName   = fullName ;
+		}
+	}
+	private EnvNames _envNames = null ;
+	
+	//--- Code fragments built by the tools, for each env names ( v 3.0.0 )
+	private final Map<List<String>, FragmentsCache> _fragmentsCaches = new HashMap<List<String>, FragmentsCache>();
+	
+	//--- JDBC tools built by '$jdbcFactory' : [0] without schema, [1] with schema ( v 3.0.0 )
+	private final JdbcInContext[] _jdbcInContext = new JdbcInContext[2] ;
+	
 	//-----------------------------------------------------------------------------------------------
 	/**
 	 * Constructor based on Repository Entity
@@ -120,7 +163,7 @@ public class EntityInContext
 		_sDatabaseType    = StrUtil.notNull(entity.getDatabaseType()); // ver 2.0.7
 		
 		//--- Initialize all the ATTRIBUTES for the current entity
-		_attributes = new LinkedList<AttributeInContext>();
+		List<AttributeInContext> attributes = new ArrayList<AttributeInContext>(entity.getAttributes().size());
 //		Collection<Column> entityColumns = entity.getColumnsCollection() ;
 //		for ( Column column : entityColumns ) {
 //			AttributeInContext attribute = new AttributeInContext(this, column);
@@ -128,11 +171,24 @@ public class EntityInContext
 //		}
 		for ( Attribute attribute : entity.getAttributes() ) { // v 3.0.0
 			AttributeInContext attributeInContext = new AttributeInContext(this, attribute);
-			_attributes.add(attributeInContext);
+			attributes.add(attributeInContext);
+		}
+		_attributes = Collections.unmodifiableList(attributes);
+		
+		//--- Attributes indexes ( the first attribute is kept if a name is used twice )
+		_attributesByColumnName = new HashMap<String, AttributeInContext>();
+		_attributesByName = new HashMap<String, AttributeInContext>();
+		for ( AttributeInContext attribute : _attributes ) {
+			if ( ! _attributesByColumnName.containsKey(attribute.getDatabaseName()) ) {
+				_attributesByColumnName.put(attribute.getDatabaseName(), attribute);
+			}
+			if ( ! _attributesByName.containsKey(attribute.getName()) ) {
+				_attributesByName.put(attribute.getName(), attribute);
+			}
 		}
 
 		//--- Initialize all the LINKS for the current entity
-		_links = new LinkedList<LinkInContext>();
+		List<LinkInContext> links = new ArrayList<LinkInContext>(entity.getLinks().size());
 //		Collection<Link> entityLinks = entity.getLinksCollection() ;
 //		for ( Link link : entityLinks ) {
 //			LinkInContext linkInCtx = new LinkInContext(this, link, _entitiesManager );
@@ -141,23 +197,76 @@ public class EntityInContext
 		for ( Link link : entity.getLinks() ) { // v 3.0.0
 //			LinkInContext linkInContext = new LinkInContext(this, link, _entitiesManager );
 			LinkInContext linkInContext = new LinkInContext(this, link, _modelInContext ); // v 3.0.0
-			_links.add(linkInContext);
+			links.add(linkInContext);
 		}
+		_links = Collections.unmodifiableList(links);
 		
 		//--- Init all the DATABASE FOREIGN KEYS  ( v 2.0.7 )
-		_foreignKeys = new LinkedList<ForeignKeyInContext>();
+		List<ForeignKeyInContext> foreignKeys = new ArrayList<ForeignKeyInContext>(entity.getDatabaseForeignKeys().size());
 //		Collection<ForeignKey> foreignKeys = entity.getForeignKeysCollection();
 //		for ( ForeignKey fk : foreignKeys ) {
 //			_foreignKeys.add( new ForeignKeyInContext(fk ) );
 //		}
 		for ( ForeignKey fk : entity.getDatabaseForeignKeys() ) {
-			_foreignKeys.add( new ForeignKeyInContext(fk ) );
+			foreignKeys.add( new ForeignKeyInContext(fk ) );
 		}
+		_foreignKeys = Collections.unmodifiableList(foreignKeys);
 		
 		//--- Post processing : import resolution
 		endOfAttributesDefinition();
 	}
 	
+	//-----------------------------------------------------------------------------------------------	
+	/**
+	 * Returns the '$env' object to be used for the current generation <br>
+	 * ( the env bound to the model if any, else the env given at construction )
+	 * @return
+	 */
+	private EnvInContext getEnv() {
+		if ( _modelInContext != null ) {
+			EnvInContext env = _modelInContext.getCurrentEnv();
+			if ( env != null ) {
+				return env ;
+			}
+		}
+		return _env ;
+	}
+	
+	//-----------------------------------------------------------------------------------------------	
+	/**
+	 * Returns the code fragments cache for the names of the current env <br>
+	 * ( shared by all the generations using the same names, whatever the env instance )
+	 * @return
+	 */
+	/* package */ FragmentsCache getFragmentsCache() {
+		List<String> envKey = FragmentsCache.envKey(getEnv());
+		synchronized ( _fragmentsCaches ) { // the entity can be shared by several generations
+			FragmentsCache fragmentsCache = _fragmentsCaches.get(envKey);
+			if ( fragmentsCache == null ) {
+				fragmentsCache = new FragmentsCache();
+				_fragmentsCaches.put(envKey, fragmentsCache);
+			}
+			return fragmentsCache ;
+		}
+	}
+	
+	//-----------------------------------------------------------------------------------------------	
+	/**
+	 * Returns the JDBC tool for this entity ( built at the first call, then shared by all the templates ) <br>
+	 * The JDBC requests only depend on the database names, so they are kept for the whole run
+	 * @param useSchema
+	 * @return
+	 */
+	/* package */ JdbcInContext getJdbcInContext(boolean useSchema) {
+		int i = ( useSchema ? 1 : 0 ) ;
+		synchronized ( _jdbcInContext ) { // the entity can be shared by several generations
+			if ( _jdbcInContext[i] == null ) {
+				_jdbcInContext[i] = new JdbcInContext(this, useSchema);
+			}
+			return _jdbcInContext[i] ;
+		}
+	}
+	
 	//-----------------------------------------------------------------------------------------------	
 	/**
 	 * Returns the Java class name without the package ( ie : "MyClass" )
@@ -170,16 +279,31 @@ public class EntityInContext
 	)
 	public String getName()
 	{
-		if ( _env != null ) {
-			StringBuilder sb = new StringBuilder();
-			sb.append( _env.getEntityClassNamePrefix() ) ; // Never null ( "" if not set )
-			sb.append( _sClassName ) ; // Never null ( "" if not set )
-			sb.append( _env.getEntityClassNameSuffix() ) ; // Never null ( "" if not set )
-			return sb.toString();
-		}
-		else {
-			return _sClassName ;
+		return getEnvNames().name ;
+	}
+	
+	/**
+	 * Returns the names for the current env ( built again only if the env or its values have changed )
+	 * @return
+	 */
+	private EnvNames getEnvNames()
+	{
+		EnvInContext env = getEnv();
+		int envVersion = ( env != null ? env.getVersion() : 0 ) ;
+		EnvNames envNames = _envNames ;
+		if ( envNames == null || envNames.env != env || envNames.envVersion != envVersion ) {
+			String name = _sClassName ;
+			if ( env != null ) {
+				StringBuilder sb = new StringBuilder();
+				sb.append( env.getEntityClassNamePrefix() ) ; // Never null ( "" if not set )
+				sb.append( _sClassName ) ; // Never null ( "" if not set )
+				sb.append( env.getEntityClassNameSuffix() ) ; // Never null ( "" if not set )
+				name = sb.toString();
+			}
+			envNames = new EnvNames(env, envVersion, name, _sPackage + "." + name);
+			_envNames = envNames ;
 		}
+		return envNames ;
 	}
 	
 	/**
@@ -221,7 +345,7 @@ public class EntityInContext
 	)
 	public String getFullName()
     {
-		return _sPackage + "." + getName();
+		return getEnvNames().fullName ;
     }
 	
 //    /**
@@ -264,14 +388,35 @@ public class EntityInContext
 		if ( columnName == null ) {
 			throw new GeneratorException("Invalid argument, 'columnName' is null");
 		}
-		for( AttributeInContext attribute : this.getAttributes() ) {
-			if ( columnName.equals( attribute.getDatabaseName() ) ) {
-				return attribute ;
-			}
+		AttributeInContext attribute = _attributesByColumnName.get(columnName); // v 3.0.0
+		if ( attribute != null ) {
+			return attribute ;
 		}
 		throw new GeneratorException("No attribute with column name '" + columnName + "'");
 	}
 	
+	//-------------------------------------------------------------------------------------
+	@VelocityMethod ( text= { 
+			"Returns the attribute associated with the given attribute name"
+		},
+		parameters = {
+			"name : the attribute's name"
+		},
+		example="$entity.attributeByName(\"firstName\")",
+		since="3.0.0"
+	)
+	@VelocityReturnType("'attribute' object")
+	public AttributeInContext getAttributeByName(String name) throws GeneratorException {
+		if ( name == null ) {
+			throw new GeneratorException("Invalid argument, 'name' is null");
+		}
+		AttributeInContext attribute = _attributesByName.get(name);
+		if ( attribute != null ) {
+			return attribute ;
+		}
+		throw new GeneratorException("No attribute with name '" + name + "'");
+	}
+	
 	//-------------------------------------------------------------------------------------
 	/**
 	 * Returns all the attributes defined for this class
@@ -343,17 +488,8 @@ public class EntityInContext
 	@VelocityReturnType("List of 'link' objects")
 	public List<LinkInContext> getSelectedLinks() 
 	{
-		if ( _links != null )
-		{
-			if ( _links.size() > 0 ) {
-				LinkedList<LinkInContext> selectedLinks = new LinkedList<LinkInContext>();
-				for ( LinkInContext link : _links ) {
-					if ( link.isSelected() ) {
-						selectedLinks.add(link) ;
-					}
-				}
-				return selectedLinks ;
-			}
+		if ( _selectedLinks != null && _selectedLinks.size() > 0 ) {
+			return _selectedLinks ; // built once ( v 3.0.0 )
 		}
 		return VOID_LINKS_LIST ;
 	}
@@ -423,87 +559,146 @@ public class EntityInContext
 		return getAttributesByAddedCriteria(c1 + c2 + c3 + c4);
 	}
 	
+	//-------------------------------------------------------------------------------------
+	/**
+	 * Returns the criteria to be checked for the given added criteria <br>
+	 * ( the 'NOT' criterion has priority if both are present for the same kind )
+	 * @param criteria
+	 * @return
+	 */
+	private int getCriteriaToCheck( int criteria ) 
+	{
+		int criteriaToCheck = 0 ;
+		criteriaToCheck |= getCriterionToCheck(criteria, Const.KEY, Const.NOT_KEY);
+		criteriaToCheck |= getCriterionToCheck(criteria, Const.TEXT, Const.NOT_TEXT);
+		criteriaToCheck |= getCriterionToCheck(criteria, Const.IN_LINKS, Const.NOT_IN_LINKS);
+		criteriaToCheck |= getCriterionToCheck(criteria, Const.IN_SELECTED_LINKS, Const.NOT_IN_SELECTED_LINKS);
+		return criteriaToCheck ;
+	}
+	private int getCriterionToCheck( int criteria, int criterion, int notCriterion ) 
+	{
+		if ( ( criteria & notCriterion ) != 0 ) {
+			return notCriterion ;
+		}
+		if ( ( criteria & criterion ) != 0 ) {
+			return criterion ;
+		}
+		return 0 ;
+	}
+
 	//-------------------------------------------------------------------------------------
 	private List<AttributeInContext> getAttributesByAddedCriteria( int criteria ) 
 	{
 		ContextLogger.log("getAttributesByAddedCriteria(" + criteria + ")" );
-		List<LinkInContext> allLinks = getLinks() ;
-		List<LinkInContext> selectedLinks = getSelectedLinks() ;
-		
-		LinkedList<AttributeInContext> selectedAttributes = new LinkedList<AttributeInContext>();
-		
-		for ( AttributeInContext attribute : _attributes ) {
-			Boolean selectedByKey  = null ;
-			Boolean selectedByText = null ;
-			Boolean selectedByLink = null ;
-			Boolean selectedBySelectedLink = null ;
-			
-			//--- IS KEY ?
-			if ( ( criteria & Const.KEY ) != 0 ) {
-				selectedByKey = attribute.isKeyElement();
-			}
-			if ( ( criteria & Const.NOT_KEY ) != 0 ) {
-				selectedByKey = ! attribute.isKeyElement();
-			}
-
-			//--- IS TEXT ?
-			if ( ( criteria & Const.TEXT ) != 0 ) {
-				selectedByText = attribute.isLongText();
-			}
-			if ( ( criteria & Const.NOT_TEXT ) != 0 ) {
-				selectedByText = ! attribute.isLongText();
-			}
-			
-			//--- IS IN LINK ?
-			if ( ( criteria & Const.IN_LINKS ) != 0 ) {
-				selectedByLink = attribute.isUsedInLinkJoinColumn( allLinks ) ;
-			}
-			if ( ( criteria & Const.NOT_IN_LINKS ) != 0 ) {
-				selectedByLink = ! attribute.isUsedInLinkJoinColumn( allLinks ) ;
-			}
-			
-			//--- IS IN SELECTED LINK ?
-			if ( ( criteria & Const.IN_SELECTED_LINKS ) != 0 ) {
-				selectedBySelectedLink = attribute.isUsedInLinkJoinColumn( selectedLinks ) ;
-			}			
-			if ( ( criteria & Const.NOT_IN_SELECTED_LINKS ) != 0 ) {
-				selectedBySelectedLink = ! attribute.isUsedInLinkJoinColumn( selectedLinks ) ;
-			}
-			
-			int criteriaCount = 0 ;
-			int selected = 0 ;
-			if ( selectedByKey != null ) {
-				criteriaCount++ ;
-				if ( selectedByKey ) selected++ ;
-			}
-			if ( selectedByText != null ) {
-				criteriaCount++ ;
-				if ( selectedByText ) selected++ ;
-			}
-			if ( selectedByLink != null ) {
-				criteriaCount++ ;
-				if ( selectedByLink ) selected++ ;
-			}
-			if ( selectedBySelectedLink != null ) {
-				criteriaCount++ ;
-				if ( selectedBySelectedLink ) selected++ ;
+		Integer key = Integer.valueOf(criteria) ;
+		synchronized ( _attributesByCriteria ) { // the entity can be shared by several generations ( v 3.0.0 )
+			List<AttributeInContext> list = _attributesByCriteria.get(key);
+			if ( list == null ) {
+				list = buildAttributesListByCriteria( getCriteriaToCheck(criteria) ) ;
+				_attributesByCriteria.put(key, list);
 			}
-
-			ContextLogger.log("getAttributesByAddedCriteria(" + criteria + ") : " + attribute.getName() + " : " + criteriaCount + " :: " + selected );
-			
-			if ( ( criteriaCount > 0 ) && ( selected == criteriaCount ) ) {	
+			return list ;
+		}
+	}
+	
+	private List<AttributeInContext> buildAttributesListByCriteria( int criteriaToCheck ) 
+	{
+		if ( criteriaToCheck == 0 || _attributesCriteria == null ) {
+			return VOID_ATTRIBUTES_LIST ;
+		}
+		List<AttributeInContext> selectedAttributes = new ArrayList<AttributeInContext>();
+		for ( int i = 0 ; i < _attributesCriteria.length ; i++ ) {
+			if ( ( _attributesCriteria[i] & criteriaToCheck ) == criteriaToCheck ) {	
 				// All criteria verified ( "AND" ) => keep this attribute
-				selectedAttributes.add(attribute) ;
+				selectedAttributes.add( _attributes.get(i) ) ;
 			}
-			
-		} // for each ...
+		}
 		if ( selectedAttributes.size() > 0 ) {
-			return selectedAttributes ;
+			return Collections.unmodifiableList(selectedAttributes) ;
 		}
-		
 		return VOID_ATTRIBUTES_LIST ;
 	}
 	
+	/**
+	 * Returns the criteria verified by the given attribute ( one of the 2 criteria for each kind )
+	 * @param attribute
+	 * @return
+	 */
+	private int buildAttributeCriteria( AttributeInContext attribute ) 
+	{
+		int criteria = 0 ;
+		criteria |= attribute.isKeyElement() ? Const.KEY : Const.NOT_KEY ;
+		criteria |= attribute.isLongText() ? Const.TEXT : Const.NOT_TEXT ;
+		criteria |= isColumnUsedInOwningSideLink( attribute.getDatabaseName(), false ) ? Const.IN_LINKS : Const.NOT_IN_LINKS ;
+		criteria |= isColumnUsedInOwningSideLink( attribute.getDatabaseName(), true ) ? Const.IN_SELECTED_LINKS : Const.NOT_IN_SELECTED_LINKS ;
+		return criteria ;
+	}
+	
+	//-------------------------------------------------------------------------------------
+	private void indexLinksByJoinColumn() 
+	{
+		for ( LinkInContext link : _links ) {
+			for ( JoinColumnInContext joinColumn : link.getJoinColumns() ) {
+				if ( link.isOwningSide() ) {
+					addLinkForColumn(_owningSideLinksByColumn, joinColumn.getName(), link);
+					if ( link.isSelected() ) {
+						addLinkForColumn(_selectedOwningSideLinksByColumn, joinColumn.getName(), link);
+					}
+				}
+				else {
+					addLinkForColumn(_inverseSideLinksByColumn, joinColumn.getName(), link);
+				}
+			}
+		}
+	}
+	private void addLinkForColumn(Map<String, List<LinkInContext>> map, String columnName, LinkInContext link) 
+	{
+		List<LinkInContext> links = map.get(columnName);
+		if ( links == null ) {
+			links = new ArrayList<LinkInContext>(2);
+			map.put(columnName, links);
+		}
+		if ( ! links.contains(link) ) { // a link can use a column only once
+			links.add(link);
+		}
+	}
+	
+	/**
+	 * Returns the 'owning side' links using the given column as 'join column' ( in the links order )
+	 * @param columnName
+	 * @return
+	 */
+	/* package */ List<LinkInContext> getOwningSideLinksUsingColumn(String columnName) 
+	{
+		List<LinkInContext> links = _owningSideLinksByColumn.get(columnName);
+		return links != null ? links : VOID_LINKS_LIST ;
+	}
+	
+	/**
+	 * Returns the 'inverse side' links using the given column as 'join column' ( in the links order )
+	 * @param columnName
+	 * @return
+	 */
+	/* package */ List<LinkInContext> getInverseSideLinksUsingColumn(String columnName) 
+	{
+		List<LinkInContext> links = _inverseSideLinksByColumn.get(columnName);
+		return links != null ? links : VOID_LINKS_LIST ;
+	}
+	
+	/**
+	 * Returns true if the given column is a 'join column' of an 'owning side' link 
+	 * @param columnName
+	 * @param selectedLinksOnly true to check only the links selected in the model
+	 * @return
+	 */
+	/* package */ boolean isColumnUsedInOwningSideLink(String columnName, boolean selectedLinksOnly) 
+	{
+		if ( selectedLinksOnly ) {
+			return _selectedOwningSideLinksByColumn.containsKey(columnName) ;
+		}
+		return _owningSideLinksByColumn.containsKey(columnName) ;
+	}
+	
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod ( text= { 
 			"Returns the attributes used in the Primary Key for this entity"
@@ -861,7 +1056,7 @@ public class EntityInContext
     		int n = _attributes.size();
         	for ( int i = 0 ; i < n ; i++ )        		
         	{
-        		AttributeInContext attribute = (AttributeInContext) _attributes.get(i);
+        		AttributeInContext attribute = _attributes.get(i);
                 if ( attribute.isLongText() ) 
                 {
                 	return true ;
@@ -980,10 +1175,10 @@ public class EntityInContext
 		since="2.1.0"
 	)
     public List<String> referencedEntityTypes(List<AttributeInContext> attributes) throws GeneratorException {
-		List<String> referencedEntityTypes = new LinkedList<String>();
+		LinkedHashSet<String> referencedEntityTypes = new LinkedHashSet<String>(); // no duplicate, original order kept ( v 3.0.0 )
 		for ( AttributeInContext attribute : attributes ) {
-			//--- Is this attribute involved in a link ?
-			for( LinkInContext link : this.getLinks()  ) {
+			//--- Is this attribute involved in a link ? ( only the links using its column, v 3.0.0 )
+			for( LinkInContext link : getOwningSideLinksUsingColumn( attribute.getDatabaseName() ) ) {
 //				if( link.isOwningSide() && link.hasJoinColumns() ) {
 //					for( String joinColumn : link.getJoinColumns() ) {
 //						if( joinColumn.equals(attribute.getDatabaseName() ) ) {						
@@ -998,17 +1193,13 @@ public class EntityInContext
 				if( link.isOwningSide() ) {
 					//--- Only if the link uses one of the given attributes
 					if ( link.usesAttribute(attribute) ) {
-						String referencedEntityType = link.getTargetEntitySimpleType() ;
-						//--- Found => add it in the list
-						if ( referencedEntityTypes.contains(referencedEntityType) == false ) {
-							//--- Not already in the list => add it
-							referencedEntityTypes.add( link.getTargetEntitySimpleType() );
-						}
+						//--- Found => add it in the list (if not already in the list)
+						referencedEntityTypes.add( link.getTargetEntitySimpleType() );
 					}
 				}
 			}
 		}
-		return referencedEntityTypes ;
+		return new LinkedList<String>(referencedEntityTypes) ;
     }
 
 	//-------------------------------------------------------------------------------------
@@ -1022,26 +1213,22 @@ public class EntityInContext
 		since="2.1.0"
 	)
     public List<String> referencedEntityTypes() throws GeneratorException {
-		List<String> referencedEntityTypes = new LinkedList<String>();
+		LinkedHashSet<String> referencedEntityTypes = new LinkedHashSet<String>(); // no duplicate, original order kept ( v 3.0.0 )
 		//--- Search all the referenced entities (from all the "owning side" links)
 		for( LinkInContext link : this.getLinks()  ) {
 			if ( link.isOwningSide() ) {
-				String referencedEntityType = link.getTargetEntitySimpleType() ;
-				//--- Found => add it in the list
-				if ( referencedEntityTypes.contains(referencedEntityType) == false ) {
-					//--- Not already in the list => add it
-					referencedEntityTypes.add( referencedEntityType );
-				}
+				//--- Found => add it in the list (if not already in the list)
+				referencedEntityTypes.add( link.getTargetEntitySimpleType() );
 			}
 		}
-		return referencedEntityTypes ;
+		return new LinkedList<String>(referencedEntityTypes) ;
     }
 
 	//-------------------------------------------------------------------------------------------------
 	//-------------------------------------------------------------------------------------------------
-	private LinkedList<AttributeInContext> buildAttributesList ( boolean bKeyAttribute ) 
+	private List<AttributeInContext> buildAttributesList ( boolean bKeyAttribute ) 
 	{
-		LinkedList<AttributeInContext> attributesList = new LinkedList<AttributeInContext>();
+		List<AttributeInContext> attributesList = new ArrayList<AttributeInContext>();
     	if ( _attributes != null )
     	{
     		int n = _attributes.size();
@@ -1054,7 +1241,7 @@ public class EntityInContext
                 }        		
         	}
     	}
-		return attributesList ;
+		return Collections.unmodifiableList(attributesList) ;
 	}
 
 	//-----------------------------------------------------------------------------------------------
@@ -1077,9 +1264,23 @@ public class EntityInContext
 		//--- Build the list of the "NON KEY" attributes
 		_nonKeyAttributes = buildAttributesList ( false ); 
 
+		//--- Selected links and criteria verified by each attribute ( v 3.0.0 )
+		List<LinkInContext> selectedLinks = new ArrayList<LinkInContext>();
+		for ( LinkInContext link : _links ) {
+			if ( link.isSelected() ) {
+				selectedLinks.add(link) ;
+			}
+		}
+		_selectedLinks = Collections.unmodifiableList(selectedLinks) ;
+		indexLinksByJoinColumn();
+		_attributesCriteria = new int[_attributes.size()];
+		for ( int i = 0 ; i < _attributesCriteria.length ; i++ ) {
+			_attributesCriteria[i] = buildAttributeCriteria( _attributes.get(i) );
+		}
+
 		//--- Duplicated short types detection
 		AmbiguousTypesDetector duplicatedTypesDetector = new AmbiguousTypesDetector(_attributes);
-		List<String> ambiguousTypes = duplicatedTypesDetector.getAmbiguousTypes();
+		Set<String> ambiguousTypes = new HashSet<String>( duplicatedTypesDetector.getAmbiguousTypes() ); // v 3.0.0
 		for ( AttributeInContext attribute : _attributes ) {
 			//--- Is this attribute's type ambiguous ?
 			if ( ambiguousTypes.contains( attribute.getFullType() ) ) {
@@ -1119,11 +1320,11 @@ public class EntityInContext
 	 * @param bLongText
 	 * @return
 	 */
-	private LinkedList<AttributeInContext> buildTextAttributesList ( boolean bLongText ) 
+	private List<AttributeInContext> buildTextAttributesList ( boolean bLongText ) 
 	{
     	if ( _attributes != null )
     	{
-			LinkedList<AttributeInContext> list = new LinkedList<AttributeInContext>();
+			List<AttributeInContext> list = new ArrayList<AttributeInContext>();
     		int n = _attributes.size();
         	for ( int i = 0 ; i < n ; i++ )        		
         	{
@@ -34,6 +34,8 @@ public class EnvInContext {
 	private String _entityClassNamePrefix = "" ;
 	private String _entityClassNameSuffix = "" ;
 	
+	private int    _version = 0 ; // incremented at each change ( v 3.0.0 )
+	
 	
 	//-------------------------------------------------------------------------------------
 	// CONSTRUCTOR
@@ -58,6 +60,7 @@ public class EnvInContext {
 			)
 	public void setEntityClassNamePrefix( String prefix ) {
 		_entityClassNamePrefix = prefix ;
+		_version++ ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -91,6 +94,7 @@ public class EnvInContext {
 			)
 	public void setEntityClassNameSuffix( String suffix ) {
 		_entityClassNameSuffix = suffix ;
+		_version++ ;
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -109,5 +113,15 @@ public class EnvInContext {
 	}
 
 	//-------------------------------------------------------------------------------------
+	/**
+	 * Returns the current version of this env ( changed each time a value is set ) <br>
+	 * Used to know if the values derived from the env are still valid
+	 * @return
+	 */
+	/* package */ int getVersion() {
+		return _version ;
+	}
+
+	//-------------------------------------------------------------------------------------
 	
 }
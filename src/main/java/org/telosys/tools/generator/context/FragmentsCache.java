@@ -0,0 +1,155 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.context;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Code fragments built by the tools ( $java, $jpa, $beanValidation ) for an entity <br>
+ *
+ * A cache instance is bound to an entity and to the names defined in '$env' ( class name prefix and suffix ) <br>
+ * ( the only env values used by the fragments, so all the generations with the same names share the cache ) <br>
+ *
+ * Key : the tool method and its arguments ( the model objects are compared by identity )
+ *
+ * @author Laurent Guerin
+ *
+ */
+/* package */ class FragmentsCache {
+
+	/**
+	 * Cache for the model objects without entity ( nothing is stored )
+	 */
+	private static final FragmentsCache NONE = new FragmentsCache() ;
+
+	private final Map<List<Object>, Object> _fragments ;
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Constructor
+	 */
+	/* package */ FragmentsCache() {
+		super();
+		_fragments = new HashMap<List<Object>, Object>();
+	}
+
+	/**
+	 * Returns the key identifying the cache to be used with the given env <br>
+	 * ( the env values used to build the fragments : class name prefix and suffix )
+	 * @param env (can be null)
+	 * @return
+	 */
+	/* package */ static List<String> envKey(EnvInContext env) {
+		if ( env != null ) {
+			return Arrays.asList(env.getEntityClassNamePrefix(), env.getEntityClassNameSuffix());
+		}
+		return Arrays.asList("", "");
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Returns the cache of the given entity for the current env
+	 * @param entity (can be null)
+	 * @return
+	 */
+	/* package */ static FragmentsCache of(EntityInContext entity) {
+		return entity != null ? entity.getFragmentsCache() : NONE ;
+	}
+
+	/**
+	 * Returns the cache of the entity owning the given attribute
+	 * @param attribute (can be null)
+	 * @return
+	 */
+	/* package */ static FragmentsCache of(AttributeInContext attribute) {
+		return attribute != null ? of(attribute.getOwnerEntity()) : NONE ;
+	}
+
+	/**
+	 * Returns the cache of the entity owning the first attribute of the given list
+	 * @param attributes (can be null)
+	 * @return
+	 */
+	/* package */ static FragmentsCache of(List<AttributeInContext> attributes) {
+		if ( attributes != null && attributes.size() > 0 ) {
+			return of(attributes.get(0));
+		}
+		return NONE ;
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Builds a key with the given parts <br>
+	 * A collection is copied ( the original collection can change after the call )
+	 * @param parts
+	 * @return
+	 */
+	/* package */ static List<Object> key(Object... parts) {
+		Object[] keyParts = new Object[parts.length];
+		for ( int i = 0 ; i < parts.length ; i++ ) {
+			if ( parts[i] instanceof Collection ) {
+				keyParts[i] = new ArrayList<Object>( (Collection<?>) parts[i] );
+			}
+			else {
+				keyParts[i] = parts[i] ;
+			}
+		}
+		return Arrays.asList(keyParts);
+	}
+
+	/**
+	 * Returns the fragment for the given key (or null if not yet built)
+	 * @param key
+	 * @return
+	 */
+	/* package */ Object get(List<Object> key) {
+		if ( this == NONE ) {
+			return null ;
+		}
+		synchronized (_fragments) {
+			return _fragments.get(key);
+		}
+	}
+
+	/**
+	 * Stores the fragment for the given key
+	 * @param key
+	 * @param fragment
+	 */
+	/* package */ void put(List<Object> key, Object fragment) {
+		if ( this == NONE ) {
+			return ;
+		}
+		synchronized (_fragments) {
+			_fragments.put(key, fragment);
+		}
+	}
+
+	/**
+	 * Returns the number of fragments stored
+	 * @return
+	 */
+	/* package */ int size() {
+		synchronized (_fragments) {
+			return _fragments.size();
+		}
+	}
+}
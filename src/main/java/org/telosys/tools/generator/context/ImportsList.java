@@ -15,8 +15,10 @@
  */
 package org.telosys.tools.generator.context;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.telosys.tools.commons.JavaTypeUtil;
 
@@ -29,7 +31,8 @@ import org.telosys.tools.commons.JavaTypeUtil;
  */
 public class ImportsList {
 
-	private LinkedList<String> _list = new LinkedList<String>() ; // List of Java "full types" to import ( eg : "java.math.BigDecimal" )
+	private List<String> _list = new ArrayList<String>() ; // List of Java "full types" to import ( eg : "java.math.BigDecimal" )
+	private Set<String>  _set  = new HashSet<String>() ; // Same types for the "declared" checks ( v 3.0.0 )
 	
 	public ImportsList() 
 	{
@@ -56,7 +59,7 @@ public class ImportsList {
 //					return true ; // Found = declared
 //				}
 //			}
-			return _list.contains(type);
+			return _set.contains(type);
 		}
 		return false ;
 	}
@@ -71,11 +74,10 @@ public class ImportsList {
 		{
 			return ;
 		}
-		if ( isDeclared(type) )
+		if ( _set.add(type) ) // not yet declared
 		{
-			return ;
+			_list.add(type);
 		}
-		_list.add(type);
 	}
 	
 //	private int shortNameCount(String shortName)
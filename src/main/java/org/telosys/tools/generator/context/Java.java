@@ -53,7 +53,14 @@ public class Java {
 			)
 	public String equalsMethod( String className, List<AttributeInContext> fieldsList ) {
 		
-		return equalsMethod( className , fieldsList, new LinesBuilder() ); 
+		FragmentsCache cache = FragmentsCache.of(fieldsList); // v 3.0.0
+		List<Object> key = FragmentsCache.key("java.equalsMethod", className, -1, fieldsList);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = equalsMethod( className , fieldsList, new LinesBuilder() ) ;
+			cache.put(key, fragment);
+		}
+		return fragment ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -72,7 +79,14 @@ public class Java {
 			)
 	public String equalsMethod( String className, List<AttributeInContext> fieldsList, int indentSpaces ) {
 		
-		return equalsMethod( className , fieldsList, new LinesBuilder(indentSpaces) ); 
+		FragmentsCache cache = FragmentsCache.of(fieldsList); // v 3.0.0
+		List<Object> key = FragmentsCache.key("java.equalsMethod", className, indentSpaces, fieldsList);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = equalsMethod( className , fieldsList, new LinesBuilder(indentSpaces) ) ;
+			cache.put(key, fragment);
+		}
+		return fragment ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -148,7 +162,14 @@ public class Java {
 			since = "2.0.7"
 				)
 	public String hashCodeMethod( String className, List<AttributeInContext> fieldsList ) {
-		return hashCodeMethod( className , fieldsList, new LinesBuilder() ); 
+		FragmentsCache cache = FragmentsCache.of(fieldsList); // v 3.0.0
+		List<Object> key = FragmentsCache.key("java.hashCodeMethod", className, -1, fieldsList);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = hashCodeMethod( className , fieldsList, new LinesBuilder() ) ;
+			cache.put(key, fragment);
+		}
+		return fragment ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -166,7 +187,14 @@ public class Java {
 			since = "2.0.7"
 				)
 	public String hashCodeMethod( String className, List<AttributeInContext> fieldsList, int indentSpaces ) {
-		return hashCodeMethod( className , fieldsList, new LinesBuilder(indentSpaces) ); 
+		FragmentsCache cache = FragmentsCache.of(fieldsList); // v 3.0.0
+		List<Object> key = FragmentsCache.key("java.hashCodeMethod", className, indentSpaces, fieldsList);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = hashCodeMethod( className , fieldsList, new LinesBuilder(indentSpaces) ) ;
+			cache.put(key, fragment);
+		}
+		return fragment ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -280,6 +308,13 @@ public class Java {
 				)
 	public List<String> imports( EntityInContext entity ) throws GeneratorException {
 		if ( entity != null ) {
+			FragmentsCache cache = FragmentsCache.of(entity); // v 3.0.0
+			List<Object> key = FragmentsCache.key("java.imports", entity);
+			@SuppressWarnings("unchecked")
+			List<String> cachedList = (List<String>) cache.get(key);
+			if ( cachedList != null ) {
+				return new LinkedList<String>(cachedList) ; // a copy : the template can modify the returned list
+			}
 			ImportsList imports = new ImportsList();
 			//--- All the attributes
 			for ( AttributeInContext attribute : entity.getAttributes() ) {
@@ -300,7 +335,8 @@ public class Java {
 			//--- Resulting list of imports
 			List<String> resultList = imports.getList();
 			java.util.Collections.sort(resultList);
-			return resultList ;
+			cache.put(key, java.util.Collections.unmodifiableList(resultList));
+			return new LinkedList<String>(resultList) ;
 		}
 		return VOID_STRINGS_LIST ;
 	}
@@ -340,6 +376,17 @@ public class Java {
 		since = "2.1.0"
 			)
 	public String toStringMethod( List<AttributeInContext> attributes, int indentSpaces ) {
+		FragmentsCache cache = FragmentsCache.of(attributes); // v 3.0.0
+		List<Object> key = FragmentsCache.key("java.toStringMethod", indentSpaces, attributes);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = buildToStringMethod( attributes, indentSpaces ) ;
+			cache.put(key, fragment);
+		}
+		return fragment ;
+	}
+	
+	private String buildToStringMethod( List<AttributeInContext> attributes, int indentSpaces ) {
 
 		LinesBuilder lb = new LinesBuilder(indentSpaces) ;
 		int indent = 1 ;
@@ -376,7 +423,14 @@ public class Java {
 			)
 	public String toStringMethod( EntityInContext entity, List<AttributeInContext> nonKeyAttributes, String embeddedIdName ) {
 			
-		return toStringMethod( entity , nonKeyAttributes, embeddedIdName, new LinesBuilder() ); 
+		FragmentsCache cache = FragmentsCache.of(entity); // v 3.0.0
+		List<Object> key = FragmentsCache.key("java.toStringMethod", entity, nonKeyAttributes, embeddedIdName, -1);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = toStringMethod( entity , nonKeyAttributes, embeddedIdName, new LinesBuilder() ) ;
+			cache.put(key, fragment);
+		}
+		return fragment ;
 	}
 		
 	//-------------------------------------------------------------------------------------
@@ -398,7 +452,14 @@ public class Java {
 			)
 	public String toStringMethod( EntityInContext entity, List<AttributeInContext> nonKeyAttributes, String embeddedIdName, int indentSpaces ) {
 		
-		return toStringMethod( entity , nonKeyAttributes, embeddedIdName, new LinesBuilder(indentSpaces) ); 
+		FragmentsCache cache = FragmentsCache.of(entity); // v 3.0.0
+		List<Object> key = FragmentsCache.key("java.toStringMethod", entity, nonKeyAttributes, embeddedIdName, indentSpaces);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = toStringMethod( entity , nonKeyAttributes, embeddedIdName, new LinesBuilder(indentSpaces) ) ;
+			cache.put(key, fragment);
+		}
+		return fragment ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -63,8 +63,8 @@ public class JdbcFactoryInContext {
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod ( 
 		text= { 
-			"Creates a new instance of the JDBC tool for the given entity",
-			""
+			"Returns the instance of the JDBC tool for the given entity",
+			"(the SQL requests are built once and reused for the same entity)"
 		},
 		parameters = {
 			"entity : the entity to be used (to create CRUD SQL requests, mapping, etc) "
@@ -79,7 +79,7 @@ public class JdbcFactoryInContext {
 		if ( entity == null ) {
 			throw new IllegalArgumentException("$jdbcFactory.getInstance($entity) : $entity is null");
 		}
-		return new JdbcInContext(entity, this.useSchema); 
+		return entity.getJdbcInContext(this.useSchema); // v 3.0.0
     }
 	
 	//-------------------------------------------------------------------------------------
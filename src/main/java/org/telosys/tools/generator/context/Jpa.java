@@ -15,8 +15,11 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
 
 import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.generator.GeneratorException;
@@ -75,10 +78,19 @@ public class Jpa {
 	//public List<String> imports(JavaBeanClass entity) 
 	public List<String> imports(EntityInContext entity) 
 	{
+		FragmentsCache cache = FragmentsCache.of(entity); // v 3.0.0
+		List<Object> key = FragmentsCache.key("jpa.imports", entity);
+		@SuppressWarnings("unchecked")
+		List<String> imports = (List<String>) cache.get(key);
+		if ( imports != null ) {
+			return new LinkedList<String>(imports) ; // a copy : the template can modify the returned list
+		}
 		ImportsList _importsJpa = buildJpaImportsList(entity) ;
 		if ( _importsJpa != null )
 		{
-			return _importsJpa.getList() ;
+			imports = Collections.unmodifiableList( _importsJpa.getList() ) ;
+			cache.put(key, imports);
+			return new LinkedList<String>(imports) ;
 		}
 		return VOID_STRINGS_LIST ;
 	}
@@ -131,6 +143,18 @@ public class Jpa {
 	)
 	//public String entityAnnotations(int iLeftMargin, JavaBeanClass entity)
 	public String entityAnnotations(int iLeftMargin, EntityInContext entity)
+    {
+		FragmentsCache cache = FragmentsCache.of(entity); // v 3.0.0
+		List<Object> key = FragmentsCache.key("jpa.entityAnnotations", iLeftMargin, entity);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = buildEntityAnnotations(iLeftMargin, entity);
+			cache.put(key, fragment);
+		}
+		return fragment ;
+    }
+
+	private String buildEntityAnnotations(int iLeftMargin, EntityInContext entity)
     {
 		AnnotationsBuilder b = new AnnotationsBuilder(iLeftMargin);
 		
@@ -169,6 +193,18 @@ public class Jpa {
 			)
 	public String linkAnnotations( int marginSize, LinkInContext entityLink, List<AttributeInContext> alreadyMappedFields )
 				throws GeneratorException {
+		FragmentsCache cache = FragmentsCache.of( entityLink != null ? entityLink.getOwnerEntity() : null ); // v 3.0.0
+		List<Object> key = FragmentsCache.key("jpa.linkAnnotations", marginSize, entityLink, alreadyMappedFields);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			fragment = buildLinkAnnotations(marginSize, entityLink, alreadyMappedFields);
+			cache.put(key, fragment);
+		}
+		return fragment ;
+	}
+
+	private String buildLinkAnnotations( int marginSize, LinkInContext entityLink, List<AttributeInContext> alreadyMappedFields )
+				throws GeneratorException {
 		
 		//Link   _link         = entityLink.getLink();
 		
@@ -623,10 +659,18 @@ public class Jpa {
 //		}
 //		return annotations;
 		
+		//--- Columns of the fields already mapped ( built once for all the join columns, v 3.0.0 )
+		Set<String> alreadyMappedColumns = null ;
+		if ( alreadyMappedFields != null ) {
+			alreadyMappedColumns = new HashSet<String>();
+			for ( AttributeInContext field : alreadyMappedFields ) {
+				alreadyMappedColumns.add( field.getDatabaseName() );
+			}
+		}
 		String[] annotations = new String[joinColumns.size()];
 		int i = 0 ;
 		for ( JoinColumnInContext jc : joinColumns ) {
-			annotations[i++] = getJoinColumnAnnotation(jc, link, alreadyMappedFields);
+			annotations[i++] = getJoinColumnAnnotation(jc, link, alreadyMappedColumns);
 		}
 		return annotations;
 	}
@@ -636,11 +680,11 @@ public class Jpa {
 	 * Build and return a single "@JoinColumn" annotation 
 	 * @param joinColumn
 	 * @param linkCardinality
-	 * @param alreadyMappedFields
+	 * @param alreadyMappedColumns
 	 * @return
 	 */
 	//private String getJoinColumnAnnotation(JoinColumn joinColumn, int linkCardinality, List<AttributeInContext> mappedFields ) {
-	private String getJoinColumnAnnotation(JoinColumnInContext joinColumn, LinkInContext link, List<AttributeInContext> alreadyMappedFields ) {
+	private String getJoinColumnAnnotation(JoinColumnInContext joinColumn, LinkInContext link, Set<String> alreadyMappedColumns ) {
 		StringBuilder annotation = new StringBuilder();
 		annotation.append( "@JoinColumn(");
 		annotation.append( "name=\"" + joinColumn.getName()+"\"" );
@@ -660,7 +704,7 @@ public class Jpa {
 			 *  - when using a shared primary key
 			 *  - when using cascaded primary keys
 			 */
-			if ( isColumnAlreadyMappedAsAField (joinColumn, alreadyMappedFields ) ) {
+			if ( isColumnAlreadyMappedAsAField (joinColumn, alreadyMappedColumns ) ) {
 				annotation.append( ", " );
 				annotation.append( "insertable=false" ); 
 				annotation.append( ", " );
@@ -675,19 +719,15 @@ public class Jpa {
 	/**
 	 * Returns TRUE if the given 'join column' is already mapped as a simple field 
 	 * @param joinColumn
-	 * @param alreadyMappedFields list of all the fields already mapped 
+	 * @param alreadyMappedColumns columns of all the fields already mapped 
 	 * @return
 	 */
-	private boolean isColumnAlreadyMappedAsAField (JoinColumnInContext joinColumn, List<AttributeInContext> alreadyMappedFields ) {
-		if ( alreadyMappedFields != null ) {
+	private boolean isColumnAlreadyMappedAsAField (JoinColumnInContext joinColumn, Set<String> alreadyMappedColumns ) {
+		if ( alreadyMappedColumns != null ) {
 			String dbColumnName = joinColumn.getName(); // ie "PUBLISHER_ID" in "BOOK"
 			if ( dbColumnName != null ) {
-				for ( AttributeInContext field : alreadyMappedFields ) {
-					if ( dbColumnName.equals( field.getDatabaseName() ) ) {
-						// Found in the list of mapped fields => already mapped as a field
-						return true ;
-					}
-				}
+				// Found in the columns of the mapped fields => already mapped as a field
+				return alreadyMappedColumns.contains( dbColumnName ) ;
 			}
 		}
 		return false ;
@@ -740,8 +780,15 @@ public class Jpa {
 	)
 	public String fieldAnnotations(int iLeftMargin, AttributeInContext attribute )
     {
-		AnnotationsForJPA annotationsJPA = new AnnotationsForJPA(attribute);
-		return annotationsJPA.getJpaAnnotations(iLeftMargin, AnnotationsForJPA.EMBEDDED_ID_FALSE );
+		FragmentsCache cache = FragmentsCache.of(attribute); // v 3.0.0
+		List<Object> key = FragmentsCache.key("jpa.fieldAnnotations", iLeftMargin, attribute);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			AnnotationsForJPA annotationsJPA = new AnnotationsForJPA(attribute);
+			fragment = annotationsJPA.getJpaAnnotations(iLeftMargin, AnnotationsForJPA.EMBEDDED_ID_FALSE );
+			cache.put(key, fragment);
+		}
+		return fragment ;
     }
 
 	//-------------------------------------------------------------------------------------------------------------
@@ -760,8 +807,15 @@ public class Jpa {
 		)
 	public String embeddedIdAnnotations(int iLeftMargin, AttributeInContext attribute )
     {
-		AnnotationsForJPA annotationsJPA = new AnnotationsForJPA(attribute);
-		return annotationsJPA.getJpaAnnotations(iLeftMargin, AnnotationsForJPA.EMBEDDED_ID_TRUE );
+		FragmentsCache cache = FragmentsCache.of(attribute); // v 3.0.0
+		List<Object> key = FragmentsCache.key("jpa.embeddedIdAnnotations", iLeftMargin, attribute);
+		String fragment = (String) cache.get(key);
+		if ( fragment == null ) {
+			AnnotationsForJPA annotationsJPA = new AnnotationsForJPA(attribute);
+			fragment = annotationsJPA.getJpaAnnotations(iLeftMargin, AnnotationsForJPA.EMBEDDED_ID_TRUE );
+			cache.put(key, fragment);
+		}
+		return fragment ;
     }
 	//-------------------------------------------------------------------------------------------------------------
 	
@@ -15,8 +15,11 @@
  */
 package org.telosys.tools.generator.context;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
 
 import org.telosys.tools.commons.JavaClassUtil;
 import org.telosys.tools.generator.GeneratorException;
@@ -64,6 +67,7 @@ public class LinkInContext {
 	private final ModelInContext   _modelInContext ;  // v 3.0.0 (replaces EntitiesManager)
 
 	private final List<JoinColumnInContext> _joinColumns ; 
+	private final Set<String>               _joinColumnsNames ; // v 3.0.0
 	private final JoinTableInContext        _joinTable ; 
 
 	//--- Added in ver 3.0.0 (to replace reference / Link )
@@ -79,6 +83,11 @@ public class LinkInContext {
 	private final FetchType      _fetchType ;
 	private final Optional       _optional ;
 	private final CascadeOptions _cascadeOptions ;
+
+	//--- Resolved on demand (the model doesn't change during a generation) v 3.0.0
+	private boolean                      _targetEntityResolved = false ;
+	private EntityInContext              _targetEntity = null ;
+	private List<LinkAttributeInContext> _attributes = null ;
 	
 	//-------------------------------------------------------------------------------------
 	/**
@@ -95,7 +104,7 @@ public class LinkInContext {
 		this._modelInContext = modelInContext ; // v 3.0.0
 		
 		//--- Build the list of "join columns"
-		_joinColumns = new LinkedList<JoinColumnInContext>();
+		List<JoinColumnInContext> joinColumns = new ArrayList<JoinColumnInContext>();
 		if ( link.getJoinColumns() != null ) {
 //			JoinColumn[] joinColumns = _link.getJoinColumns().getAll();
 //			for ( JoinColumn col : joinColumns ) {
@@ -103,9 +112,14 @@ public class LinkInContext {
 //			}
 			// ver 3.0.0
 			for ( JoinColumn joinColumn : link.getJoinColumns() ) {
-				_joinColumns.add( new JoinColumnInContext(joinColumn) ) ;
+				joinColumns.add( new JoinColumnInContext(joinColumn) ) ;
 			}
 		}
+		_joinColumns = Collections.unmodifiableList(joinColumns); // v 3.0.0
+		_joinColumnsNames = new HashSet<String>();
+		for ( JoinColumnInContext joinColumn : _joinColumns ) {
+			_joinColumnsNames.add( joinColumn.getName() );
+		}
 		
 		//--- Set the join table if any
 		if ( link.getJoinTable() != null ) {
@@ -135,6 +149,10 @@ public class LinkInContext {
 //		return this._link ;
 //	}
 	//-------------------------------------------------------------------------------------
+	/* package */ EntityInContext getOwnerEntity() {
+		return this._entity ;
+	}
+	//-------------------------------------------------------------------------------------
 //	protected Entity getTargetEntity() {
 //		return this._targetEntity ;
 //	}
@@ -337,20 +355,22 @@ public class LinkInContext {
 			}
 	)
 	@VelocityReturnType("List of '$linkAttribute' (origin-target association) ")	
-	public List<LinkAttributeInContext> getAttributes() throws GeneratorException {
-		List<LinkAttributeInContext> list = new LinkedList<LinkAttributeInContext>();
-		if ( _joinColumns != null ) {
-			for ( JoinColumnInContext jc : _joinColumns ) {
-				//--- ORIGIN attribute
-				AttributeInContext attribOrigin = _entity.getAttributeByColumnName(jc.getName());
-				//--- TARGET attribute
-				EntityInContext referencedEntity = this.getTargetEntity();
-				AttributeInContext attribTarget = referencedEntity.getAttributeByColumnName(jc.getReferencedColumnName());
-				//--- New attribute mapping in the list
-				list.add( new LinkAttributeInContext(attribOrigin, attribTarget) );
-			}
+	public synchronized List<LinkAttributeInContext> getAttributes() throws GeneratorException {
+		if ( _attributes != null ) {
+			return _attributes ; // already built ( v 3.0.0 )
 		}
-		return list ;
+		List<LinkAttributeInContext> list = new ArrayList<LinkAttributeInContext>(_joinColumns.size());
+		for ( JoinColumnInContext jc : _joinColumns ) {
+			//--- ORIGIN attribute
+			AttributeInContext attribOrigin = _entity.getAttributeByColumnName(jc.getName());
+			//--- TARGET attribute
+			EntityInContext referencedEntity = this.getTargetEntity();
+			AttributeInContext attribTarget = referencedEntity.getAttributeByColumnName(jc.getReferencedColumnName());
+			//--- New attribute mapping in the list
+			list.add( new LinkAttributeInContext(attribOrigin, attribTarget) );
+		}
+		_attributes = Collections.unmodifiableList(list) ; // kept only if all the attributes are found
+		return _attributes ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -363,14 +383,7 @@ public class LinkInContext {
 			}
 	)
 	public boolean usesAttribute(AttributeInContext attribute) {
-		if ( _joinColumns != null ) {
-			for ( JoinColumnInContext jc : _joinColumns ) {
-				if ( attribute.getDatabaseName().equals( jc.getName() ) ) {
-					return true ;
-				}
-			}
-		}
-		return false ;
+		return _joinColumnsNames.contains( attribute.getDatabaseName() ) ; // v 3.0.0
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -511,10 +524,14 @@ public class LinkInContext {
 			},
 		since = "2.1.0"
 	)
-	public EntityInContext getTargetEntity() throws GeneratorException {
+	public synchronized EntityInContext getTargetEntity() throws GeneratorException {
 		// return _entitiesManager.getEntity( getTargetTableName() );
 		// return _entitiesManager.getEntityByTableName( getTargetTableName() ); // v 3.0.0
-		return _modelInContext.getEntityByTableName( getTargetTableName() ); // v 3.0.0
+		if ( ! _targetEntityResolved ) {
+			_targetEntity = _modelInContext.getEntityByTableName( getTargetTableName() ); // v 3.0.0
+			_targetEntityResolved = true ;
+		}
+		return _targetEntity ;
 	}
 	
 	//-------------------------------------------------------------------------------------
@@ -526,7 +543,7 @@ public class LinkInContext {
 			}
 	)
 	public String getTargetEntitySimpleType() throws GeneratorException {
-		return this.getTargetEntity().getName();
+		return this.getTargetEntity().getName(); // not kept : depends on the current '$env'
 	}
 	
 	//-------------------------------------------------------------------------------------
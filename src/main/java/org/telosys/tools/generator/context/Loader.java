@@ -15,19 +15,31 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.io.Closeable;
 import java.io.File;
+import java.io.IOException;
 import java.net.MalformedURLException;
 import java.net.URL;
 import java.net.URLClassLoader;
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
 
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
+import org.telosys.tools.generator.context.doc.VelocityNoDoc;
 import org.telosys.tools.generator.context.doc.VelocityObject;
 import org.telosys.tools.generator.context.names.ContextName;
 
 /**
  * Special class used as a specific class loader <br> 
- * Used to load a specific Java Class tool in the Velocity Context
+ * Used to load a specific Java Class tool in the Velocity Context <br>
+ * 
+ * The same class loader is used for all the targets of the run ( the loader is shared ) <br>
+ * it is created again by 'checkForChanges()' if a file or a folder has changed in the 'classes' folder tree <br>
+ * ( newest 'last modified' date of all the files and sub-folders, v 3.0.0 ) <br>
+ * A replaced class loader is kept open until the end of the run ( its classes can still be in use )
  * 
  * @author Laurent GUERIN
  *
@@ -44,7 +56,7 @@ import org.telosys.tools.generator.context.names.ContextName;
 		since = ""
  )
 //-------------------------------------------------------------------------------------
-public class Loader {
+public class Loader implements Closeable {
 
 	private final static String CLASSES = "classes" ;
 	
@@ -57,6 +69,14 @@ public class Loader {
 
 	private final String templatesFolderFullPath ; // Full templates full path with bundle name
 	
+	//--- Class loader shared by all the targets ( v 3.0.0 )
+	private ClassLoader             classLoader = null ;
+	private long                    classesFolderLastModified = 0 ;
+	private int                     classLoadersCount = 0 ;
+	private final List<ClassLoader> replacedClassLoaders = new LinkedList<ClassLoader>(); // closed at the end of the run
+	private final Map<String, Class<?>> loadedClasses     = new HashMap<String, Class<?>>();
+	private final Map<Class<?>, Object> sharedInstances   = new HashMap<Class<?>, Object>(); // for the stateless tools
+	
 	/**
 	 * Constructor ( ver 2.1.0 )
 	 * @param templatesFolderFullPath
@@ -161,6 +181,22 @@ public class Loader {
 	{
 		Class<?> javaClass = loadJavaClassFromFile( javaClassName ) ;
 		
+		//--- Stateless tool : the same instance for all the calls ( v 3.0.0 )
+		if ( javaClass.isAnnotationPresent(StatelessTool.class) ) {
+			synchronized (this) {
+				Object instance = sharedInstances.get(javaClass);
+				if ( instance == null ) {
+					instance = createInstance(javaClass, javaClassName);
+					sharedInstances.put(javaClass, instance);
+				}
+				return instance ;
+			}
+		}
+		return createInstance(javaClass, javaClassName) ;
+	}
+	
+	private Object createInstance(Class<?> javaClass, String javaClassName ) throws GeneratorException
+	{
 		//--- New instance
 		Object instance = null ;
 		try {
@@ -178,30 +214,125 @@ public class Loader {
 	}
 	
 	//--------------------------------------------------------------------------------------------------------------
-	private Class<?> loadJavaClassFromFile( String javaClassName ) throws GeneratorException
+	private synchronized Class<?> loadJavaClassFromFile( String javaClassName ) throws GeneratorException
 	{
-		ClassLoader currentClassLoader = this.getClass().getClassLoader();
-		File file = getClassesFolderAsFile();
-		
-		Class<?> javaClass = null ;
-		
+		Class<?> javaClass = loadedClasses.get(javaClassName) ;
+		if ( javaClass != null ) {
+			return javaClass ;
+		}
 		try {
-		    // Convert File to URL
-		    URL url = file.toURI().toURL();    //  "file:/c:/templatesFolder/"
-		    URL[] urls = new URL[]{url}; // the URLs from which to load classes and resources
-
-		    // Create a new class loader with the given directory and the current class loader as parent class loader
-		    ClassLoader classLoader = new URLClassLoader(urls, currentClassLoader );
-
 		    // Load the class ( should be located in "file:/c:/templatesFolder/" )
-		    javaClass = classLoader.loadClass(javaClassName);
-		} catch (MalformedURLException e) {
-			throw new GeneratorException("Cannot load class " + javaClassName + " (MalformedURLException)", e);
+		    javaClass = getClassLoader().loadClass(javaClassName);
 		} catch (ClassNotFoundException e) {
 			throw new GeneratorException("Cannot load class " + javaClassName + " (ClassNotFoundException)", e);
 		}
-		
+		loadedClasses.put(javaClassName, javaClass);
 		return javaClass ;
 	}
 	
+	/**
+	 * Returns the class loader for the 'classes' folder <br>
+	 * ( created at the first call, then created again only after a change detected by 'checkForChanges()' )
+	 * @return
+	 * @throws GeneratorException
+	 */
+	private ClassLoader getClassLoader() throws GeneratorException
+	{
+		if ( classLoader == null ) {
+			File file = getClassesFolderAsFile();
+			long lastModified = getLastModified(file) ; // 0 if the folder doesn't exist
+			try {
+			    // Convert File to URL
+			    URL url = file.toURI().toURL();    //  "file:/c:/templatesFolder/"
+			    URL[] urls = new URL[]{url}; // the URLs from which to load classes and resources
+	
+			    // Create a new class loader with the given directory and the current class loader as parent class loader
+			    classLoader = new URLClassLoader(urls, this.getClass().getClassLoader() );
+			} catch (MalformedURLException e) {
+				throw new GeneratorException("Cannot create class loader for " + file + " (MalformedURLException)", e);
+			}
+			classesFolderLastModified = lastModified ;
+			classLoadersCount++ ;
+		}
+		return classLoader ;
+	}
+	
+	/**
+	 * Returns the newest 'last modified' date in the given folder tree <br>
+	 * ( a class recompiled in a package changes only its own file date, not the root folder date )
+	 * @param folder
+	 * @return
+	 */
+	private long getLastModified(File folder) {
+		long lastModified = folder.lastModified() ;
+		File[] files = folder.listFiles();
+		if ( files != null ) {
+			for ( File f : files ) {
+				long t = f.isDirectory() ? getLastModified(f) : f.lastModified() ;
+				if ( t > lastModified ) {
+					lastModified = t ;
+				}
+			}
+		}
+		return lastModified ;
+	}
+	
+	//--------------------------------------------------------------------------------------------------------------
+	/**
+	 * Checks if a file or a folder has changed in the 'classes' folder tree since the creation of the class loader <br>
+	 * If changed, the next classes will be loaded by a new class loader <br>
+	 * ( called once per target, not for each 'loadClass' or 'newInstance' call ) 
+	 * @return true if the class loader has been replaced
+	 */
+	@VelocityNoDoc
+	public synchronized boolean checkForChanges() {
+		if ( classLoader == null ) {
+			return false ; // nothing loaded yet
+		}
+		long lastModified = getLastModified(getClassesFolderAsFile()) ;
+		if ( lastModified == classesFolderLastModified ) {
+			return false ;
+		}
+		//--- The classes and the stateless instances of the replaced loader can still be used by other targets
+		replacedClassLoaders.add(classLoader);
+		classLoader = null ;
+		loadedClasses.clear();
+		sharedInstances.clear();
+		return true ;
+	}
+	
+	private void closeClassLoader(ClassLoader loader) {
+		if ( loader instanceof Closeable ) { // URLClassLoader is 'Closeable' since Java 7
+			try {
+				((Closeable) loader).close();
+			} catch (IOException e) {
+				// nothing to do : the loader is no longer used
+			}
+		}
+	}
+	
+	/**
+	 * Returns the number of class loaders created since the creation of this object
+	 * @return
+	 */
+	/* package */ synchronized int getClassLoadersCount() {
+		return classLoadersCount ;
+	}
+	
+	//--------------------------------------------------------------------------------------------------------------
+	/**
+	 * Closes the class loader and the replaced class loaders ( called at the end of the run )
+	 */
+	@VelocityNoDoc
+	public synchronized void close() {
+		for ( ClassLoader loader : replacedClassLoaders ) {
+			closeClassLoader(loader);
+		}
+		replacedClassLoaders.clear();
+		closeClassLoader(classLoader);
+		classLoader = null ;
+		loadedClasses.clear();
+		sharedInstances.clear();
+	}
+	
 }
@@ -15,15 +15,20 @@
  */
 package org.telosys.tools.generator.context;
 
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.HashMap;
 import java.util.LinkedList;
 import java.util.List;
 import java.util.Map;
 
+import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
+import org.telosys.tools.generator.context.doc.VelocityNoDoc;
 import org.telosys.tools.generator.context.doc.VelocityObject;
 import org.telosys.tools.generator.context.names.ContextName;
+import org.telosys.tools.generator.engine.GeneratorContextException;
 import org.telosys.tools.generic.model.Entity;
 import org.telosys.tools.generic.model.Model;
 
@@ -42,12 +47,19 @@ import org.telosys.tools.generic.model.Model;
 //-------------------------------------------------------------------------------------
 public class ModelInContext
 {
-	private final List<EntityInContext>       _allEntities ;
-	private final Map<String,EntityInContext> _entitiesByTableName ;
-	private final Map<String,EntityInContext> _entitiesByClassName ;
+	//--- Entities built on first use ( v 3.0.0 )
+	private final List<Entity>                _rawEntities ; // the original model order
+	private final EntityInContext[]           _entities ; // same index as the raw entity
+	private final Map<String,Integer>         _entitiesByTableName ; // entity index
+	private final Map<String,Integer>         _entitiesByClassName ; // entity index
+	private final String                      _entitiesPackage ;
+	private List<EntityInContext>             _allEntities = null ; // built when all the entities are requested
 	private final int      _databaseId ;
 	private final String   _databaseProductName ;
 	
+	private final EnvInContext              _defaultEnv ; // env used if no env is bound (can be null)
+	private final ThreadLocal<EnvInContext> _boundEnv = new ThreadLocal<EnvInContext>(); // env of the current generation
+	
 	//-------------------------------------------------------------------------------------
 	/**
 	 * Constructor
@@ -61,25 +73,24 @@ public class ModelInContext
 		if ( model == null ) throw new GeneratorException("Model is null");
 //		if ( entitiesManager == null ) throw new GeneratorException("EntitiesBuilder is null");
 		
+		_defaultEnv = env ;
+		
 		//--- All the entities (the original model order is kept)
 //		_allEntities = entitiesManager.getAllEntities();
-		_allEntities = new LinkedList<EntityInContext>(); // v 3.0.0
-		for ( Entity entity : model.getEntities() ) { // v 3.0.0
-			_allEntities.add( new EntityInContext(entity, entitiesPackage, this, env) );// v 3.0.0
-		}
+		// Each EntityInContext is built on first use ( v 3.0.0 )
+		_entitiesPackage = entitiesPackage ;
+		_rawEntities = new ArrayList<Entity>(model.getEntities()); // random access
+		_entities = new EntityInContext[_rawEntities.size()];
 		
-		//--- Entities by TABLE NAME
-		_entitiesByTableName = new HashMap<String,EntityInContext>();
-		for ( EntityInContext entity : _allEntities ) {
+		//--- Entities by TABLE NAME and by CLASS NAME ( from the raw model, no attribute built )
+		_entitiesByTableName = new HashMap<String,Integer>(_rawEntities.size() * 2);
+		_entitiesByClassName = new HashMap<String,Integer>(_rawEntities.size() * 2);
+		for ( int i = 0 ; i < _rawEntities.size() ; i++ ) {
+			Entity entity = _rawEntities.get(i);
 			// The table name is unique 
-			_entitiesByTableName.put(entity.getDatabaseTable(), entity);
-		}
-		
-		//--- Entities by CLASS NAME
-		_entitiesByClassName = new HashMap<String,EntityInContext>();
-		for ( EntityInContext entity : _allEntities ) {
+			_entitiesByTableName.put(StrUtil.notNull(entity.getDatabaseTable()), i);
 			// The class name is supposed to be unique 
-			_entitiesByClassName.put(entity.getName(), entity);
+			_entitiesByClassName.put(buildClassName(entity, env), i);
 		}
 		
 		if ( model.getDatabaseId() != null ) {
@@ -96,6 +107,75 @@ public class ModelInContext
 		}
 	}
 	
+	/**
+	 * Returns the class name of the given entity with the prefix and suffix of the given env <br>
+	 * ( same as 'EntityInContext.getName()' for this env )
+	 * @param entity
+	 * @param env
+	 * @return
+	 */
+	private static String buildClassName(Entity entity, EnvInContext env) {
+		if ( env != null ) {
+			StringBuilder sb = new StringBuilder();
+			sb.append( env.getEntityClassNamePrefix() ) ;
+			sb.append( entity.getClassName() ) ;
+			sb.append( env.getEntityClassNameSuffix() ) ;
+			return sb.toString();
+		}
+		return entity.getClassName() ;
+	}
+	
+	/**
+	 * Returns the entity at the given index ( built at the first call ) <br>
+	 * The entity is built outside the lock, so several entities can be built at the same time <br>
+	 * ( see ModelInContextBuilder ), if the same entity is built twice the first one is kept
+	 * @param index
+	 * @return
+	 */
+	/* package */ EntityInContext getEntity(int index) {
+		synchronized (this) {
+			if ( _entities[index] != null ) {
+				return _entities[index] ;
+			}
+		}
+		EntityInContext entity ;
+		try {
+			entity = new EntityInContext(_rawEntities.get(index), _entitiesPackage, this, _defaultEnv);
+		} catch (GeneratorException e) {
+			throw new GeneratorContextException("Cannot build entity '" 
+					+ _rawEntities.get(index).getClassName() + "' : " + e.getMessage() );
+		}
+		synchronized (this) {
+			if ( _entities[index] == null ) {
+				_entities[index] = entity ;
+			}
+			return _entities[index] ;
+		}
+	}
+	
+	/**
+	 * Returns the entity at the given index (or null if the index is null)
+	 * @param index
+	 * @return
+	 */
+	private EntityInContext getEntity(Integer index) {
+		return index != null ? getEntity(index.intValue()) : null ;
+	}
+	
+	/**
+	 * Returns the number of entities built since the creation of the model
+	 * @return
+	 */
+	/* package */ synchronized int getNumberOfEntitiesBuilt() {
+		int n = 0 ;
+		for ( EntityInContext entity : _entities ) {
+			if ( entity != null ) {
+				n++ ;
+			}
+		}
+		return n ;
+	}
+	
 	//-------------------------------------------------------------------------------------
 	@VelocityMethod(
 		text={	
@@ -104,7 +184,7 @@ public class ModelInContext
 	)
     public int getNumberOfEntities()
     {
-        return _allEntities.size() ;
+        return _rawEntities.size() ;
     }
 
 	//-------------------------------------------------------------------------------------
@@ -116,7 +196,21 @@ public class ModelInContext
     //public List<JavaBeanClass> getAllEntites()
     public List<EntityInContext> getAllEntites()
     {
-		return _allEntities ;
+		synchronized (this) {
+			if ( _allEntities != null ) {
+				return _allEntities ;
+			}
+		}
+		List<EntityInContext> allEntities = new ArrayList<EntityInContext>(_entities.length);
+		for ( int i = 0 ; i < _entities.length ; i++ ) {
+			allEntities.add( getEntity(i) );
+		}
+		synchronized (this) {
+			if ( _allEntities == null ) {
+				_allEntities = Collections.unmodifiableList(allEntities); // random access, immutable
+			}
+			return _allEntities ;
+		}
     }
 	
 	//---------------------------------------------------------------------------------------------------
@@ -131,7 +225,7 @@ public class ModelInContext
 		List<EntityInContext> selectedEntities = new LinkedList<EntityInContext>();
 		if ( entitiesNames != null ) {
 			for ( String entityName : entitiesNames ) {
-				EntityInContext entity = _entitiesByClassName.get(entityName);
+				EntityInContext entity = getEntity( _entitiesByClassName.get(entityName) );
 				if ( entity != null ) {
 					selectedEntities.add(entity);
 				}
@@ -156,7 +250,7 @@ public class ModelInContext
     //public JavaBeanClass getEntityByTableName( String name )
     public EntityInContext getEntityByTableName( String name )
     {
-		return _entitiesByTableName.get(name);
+		return getEntity( _entitiesByTableName.get(name) );
     }
 
 	//-------------------------------------------------------------------------------------
@@ -172,7 +266,7 @@ public class ModelInContext
     //public JavaBeanClass getEntityByClassName( String name )
     public EntityInContext getEntityByClassName( String entityClassName )
     {
-		return _entitiesByClassName.get(entityClassName);
+		return getEntity( _entitiesByClassName.get(entityClassName) );
     }
 
 	//-------------------------------------------------------------------------------------
@@ -187,7 +281,7 @@ public class ModelInContext
 	)
     public boolean hasEntityWithTableName( String name )
     {
-		return ( _entitiesByTableName.get(name) != null ) ;
+		return _entitiesByTableName.containsKey(name) ;
     }
 
 	//-------------------------------------------------------------------------------------
@@ -202,7 +296,7 @@ public class ModelInContext
 	)
     public boolean hasEntityWithClassName( String name )
     {
-		return ( _entitiesByClassName.get(name) != null ) ;
+		return _entitiesByClassName.containsKey(name) ;
     }
 
 	//-------------------------------------------------------------------------------------
@@ -231,4 +325,42 @@ public class ModelInContext
 		return _databaseProductName ;
     }
 
-}
\ No newline at end of file
+	//-------------------------------------------------------------------------------------
+	/**
+	 * Binds the given '$env' object to the current thread <br>
+	 * All the entities of this model will use it until 'restoreEnv' is called <br>
+	 * ( the model can be shared by several generations, each one with its own '$env' )
+	 * @param env
+	 * @return the previous env bound to the current thread (or null if none)
+	 */
+	@VelocityNoDoc
+	public EnvInContext bindEnv(EnvInContext env) {
+		EnvInContext previous = _boundEnv.get();
+		_boundEnv.set(env);
+		return previous ;
+	}
+
+	/**
+	 * Restores the env previously bound to the current thread 
+	 * @param previous the value returned by 'bindEnv' 
+	 */
+	@VelocityNoDoc
+	public void restoreEnv(EnvInContext previous) {
+		if ( previous != null ) {
+			_boundEnv.set(previous);
+		}
+		else {
+			_boundEnv.remove();
+		}
+	}
+
+	/**
+	 * Returns the env to be used by the entities for the current generation
+	 * @return the env (or null if none)
+	 */
+	/* package */ EnvInContext getCurrentEnv() {
+		EnvInContext env = _boundEnv.get();
+		return env != null ? env : _defaultEnv ;
+	}
+
+}
@@ -0,0 +1,160 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.context;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Builder for a model context with all its entities built in advance, using several threads <br>
+ * ( useful for very large models, else the entities are just built on first use ) <br>
+ *
+ * Phase 1 : all the entities are built in parallel ( attributes, links, foreign keys, imports ) <br>
+ * Phase 2 : the target entity of each link is resolved ( needs all the entities ) <br>
+ *
+ * Each entity is stored at the index of the original entity, so the order of 'getAllEntites()' <br>
+ * is the same as with a sequential build.
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class ModelInContextBuilder {
+
+	private final int       _parallelism ;
+	private ExecutorService _executorService = null ;
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Constructor
+	 * @param parallelism the number of threads ( 1 : entities built on first use, as with the ModelInContext constructor )
+	 */
+	public ModelInContextBuilder(int parallelism) {
+		super();
+		if ( parallelism < 1 ) {
+			throw new IllegalArgumentException("Invalid parallelism (" + parallelism + ")");
+		}
+		_parallelism = parallelism ;
+	}
+
+	/**
+	 * Set the executor used to build the entities <br>
+	 * If not set, a thread pool with 'parallelism' threads is created for each build <br>
+	 * The given executor is never shutdown by the builder
+	 * @param executorService (or null to reset)
+	 */
+	public void setExecutorService(ExecutorService executorService) {
+		_executorService = executorService ;
+	}
+
+	//-----------------------------------------------------------------------------------------------
+	/**
+	 * Builds the model context for the given model
+	 * @param model
+	 * @param entitiesPackage
+	 * @param env (can be null)
+	 * @return
+	 * @throws GeneratorException
+	 */
+	public ModelInContext build(Model model, String entitiesPackage, EnvInContext env) throws GeneratorException {
+		final ModelInContext modelInContext = new ModelInContext(model, entitiesPackage, env);
+		int n = modelInContext.getNumberOfEntities() ;
+		if ( _parallelism > 1 && n > 1 ) {
+			final boolean ownExecutor = ( _executorService == null ) ;
+			ExecutorService executorService = ownExecutor ? Executors.newFixedThreadPool(_parallelism) : _executorService ;
+			try {
+				//--- Phase 1 : entities
+				List<Callable<Object>> tasks = new ArrayList<Callable<Object>>(n);
+				for ( int i = 0 ; i < n ; i++ ) {
+					final int index = i ;
+					tasks.add( new Callable<Object>() {
+						public Object call() {
+							return modelInContext.getEntity(index);
+						}
+					});
+				}
+				runAll(executorService, tasks);
+
+				//--- Phase 2 : links
+				tasks.clear();
+				for ( int i = 0 ; i < n ; i++ ) {
+					final EntityInContext entity = modelInContext.getEntity(i);
+					tasks.add( new Callable<Object>() {
+						public Object call() throws GeneratorException {
+							for ( LinkInContext link : entity.getLinks() ) {
+								link.getTargetEntity();
+							}
+							return entity ;
+						}
+					});
+				}
+				runAll(executorService, tasks);
+			}
+			finally {
+				if ( ownExecutor ) {
+					executorService.shutdown();
+				}
+			}
+			modelInContext.getAllEntites(); // all the entities are already built
+		}
+		return modelInContext ;
+	}
+
+	/**
+	 * Runs all the given tasks and waits for the end of each one
+	 * @param executorService
+	 * @param tasks
+	 * @throws GeneratorException
+	 */
+	private void runAll(ExecutorService executorService, List<Callable<Object>> tasks) throws GeneratorException {
+		List<Future<Object>> futures ;
+		try {
+			futures = executorService.invokeAll(tasks);
+		} catch (InterruptedException e) {
+			Thread.currentThread().interrupt();
+			throw new GeneratorException("Model context build interrupted", e);
+		}
+		for ( Future<Object> future : futures ) {
+			try {
+				future.get();
+			} catch (InterruptedException e) {
+				Thread.currentThread().interrupt();
+				throw new GeneratorException("Model context build interrupted", e);
+			} catch (ExecutionException e) {
+				Throwable cause = e.getCause();
+				if ( cause instanceof GeneratorException ) {
+					throw (GeneratorException) cause ;
+				}
+				else if ( cause instanceof RuntimeException ) {
+					throw (RuntimeException) cause ;
+				}
+				else if ( cause instanceof Error ) {
+					throw (Error) cause ;
+				}
+				else {
+					throw new GeneratorException("Cannot build model context", cause);
+				}
+			}
+		}
+	}
+}
@@ -16,10 +16,7 @@
 package org.telosys.tools.generator.context;
 
 import org.telosys.tools.commons.FileUtil;
-import org.telosys.tools.commons.StrUtil;
-import org.telosys.tools.commons.config.ConfigDefaults;
 import org.telosys.tools.commons.variables.Variable;
-import org.telosys.tools.commons.variables.VariablesManager;
 import org.telosys.tools.generator.context.doc.VelocityMethod;
 import org.telosys.tools.generator.context.doc.VelocityNoDoc;
 import org.telosys.tools.generator.context.doc.VelocityObject;
@@ -56,6 +53,10 @@ public class Target
 
 	private final String    entityClassName ;
 
+	//--- Output paths computed on demand ( v 3.0.0 )
+	private String          outputFileNameInProject = null ;
+	private String[]        outputFileNameInFileSystem = null ; // { destination folder, full path }
+
 	/**
 	 * Constructor for a generation with an entity and a template
 	 * @param targetDefinition
@@ -71,12 +72,9 @@ public class Target
 		//--- Specialization for the given entity
 		this.entityClassName = entity.getClassName() ;
 
-		//--- Replace the "$" variables in _sFile and _sFolder
-		VariablesManager variablesManager = new VariablesManager( variables ); 
-		this.file   = replaceVariables( targetDefinition.getFile(),   this.entityClassName, variablesManager );
-		
-		variablesManager.transformPackageVariablesToDirPath(); // for each variable ${XXXX_PKG} : replace '.' by '/' 
-		this.folder = replaceVariables( targetDefinition.getFolder(), this.entityClassName, variablesManager );
+		//--- Replace the "$" variables in _sFile and _sFolder ( patterns compiled once for all the entities )
+		this.file   = targetDefinition.getFilePattern(variables).expand(this.entityClassName);
+		this.folder = targetDefinition.getFolderPattern(variables).expand(this.entityClassName); // ${XXXX_PKG} : '.' => '/'
 	}
 
 	/**
@@ -94,11 +92,8 @@ public class Target
 		this.entityClassName = "" ;
 
 		//--- Replace the "$" variables in _sFile and _sFolder
-		VariablesManager variablesManager = new VariablesManager( variables ); 		
-		this.file   = replaceVariables( targetDefinition.getFile(),   "", variablesManager );
-		
-		variablesManager.transformPackageVariablesToDirPath(); // for each variable ${XXXX_PKG} : replace '.' by '/' 
-		this.folder = replaceVariables( targetDefinition.getFolder(), "", variablesManager );
+		this.file   = targetDefinition.getFilePattern(variables).expand("");
+		this.folder = targetDefinition.getFolderPattern(variables).expand(""); // ${XXXX_PKG} : '.' => '/'
 	}
 
 	//-------------------------------------------------------------------------------------
@@ -221,42 +216,6 @@ public class Target
 		return s2 ;
 	}
 	
-	//-----------------------------------------------------------------------
-	private String replaceVariables( String originalString, String sBeanClass, VariablesManager varmanager ) {
-		//--- Replace the generic name "${BEANNAME}" if any
-		String s1 = replace(originalString, ConfigDefaults.BEANNAME, sBeanClass);
-
-		//--- Replace the global project variables if any
-		if ( varmanager != null ) {
-			return varmanager.replaceVariables(s1);
-		}
-		else {
-			return s1 ;
-		}
-	}
-	
-	//-----------------------------------------------------------------------
-    private String replace(String sOriginal, String sSymbolicVar, String sValue) 
-    {
-    	String s   = "${" + sSymbolicVar + "}" ;
-    	String sUC = "${" + sSymbolicVar + "_UC}" ;
-    	String sLC = "${" + sSymbolicVar + "_LC}" ;
-    	
-		if ( sOriginal.indexOf(s) >= 0 )
-		{
-			return StrUtil.replaceVar(sOriginal, s, sValue);
-		}
-		else if ( sOriginal.indexOf(sUC) >= 0 )
-		{
-			return StrUtil.replaceVar(sOriginal, sUC, sValue.toUpperCase());
-		}
-		else if ( sOriginal.indexOf(sLC) >= 0 )
-		{
-			return StrUtil.replaceVar(sOriginal, sLC, sValue.toLowerCase());
-		}
-		return sOriginal ;
-    }
-    
 	/**
 	 * Returns the full path of the of the generated file in the project<br>
 	 * by combining the folder and the basic file name
@@ -265,6 +224,14 @@ public class Target
 	 */
 	@VelocityNoDoc
 	public String getOutputFileNameInProject()
+	{
+		if ( outputFileNameInProject == null ) {
+			outputFileNameInProject = buildOutputFileNameInProject();
+		}
+		return outputFileNameInProject ;
+	}
+
+	private String buildOutputFileNameInProject()
 	{
 		String s = null ;
 		if ( folder.endsWith("/") || folder.endsWith("\\") )
@@ -292,9 +259,18 @@ public class Target
 	@VelocityNoDoc
 	public String getOutputFileNameInFileSystem(String destinationFolderFullPath)
 	{
+		//--- Same destination as the previous call => same path ( called several times for each target )
+		String[] cached = outputFileNameInFileSystem ;
+		if ( cached != null && cached[0].equals(destinationFolderFullPath) ) {
+			return cached[1] ;
+		}
 		String fileNameInProject = getOutputFileNameInProject() ;
 //		return buildFullPath(projectLocation, fileNameInProject ) ;
-		return FileUtil.buildFilePath(destinationFolderFullPath, fileNameInProject) ; // v 3.0.0
+		String fullPath = FileUtil.buildFilePath(destinationFolderFullPath, fileNameInProject) ; // v 3.0.0
+		if ( destinationFolderFullPath != null ) {
+			outputFileNameInFileSystem = new String[] { destinationFolderFullPath, fullPath } ;
+		}
+		return fullPath ;
 	}
 	
 // removed in v 3.0.0	
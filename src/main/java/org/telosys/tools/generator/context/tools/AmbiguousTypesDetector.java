@@ -15,8 +15,11 @@
  */
 package org.telosys.tools.generator.context.tools;
 
+import java.util.HashMap;
+import java.util.LinkedHashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Map;
 
 import org.telosys.tools.commons.JavaClassUtil;
 import org.telosys.tools.generator.context.AttributeInContext;
@@ -24,7 +27,8 @@ import org.telosys.tools.generator.context.AttributeInContext;
 public class AmbiguousTypesDetector {
 
 	//private final List<JavaBeanClassAttribute> _attributes ;
-	private final List<String>                 _fullTypesList ;
+	private final LinkedHashSet<String>        _fullTypesList ; // registration order kept ( v 3.0.0 )
+	private final Map<String, Integer>         _shortNamesCount ; // short name => number of full types ( v 3.0.0 )
 
 	//-----------------------------------------------------------------------------------------------
 	/**
@@ -36,7 +40,8 @@ public class AmbiguousTypesDetector {
 		super();
 		//this._attributes = attributes;
 		
-		_fullTypesList = new LinkedList<String>();
+		_fullTypesList = new LinkedHashSet<String>();
+		_shortNamesCount = new HashMap<String, Integer>();
 		for ( AttributeInContext attribute : attributes ) {
 			if ( attribute.isPrimitiveType() != true ) {
 				registerType( attribute.getFullType() ); // "java.math.BigDecimal", "java.util.Date", ...
@@ -50,7 +55,8 @@ public class AmbiguousTypesDetector {
 	 */
 	public AmbiguousTypesDetector() {
 		super();
-		_fullTypesList = new LinkedList<String>();
+		_fullTypesList = new LinkedHashSet<String>();
+		_shortNamesCount = new HashMap<String, Integer>();
 	}
 	
 	//-----------------------------------------------------------------------------------------------
@@ -62,8 +68,13 @@ public class AmbiguousTypesDetector {
 	public void registerType(String fullType)
 	{
 		// Store it only if not yet present in the list
-		if ( _fullTypesList.contains(fullType) == false ) {
-			_fullTypesList.add(fullType);
+		if ( _fullTypesList.add(fullType) ) {
+			String shortName = JavaClassUtil.shortName(fullType);
+			// count only the types with a package ( eg "java.util.Date" for "Date" )
+			if ( fullType.endsWith( "." + shortName ) ) {
+				Integer count = _shortNamesCount.get(shortName);
+				_shortNamesCount.put(shortName, count != null ? count + 1 : 1 );
+			}
 		}
 	}
 	
@@ -116,14 +127,7 @@ public class AmbiguousTypesDetector {
 	 */
 	private int shortNameCount(String shortName)
 	{
-		int count = 0 ;
-		String end = "." + shortName ;
-		for ( String s : _fullTypesList ) {
-			if ( s.endsWith(end))
-			{
-				count++ ;
-			}
-		}
-		return count ;
+		Integer count = _shortNamesCount.get(shortName);
+		return count != null ? count : 0 ;
 	}
 }
@@ -15,7 +15,8 @@
  */
 package org.telosys.tools.generator.context.tools;
 
-import java.util.LinkedList;
+import java.util.ArrayList;
+import java.util.Collections;
 import java.util.List;
 
 import org.telosys.tools.generator.context.AttributeInContext;
@@ -23,6 +24,7 @@ import org.telosys.tools.generator.context.EntityInContext;
 
 /**
  * Each instance contains the JDBC SQL requests for a given entity with its mapping
+ * ( immutable : the same instance is shared by all the templates using the entity )
  * 
  * @author Laurent GUERIN
  *
@@ -118,136 +120,112 @@ public class JdbcRequests {
 
 
 	private List<AttributeInContext> buildAttributesForPrimaryKey() {
-        List<AttributeInContext> list = new LinkedList<AttributeInContext>();
+        List<AttributeInContext> list = new ArrayList<AttributeInContext>(entity.getKeyAttributesCount());
         for ( AttributeInContext attribute : entity.getAttributes() ) {
         	if ( attribute.isKeyElement() ) {
             	list.add(attribute);
         	}
         }
-        return list ;
+        return Collections.unmodifiableList(list) ;
     }
     
     private List<AttributeInContext> buildAttributesForSelect() {
-        List<AttributeInContext> list = new LinkedList<AttributeInContext>();
-        for ( AttributeInContext attribute : entity.getAttributes() ) {
-        	list.add(attribute);
-        }
-        return list ;
+        return Collections.unmodifiableList( new ArrayList<AttributeInContext>(entity.getAttributes()) ) ;
     }
 
     private List<AttributeInContext> buildAttributesForInsert() {
-        List<AttributeInContext> list = new LinkedList<AttributeInContext>();
+        List<AttributeInContext> list = new ArrayList<AttributeInContext>(entity.getAttributesCount());
         for ( AttributeInContext attribute : entity.getAttributes() ) {
         	// Do not use "auto-incremented" attributes
         	if ( attribute.isAutoIncremented() == false ) {
             	list.add(attribute);
         	}
         }
-        return list ;
+        return Collections.unmodifiableList(list) ;
     }
     
     private List<AttributeInContext> buildAttributesForUpdate() {
-        List<AttributeInContext> list = new LinkedList<AttributeInContext>();
+        List<AttributeInContext> list = new ArrayList<AttributeInContext>(entity.getAttributesCount());
         for ( AttributeInContext attribute : entity.getAttributes() ) {
         	// Do not use "primary key" and "auto-incremented" attributes
         	if ( attribute.isKeyElement() == false && attribute.isAutoIncremented() == false ) {
             	list.add(attribute);
         	}
         }
-        return list ;
+        return Collections.unmodifiableList(list) ;
     }
     
+    /**
+     * Returns the size of a builder able to contain all the columns of the entity ( with a separator for each )
+     * @param fixedPart the size of the SQL keywords and table names
+     * @param sizeByColumn the size to add for each column ( separator, " = ?", etc )
+     * @return
+     */
+    private int estimatedSize(int fixedPart, int sizeByColumn) {
+    	int size = fixedPart ;
+        for ( AttributeInContext attribute : this.attributesForSelect ) {
+        	size = size + attribute.getDatabaseName().length() + sizeByColumn ;
+        }
+        return size ;
+    }
     
-    private String buildColumnsList(List<AttributeInContext> attributes, boolean bPrefix) 
+    private void appendColumnsList(StringBuilder sb, List<AttributeInContext> attributes) 
     {
-        StringBuffer sb = new StringBuffer(200);
         int n = 0 ;
         for ( AttributeInContext attribute : attributes ) {
             if (n > 0) {
                 sb.append(", ");
             }
-            if (bPrefix) {
-                sb.append(this.table + ".");
-            }
             sb.append( attribute.getDatabaseName() );
             n++;
         }
-        return sb.toString();
     }
     
     /**
-     * Build the where criteria ( for KEY columns only) <br>
-     * ie : "tab.col1 = ? and tab.col2 = ?"
+     * Appends the where criteria ( for KEY columns only) <br>
+     * ie : "col1 = ? and col2 = ?"
      * 
-     * @return
+     * @param sb
+     * @param attributes
      */
-    private String whereCriteria(List<AttributeInContext> attributes, boolean bPrefix)
+    private void appendWhereCriteria(StringBuilder sb, List<AttributeInContext> attributes)
     {
-        StringBuffer sb = new StringBuffer(200);
         int n = 0 ;
         for ( AttributeInContext attribute : attributes ) {
             if (n > 0) {
                 sb.append(" and ");
             }
-            if (bPrefix) {
-                sb.append(this.table + ".");
-            }
-            sb.append( attribute.getDatabaseName() + " = ?" );
+            sb.append( attribute.getDatabaseName() ).append(" = ?");
             n++;
         }
-        return sb.toString();
     }
 
-    private String buildQuestionMarsks(List<AttributeInContext> attributes) 
+    private void appendQuestionMarks(StringBuilder sb, List<AttributeInContext> attributes) 
     {
-    	if ( attributes.size() == 0 ) {
-    		return "" ;
-    	}
-    	else {
-            StringBuffer sb = new StringBuffer();
-            for ( int c = 0 ; c < attributes.size() ; c++ )  {
-                if (c > 0) {
-                    sb.append(", ");
-                }
-                sb.append("?");
+        for ( int c = 0 ; c < attributes.size() ; c++ )  {
+            if (c > 0) {
+                sb.append(", ");
             }
-            return sb.toString();
-    	}
+            sb.append('?');
+        }
     }
     
     /**
-     * Build the set column value clause (for DATA columns only) ie : "tab.col1 = ?, tab.col2 = ?"
+     * Appends the set column value clause (for DATA columns only) ie : "col1 = ?, col2 = ?"
      * 
-     * @return
+     * @param sb
+     * @param attributes
      */
-    private String buildSetValuesForUpdate(List<AttributeInContext> attributes, boolean bPrefix)
+    private void appendSetValuesForUpdate(StringBuilder sb, List<AttributeInContext> attributes)
     {
-        StringBuffer sb = new StringBuffer(200);
-        //--- Data Columns
-//        for ( int c = 0 ; c < _dataColumns.length ; c++ )
-//        {
-//            if (c > 0)
-//            {
-//                sb.append(", ");
-//            }
-//            if (bPrefix)
-//            {
-//                sb.append(_table + ".");
-//            }
-//            sb.append(_dataColumns[c] + " = ?");
-//        }
         int n = 0 ;
         for ( AttributeInContext attribute : attributes ) {
             if (n > 0) {
                 sb.append(", ");
             }
-            if (bPrefix) {
-                sb.append(this.table + ".");
-            }
-            sb.append( attribute.getDatabaseName() + " = ?" );
+            sb.append( attribute.getDatabaseName() ).append(" = ?");
             n++;
         }
-        return sb.toString();
     }
 
     
@@ -256,9 +234,12 @@ public class JdbcRequests {
      * @return
      */
     private String buildSqlSelect() {
-        return "select " + buildColumnsList(this.attributesForSelect, false) 
-        		+ " from " + this.table 
-        		+ " where " + whereCriteria(this.attributesForPrimaryKey, false);
+    	StringBuilder sb = new StringBuilder( estimatedSize(32 + this.table.length(), 10) );
+    	sb.append("select ");
+    	appendColumnsList(sb, this.attributesForSelect);
+    	sb.append(" from ").append(this.table).append(" where ");
+    	appendWhereCriteria(sb, this.attributesForPrimaryKey);
+        return sb.toString();
     }
 
     /**
@@ -266,8 +247,10 @@ public class JdbcRequests {
      * @return
      */
     private String buildSqlSelectCount() {
-        return "select count(*) from " + this.table 
-        		+ " where " + whereCriteria(this.attributesForPrimaryKey, false);
+    	StringBuilder sb = new StringBuilder( estimatedSize(32 + this.table.length(), 8) );
+    	sb.append("select count(*) from ").append(this.table).append(" where ");
+    	appendWhereCriteria(sb, this.attributesForPrimaryKey);
+        return sb.toString();
     }
 
     /**
@@ -275,9 +258,13 @@ public class JdbcRequests {
      * @return
      */
     private String buildSqlInsert() {
-        return "insert into " + this.table 
-        		+ " ( " + buildColumnsList(this.attributesForInsert, false)  + " )"
-        		+ " values ( " + buildQuestionMarsks(this.attributesForInsert) + " )";
+    	StringBuilder sb = new StringBuilder( estimatedSize(32 + this.table.length(), 5) );
+    	sb.append("insert into ").append(this.table).append(" ( ");
+    	appendColumnsList(sb, this.attributesForInsert);
+    	sb.append(" ) values ( ");
+    	appendQuestionMarks(sb, this.attributesForInsert);
+    	sb.append(" )");
+        return sb.toString();
     }
 
     /**
@@ -286,9 +273,12 @@ public class JdbcRequests {
      */
     private String buildSqlUpdate()
     {
-        return "update " + this.table 
-        		+ " set " + buildSetValuesForUpdate(this.attributesForUpdate, false) 
-        		+ " where " + whereCriteria(this.attributesForPrimaryKey, false);
+    	StringBuilder sb = new StringBuilder( estimatedSize(32 + this.table.length(), 9) );
+    	sb.append("update ").append(this.table).append(" set ");
+    	appendSetValuesForUpdate(sb, this.attributesForUpdate);
+    	sb.append(" where ");
+    	appendWhereCriteria(sb, this.attributesForPrimaryKey);
+        return sb.toString();
     }
 
     /**
@@ -297,8 +287,10 @@ public class JdbcRequests {
      */
     private String buildSqlDelete()
     {
-        return "delete from " + this.table 
-        		+ " where " + whereCriteria(this.attributesForPrimaryKey, false);
+    	StringBuilder sb = new StringBuilder( estimatedSize(32 + this.table.length(), 9) );
+    	sb.append("delete from ").append(this.table).append(" where ");
+    	appendWhereCriteria(sb, this.attributesForPrimaryKey);
+        return sb.toString();
     }
 
 }
@@ -0,0 +1,115 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.sink;
+
+import java.io.File;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.nio.charset.Charset;
+
+import org.telosys.tools.generator.GeneratedFileWriter;
+import org.telosys.tools.generator.OutputDirectories;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Sink writing each generated file in the destination folder ( default sink ) <br>
+ * The target directories are created if needed ( checked only once for all the files of the session )
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class FileSystemSink implements GenerationSink {
+
+	private final String            _destinationFolder ;
+	private final OutputDirectories _outputDirectories ;
+
+	/**
+	 * Constructor
+	 * @param destinationFolder the absolute path of the destination folder
+	 */
+	public FileSystemSink(String destinationFolder) {
+		this(destinationFolder, new OutputDirectories());
+	}
+
+	/**
+	 * Constructor
+	 * @param destinationFolder the absolute path of the destination folder
+	 * @param outputDirectories the directories known to exist ( shared with the session )
+	 */
+	public FileSystemSink(String destinationFolder, OutputDirectories outputDirectories) {
+		super();
+		if ( destinationFolder == null ) {
+			throw new IllegalArgumentException("Destination folder parameter is null");
+		}
+		if ( outputDirectories == null ) {
+			throw new IllegalArgumentException("Output directories parameter is null");
+		}
+		_destinationFolder = destinationFolder ;
+		_outputDirectories = outputDirectories ;
+	}
+
+	/**
+	 * Returns the absolute path of the destination folder
+	 * @return
+	 */
+	public String getDestinationFolder() {
+		return _destinationFolder;
+	}
+
+	/**
+	 * Returns the output directories known to exist
+	 * @return
+	 */
+	public OutputDirectories getOutputDirectories() {
+		return _outputDirectories;
+	}
+
+	public boolean write(Target target, String content, Charset charset, boolean skipUnchanged) throws GeneratorException {
+		String fileName = target.getOutputFileNameInFileSystem(_destinationFolder);
+		File file = new File(fileName);
+		
+		//--- Check the target directory ( checked only once for all the files of the session ) 
+		File parentFile = file.getParentFile();
+		if ( parentFile != null ) {
+			_outputDirectories.checkDirectory(parentFile, true);
+		}
+		
+		//--- Write the file ( encoded directly in the file channel, no intermediate copy )
+		try {
+			GeneratedFileWriter writer = new GeneratedFileWriter(charset);
+			if ( skipUnchanged ) {
+				return writer.writeIfChanged(content, file);
+			}
+			else {
+				writer.write(content, file);
+				return true ;
+			}
+		} catch (FileNotFoundException e) {
+			//--- The file is not checked before writing
+			if ( file.exists() && ! file.canWrite() ) {
+				throw new GeneratorException("Cannot write on existing target file '"+ file.toString() + "' !");
+			}
+			throw new GeneratorException("Cannot save file "+fileName, e);
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot save file "+fileName, e);
+		}
+	}
+
+	public void close() {
+		// Nothing to close : each file is closed after writing
+	}
+}
@@ -0,0 +1,55 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.sink;
+
+import java.nio.charset.Charset;
+
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Destination of the files generated during a generation session <br>
+ * ( file system, memory, archive, ... ) <br>
+ *
+ * A sink is shared by all the generation threads of the session, so an implementation must be thread-safe. <br>
+ * The sink is closed with the session, at the end of the run. <br>
+ *
+ * The same file can be written more than once during a session ( e.g. rewritten by an embedded generator <br>
+ * or 2 targets with the same output file ) : the file system and in-memory sinks keep the last content, <br>
+ * an archive sink keeps the first content ( a streamed entry cannot be replaced ), logs a warning and returns false.
+ *
+ * @author Laurent Guerin
+ *
+ */
+public interface GenerationSink {
+
+	/**
+	 * Stores the file generated for the given target
+	 * @param target the target ( gives the file name and folder in the project )
+	 * @param content the generated text
+	 * @param charset the charset used to encode the text
+	 * @param skipUnchanged true if an existing file with the same content must not be rewritten
+	 * @return true if the file has been stored, false if not stored ( unchanged, or already in an archive )
+	 * @throws GeneratorException
+	 */
+	public boolean write(Target target, String content, Charset charset, boolean skipUnchanged) throws GeneratorException ;
+
+	/**
+	 * Closes the sink ( no more file can be written after this call )
+	 * @throws GeneratorException
+	 */
+	public void close() throws GeneratorException ;
+}
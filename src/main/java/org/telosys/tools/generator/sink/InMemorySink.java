@@ -0,0 +1,100 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.sink;
+
+import java.nio.charset.Charset;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.Map;
+
+import org.telosys.tools.generator.GeneratedFileWriter;
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Sink keeping all the generated files in memory ( for tests, previews or tools using the generator as a library ) <br>
+ * Each file is stored as bytes ( encoded with the output charset ) <br>
+ * Key : the file name in the project ( e.g. "/src/org/demo/Foo.java" )
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class InMemorySink implements GenerationSink {
+
+	private final Map<String, byte[]> _files = new LinkedHashMap<String, byte[]>();
+
+	/**
+	 * Constructor
+	 */
+	public InMemorySink() {
+		super();
+	}
+
+	public boolean write(Target target, String content, Charset charset, boolean skipUnchanged) {
+		String fileName = target.getOutputFileNameInProject();
+		byte[] bytes = new GeneratedFileWriter(charset).toBytes(content);
+		synchronized (_files) {
+			byte[] previous = _files.put(fileName, bytes);
+			if ( skipUnchanged && previous != null && Arrays.equals(previous, bytes) ) {
+				return false ;
+			}
+		}
+		return true ;
+	}
+
+	public void close() {
+		// Nothing to close : the files remain available after the end of the session
+	}
+
+	/**
+	 * Returns the content of the given file (or null if not generated)
+	 * @param fileName the file name in the project ( e.g. "/src/org/demo/Foo.java" )
+	 * @return
+	 */
+	public byte[] getFile(String fileName) {
+		synchronized (_files) {
+			return _files.get(fileName);
+		}
+	}
+
+	/**
+	 * Returns a copy of all the files generated ( in the order of generation )
+	 * @return
+	 */
+	public Map<String, byte[]> getFiles() {
+		synchronized (_files) {
+			return new LinkedHashMap<String, byte[]>(_files);
+		}
+	}
+
+	/**
+	 * Returns the number of files generated
+	 * @return
+	 */
+	public int getNumberOfFiles() {
+		synchronized (_files) {
+			return _files.size();
+		}
+	}
+
+	/**
+	 * Removes all the files
+	 */
+	public void clear() {
+		synchronized (_files) {
+			_files.clear();
+		}
+	}
+}
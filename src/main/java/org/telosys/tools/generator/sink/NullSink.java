@@ -0,0 +1,66 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.sink;
+
+import java.nio.charset.Charset;
+
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Sink discarding all the generated files ( dry run, templates checking, benchmarks ) <br>
+ * Only the number of files and characters are kept
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class NullSink implements GenerationSink {
+
+	private int  _numberOfFiles = 0 ;
+	private long _numberOfChars = 0 ;
+
+	/**
+	 * Constructor
+	 */
+	public NullSink() {
+		super();
+	}
+
+	public synchronized boolean write(Target target, String content, Charset charset, boolean skipUnchanged) {
+		_numberOfFiles++ ;
+		_numberOfChars = _numberOfChars + content.length() ;
+		return true ;
+	}
+
+	public void close() {
+		// Nothing to close
+	}
+
+	/**
+	 * Returns the number of files discarded
+	 * @return
+	 */
+	public synchronized int getNumberOfFiles() {
+		return _numberOfFiles;
+	}
+
+	/**
+	 * Returns the number of characters discarded ( all the files )
+	 * @return
+	 */
+	public synchronized long getNumberOfChars() {
+		return _numberOfChars;
+	}
+}
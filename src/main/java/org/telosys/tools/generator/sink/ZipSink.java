@@ -0,0 +1,165 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.sink;
+
+import java.io.BufferedOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.Charset;
+import java.util.HashSet;
+import java.util.Set;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.generator.GeneratedFileWriter;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.context.Target;
+
+/**
+ * Sink writing all the generated files in a single ZIP archive ( or JAR, same format ) <br>
+ * Each file is streamed in the archive as soon as it is generated ( one entry per file, 'skipUnchanged' is ignored ) <br>
+ * Entry name : the file name in the project without the leading '/' ( e.g. "src/org/demo/Foo.java" ) <br>
+ * An entry cannot be replaced in a streamed archive : if the same file is written again <br>
+ * the first content is kept and a warning is logged ( see GenerationSink ) <br>
+ * The archive is complete only after 'close()'
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class ZipSink implements GenerationSink {
+
+	private final String          _archiveName ;
+	private final ZipOutputStream _zipOutputStream ;
+	private final TelosysToolsLogger _logger ; // can be null
+	private final Set<String>     _entries = new HashSet<String>();
+	private boolean               _closed  = false ;
+
+	/**
+	 * Constructor for an archive file ( created or replaced )
+	 * @param archiveFile
+	 * @throws GeneratorException
+	 */
+	public ZipSink(File archiveFile) throws GeneratorException {
+		this(archiveFile, null);
+	}
+
+	/**
+	 * Constructor for an archive file ( created or replaced )
+	 * @param archiveFile
+	 * @param logger the logger used to report the files written twice (can be null)
+	 * @throws GeneratorException
+	 */
+	public ZipSink(File archiveFile, TelosysToolsLogger logger) throws GeneratorException {
+		super();
+		if ( archiveFile == null ) {
+			throw new IllegalArgumentException("Archive file parameter is null");
+		}
+		_archiveName = archiveFile.toString();
+		_logger = logger ;
+		try {
+			_zipOutputStream = new ZipOutputStream(new BufferedOutputStream(new FileOutputStream(archiveFile), 
+					GeneratedFileWriter.BUFFER_SIZE));
+		} catch (IOException e) {
+			throw new GeneratorException("Cannot create archive file '" + _archiveName + "'", e);
+		}
+	}
+
+	/**
+	 * Constructor for an archive written in the given stream <br>
+	 * ( the stream is closed by 'close()' )
+	 * @param outputStream
+	 */
+	public ZipSink(OutputStream outputStream) {
+		this(outputStream, null);
+	}
+
+	/**
+	 * Constructor for an archive written in the given stream <br>
+	 * ( the stream is closed by 'close()' )
+	 * @param outputStream
+	 * @param logger the logger used to report the files written twice (can be null)
+	 */
+	public ZipSink(OutputStream outputStream, TelosysToolsLogger logger) {
+		super();
+		if ( outputStream == null ) {
+			throw new IllegalArgumentException("Output stream parameter is null");
+		}
+		_archiveName = "(stream)" ;
+		_logger = logger ;
+		_zipOutputStream = new ZipOutputStream(outputStream);
+	}
+
+	/**
+	 * Returns the entry name for the given file name in the project
+	 * @param fileName
+	 * @return
+	 */
+	protected static String entryName(String fileName) {
+		String s = fileName.replace('\\', '/');
+		while ( s.startsWith("/") ) {
+			s = s.substring(1);
+		}
+		return s ;
+	}
+
+	public boolean write(Target target, String content, Charset charset, boolean skipUnchanged) throws GeneratorException {
+		String name = entryName(target.getOutputFileNameInProject());
+		//--- Encoded before entering the lock ( the generation threads only wait for the archive writing )
+		byte[] bytes = new GeneratedFileWriter(charset).toBytes(content);
+		synchronized (this) {
+			if ( _closed ) {
+				throw new GeneratorException("Archive '" + _archiveName + "' is closed, cannot write '" + name + "'");
+			}
+			if ( ! _entries.add(name) ) {
+				//--- Already in the archive : the first content is kept
+				if ( _logger != null ) {
+					_logger.info("WARNING : file '" + name + "' already written in archive '" + _archiveName + "' (not replaced)");
+				}
+				return false ;
+			}
+			try {
+				_zipOutputStream.putNextEntry(new ZipEntry(name));
+				_zipOutputStream.write(bytes);
+				_zipOutputStream.closeEntry();
+			} catch (IOException e) {
+				throw new GeneratorException("Cannot write '" + name + "' in archive '" + _archiveName + "'", e);
+			}
+		}
+		return true ;
+	}
+
+	public synchronized void close() throws GeneratorException {
+		if ( ! _closed ) {
+			_closed = true ;
+			try {
+				_zipOutputStream.close(); // writes the central directory
+			} catch (IOException e) {
+				throw new GeneratorException("Cannot close archive '" + _archiveName + "'", e);
+			}
+		}
+	}
+
+	/**
+	 * Returns the number of entries written in the archive
+	 * @return
+	 */
+	public synchronized int getNumberOfEntries() {
+		return _entries.size();
+	}
+}
@@ -15,6 +15,7 @@
  */
 package org.telosys.tools.generator.target;
 
+import org.telosys.tools.commons.variables.Variable;
 
 /**
  * A generation target definition : <br>
@@ -37,6 +38,11 @@ public class TargetDefinition
 	private final String  _sType ; // "1", "R", "*" or ""
 	//private final boolean  _bOnce ;
 
+	//--- Compiled file and folder patterns for the last variables used ( v 3.0.0 )
+	private Variable[]         _compiledVariables = null ;
+	private TargetPathPattern  _filePattern   = null ;
+	private TargetPathPattern  _folderPattern = null ;
+
 	//-----------------------------------------------------------------------
 	/**
 	 * Constructor 
@@ -111,6 +117,43 @@ public class TargetDefinition
 		return _sFolder + "/" + _sFile ;
 	}
 	
+	//-----------------------------------------------------------------------
+	private void compilePatterns(Variable[] variables)
+	{
+		if ( _filePattern == null || variables != _compiledVariables )
+		{
+			_filePattern   = TargetPathPattern.compile(_sFile,   variables, false);
+			_folderPattern = TargetPathPattern.compile(_sFolder, variables, true); // ${XXXX_PKG} as dir path
+			_compiledVariables = variables ;
+		}
+	}
+
+	/**
+	 * Returns the file pattern compiled with the given variables <br>
+	 * ( compiled only once as long as the same variables array is used )
+	 * @param variables
+	 * @return
+	 * @since 3.0.0
+	 */
+	public synchronized TargetPathPattern getFilePattern(Variable[] variables)
+	{
+		compilePatterns(variables);
+		return _filePattern ;
+	}
+
+	/**
+	 * Returns the folder pattern compiled with the given variables <br>
+	 * ( compiled only once as long as the same variables array is used )
+	 * @param variables
+	 * @return
+	 * @since 3.0.0
+	 */
+	public synchronized TargetPathPattern getFolderPattern(Variable[] variables)
+	{
+		compilePatterns(variables);
+		return _folderPattern ;
+	}
+
 	//-----------------------------------------------------------------------
 	/**
 	 * Returns the template 
@@ -0,0 +1,202 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.target;
+
+import java.util.HashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+
+import org.telosys.tools.commons.config.ConfigDefaults;
+import org.telosys.tools.commons.variables.Variable;
+
+/**
+ * A target file or folder pattern ( ie "src/${ROOT_PKG}/${BEANNAME_LC}" ) compiled once for a set of project variables <br>
+ *
+ * The project variables are resolved at compile time, so the expansion for an entity <br>
+ * is just a sequence of appends in a pre-sized buffer. <br>
+ *
+ * Same rules as the original replacement : <br>
+ * . only the first form of the bean name found in the pattern is replaced ( ${BEANNAME}, else ${BEANNAME_UC}, else ${BEANNAME_LC} ) <br>
+ * . an unknown variable is kept as is <br>
+ * . for a folder pattern, the '.' of each ${XXXX_PKG} variable value are replaced by '/' <br>
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class TargetPathPattern {
+
+	private static final String BEANNAME    = ConfigDefaults.BEANNAME ;
+	private static final String BEANNAME_UC = ConfigDefaults.BEANNAME + "_UC" ;
+	private static final String BEANNAME_LC = ConfigDefaults.BEANNAME + "_LC" ;
+
+	private static final int NONE    = 0 ;
+	private static final int ASIS    = 1 ;
+	private static final int UC      = 2 ;
+	private static final int LC      = 3 ;
+
+	private final String   _pattern ;
+	private final String[] _literals ; // literal text before each bean name ( + the last one after )
+	private final int      _beanNameCase ;
+	private final int      _literalsLength ;
+	private final String   _constantResult ; // not null if the pattern doesn't use the bean name
+
+	//-----------------------------------------------------------------------
+	/**
+	 * Compiles the given pattern
+	 * @param pattern the file or folder pattern
+	 * @param variables the project variables (can be null)
+	 * @param packageVariablesAsDirPath true for a folder pattern ( ${XXXX_PKG} : 'org.demo' => 'org/demo' )
+	 * @return
+	 */
+	public static TargetPathPattern compile(String pattern, Variable[] variables, boolean packageVariablesAsDirPath) {
+		if ( pattern == null ) {
+			throw new IllegalArgumentException("Target pattern is null");
+		}
+		return new TargetPathPattern(pattern, buildVariablesMap(variables, packageVariablesAsDirPath) );
+	}
+
+	private static Map<String, String> buildVariablesMap(Variable[] variables, boolean packageVariablesAsDirPath) {
+		Map<String, String> map = new HashMap<String, String>();
+		if ( variables != null ) {
+			for ( Variable v : variables ) {
+				if ( v != null && v.getName() != null ) {
+					String value = v.getValue() != null ? v.getValue() : "" ;
+					if ( packageVariablesAsDirPath && v.getName().endsWith("_PKG") ) {
+						value = value.replace('.', '/');
+					}
+					map.put(v.getName(), value);
+				}
+			}
+		}
+		return map ;
+	}
+
+	private static int getBeanNameCase(String pattern) {
+		if ( pattern.indexOf("${" + BEANNAME + "}") >= 0 ) {
+			return ASIS ;
+		}
+		else if ( pattern.indexOf("${" + BEANNAME_UC + "}") >= 0 ) {
+			return UC ;
+		}
+		else if ( pattern.indexOf("${" + BEANNAME_LC + "}") >= 0 ) {
+			return LC ;
+		}
+		return NONE ;
+	}
+
+	private static String getBeanNameVariable(int beanNameCase) {
+		switch ( beanNameCase ) {
+		case ASIS : return BEANNAME ;
+		case UC   : return BEANNAME_UC ;
+		case LC   : return BEANNAME_LC ;
+		default   : return null ;
+		}
+	}
+
+	//-----------------------------------------------------------------------
+	private TargetPathPattern(String pattern, Map<String, String> variables) {
+		super();
+		_pattern = pattern ;
+		_beanNameCase = getBeanNameCase(pattern);
+		String beanNameVariable = getBeanNameVariable(_beanNameCase);
+
+		List<String> literals = new LinkedList<String>();
+		StringBuilder current = new StringBuilder(pattern.length());
+		int i = 0 ;
+		while ( i < pattern.length() ) {
+			int start = pattern.indexOf("${", i);
+			int end = ( start >= 0 ? pattern.indexOf('}', start + 2) : -1 ) ;
+			if ( start < 0 || end < 0 ) {
+				current.append(pattern, i, pattern.length());
+				break ;
+			}
+			current.append(pattern, i, start);
+			String name = pattern.substring(start + 2, end);
+			if ( name.equals(beanNameVariable) ) {
+				literals.add(current.toString());
+				current.setLength(0);
+			}
+			else {
+				String value = variables.get(name);
+				if ( value != null ) {
+					current.append(value);
+				}
+				else {
+					current.append(pattern, start, end + 1); // unknown variable : kept as is
+				}
+			}
+			i = end + 1 ;
+		}
+		literals.add(current.toString());
+
+		_literals = literals.toArray(new String[literals.size()]);
+		int length = 0 ;
+		for ( String s : _literals ) {
+			length += s.length();
+		}
+		_literalsLength = length ;
+		_constantResult = ( _literals.length == 1 ? _literals[0] : null ) ;
+	}
+
+	//-----------------------------------------------------------------------
+	/**
+	 * Returns the original pattern
+	 * @return
+	 */
+	public String getPattern() {
+		return _pattern ;
+	}
+
+	/**
+	 * Returns true if the pattern contains the bean name
+	 * @return
+	 */
+	public boolean usesBeanName() {
+		return _constantResult == null ;
+	}
+
+	//-----------------------------------------------------------------------
+	/**
+	 * Returns the file or folder for the given entity class name
+	 * @param beanName the entity class name ( or "" for a 'ONCE' or 'RESOURCE' target )
+	 * @return
+	 */
+	public String expand(String beanName) {
+		if ( _constantResult != null ) {
+			return _constantResult ;
+		}
+		String name = beanName != null ? beanName : "" ;
+		if ( _beanNameCase == UC ) {
+			name = name.toUpperCase();
+		}
+		else if ( _beanNameCase == LC ) {
+			name = name.toLowerCase();
+		}
+		StringBuilder sb = new StringBuilder( _literalsLength + ( ( _literals.length - 1 ) * name.length() ) );
+		sb.append(_literals[0]);
+		for ( int i = 1 ; i < _literals.length ; i++ ) {
+			sb.append(name);
+			sb.append(_literals[i]);
+		}
+		return sb.toString();
+	}
+
+	@Override
+	public String toString() {
+		return _pattern ;
+	}
+}
@@ -15,13 +15,27 @@
  */
 package org.telosys.tools.generator.task;
 
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.LinkedList;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicBoolean;
 
 import org.apache.velocity.exception.MethodInvocationException;
 import org.apache.velocity.exception.ParseErrorException;
 import org.apache.velocity.exception.ResourceNotFoundException;
 import org.apache.velocity.exception.VelocityException;
+import org.telosys.tools.commons.FileUtil;
+import org.telosys.tools.commons.StrUtil;
 import org.telosys.tools.commons.TelosysToolsException;
 import org.telosys.tools.commons.TelosysToolsLogger;
 import org.telosys.tools.commons.cfg.TelosysToolsCfg;
@@ -29,11 +43,16 @@ import org.telosys.tools.commons.io.CopyHandler;
 import org.telosys.tools.commons.io.OverwriteChooser;
 import org.telosys.tools.commons.variables.Variable;
 import org.telosys.tools.generator.BundleResourcesManager;
+import org.telosys.tools.generator.ResourcesCopyEngine;
+import org.telosys.tools.generator.ResourcesCopyResult;
+import org.telosys.tools.generator.GenerationSession;
 import org.telosys.tools.generator.Generator;
 import org.telosys.tools.generator.GeneratorException;
 import org.telosys.tools.generator.context.Target;
 import org.telosys.tools.generator.engine.GeneratorContextException;
 import org.telosys.tools.generator.engine.directive.DirectiveException;
+import org.telosys.tools.generator.sink.FileSystemSink;
+import org.telosys.tools.generator.sink.GenerationSink;
 import org.telosys.tools.generator.target.TargetDefinition;
 import org.telosys.tools.generic.model.Entity;
 import org.telosys.tools.generic.model.Model;
@@ -60,10 +79,18 @@ public abstract class AbstractGenerationTask
 	private final String                  _bundleName ;
 	private final TelosysToolsLogger      _logger ;
 	
+	private final GenerationSession       _session ; // shared by all the targets of this task
+	
 	private Target                _currentTarget = null ;
 	
 	private final GenerationTaskResult  _result  ;
 	
+	private int                   _parallelism = 1 ; // sequential by default
+	private ExecutorService       _executorService = null ;
+	private boolean               _incrementalGeneration = false ;
+	private GenerationManifest    _manifest = null ; // only for incremental generation
+	private boolean               _precreateOutputDirectories = false ;
+	
 	//--------------------------------------------------------------------------------------------------
 	/**
 	 * Constructor
@@ -108,16 +135,121 @@ public abstract class AbstractGenerationTask
 		_bundleName       = bundleName ;  // v 3.0.0
 		_logger           = logger ;
 		
+		_session          = new GenerationSession(_model, _telosysToolsCfg, _bundleName, _logger);
+		
 		_logger.log(this, "Task created");
 		_result = new GenerationTaskResult();
 	}
 	
+	//--------------------------------------------------------------------------------------------------
+	// PARALLEL GENERATION SETTINGS
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Set the number of threads used to generate the targets <br>
+	 * 1 by default : sequential generation in the current thread <br>
+	 * ( keep 1 if the templates are not thread-safe )
+	 * @param parallelism
+	 */
+	public void setParallelism(int parallelism) {
+		if ( parallelism < 1 ) {
+			throw new IllegalArgumentException("Invalid parallelism (" + parallelism + ")");
+		}
+		_parallelism = parallelism ;
+	}
+	
+	public int getParallelism() {
+		return _parallelism ;
+	}
+	
+	/**
+	 * Set the executor used to generate the targets in parallel <br>
+	 * If not set, a thread pool with 'parallelism' threads is created for each run <br>
+	 * The given executor is never shutdown by the task
+	 * @param executorService (or null to reset)
+	 */
+	public void setExecutorService(ExecutorService executorService) {
+		_executorService = executorService ;
+	}
+	
+	/**
+	 * Set the number of threads used to build all the entities of the model before the generation <br>
+	 * 1 by default : each entity is built on first use ( best for a few selected entities ) <br>
+	 * Useful only for very large models with most of the entities generated
+	 * @param parallelism
+	 */
+	public void setModelBuildParallelism(int parallelism) {
+		_session.setModelBuildParallelism(parallelism);
+	}
+	
+	/**
+	 * Set the destination of the generated files ( in-memory, archive, ... ) <br>
+	 * By default the files are written in the destination folder <br>
+	 * The following features are used only with a 'FileSystemSink' : <br>
+	 *  - the incremental generation and the output directories creation <br>
+	 *  - the copy of the static resources of the bundle ( skipped with a warning for another sink ) <br>
+	 *  - the 'afterFileGeneration' callback ( no file in the file system for another sink )
+	 * @param generationSink
+	 */
+	public void setGenerationSink(GenerationSink generationSink) {
+		_session.setGenerationSink(generationSink);
+	}
+	
+	private FileSystemSink getFileSystemSink() {
+		GenerationSink sink = _session.getGenerationSink();
+		return sink instanceof FileSystemSink ? (FileSystemSink) sink : null ;
+	}
+	
+	/**
+	 * Set the output directories creation policy <br>
+	 * if true all the output directories are created before the generation ( in one sweep ) <br>
+	 * ( false by default : each directory is created with its first file )
+	 * @param precreateOutputDirectories
+	 */
+	public void setPrecreateOutputDirectories(boolean precreateOutputDirectories) {
+		_precreateOutputDirectories = precreateOutputDirectories ;
+	}
+	
+	/**
+	 * Set the charset used to write the generated files <br>
+	 * ( platform default charset if not set )
+	 * @param outputCharset
+	 */
+	public void setOutputCharset(Charset outputCharset) {
+		_session.setOutputCharset(outputCharset);
+	}
+	
+	/**
+	 * Set the write policy for the generated files <br>
+	 * if true an existing file is rewritten only if its content has changed <br>
+	 * ( false by default : the file is always rewritten )
+	 * @param skipUnchangedFiles
+	 */
+	public void setSkipUnchangedFiles(boolean skipUnchangedFiles) {
+		_session.setSkipUnchangedFiles(skipUnchangedFiles);
+	}
+	
+	/**
+	 * Set the incremental generation mode <br>
+	 * if true a target is generated only if its inputs (entity, template, variables, bundle) <br>
+	 * have changed since the last generation ( see GenerationManifest ) <br>
+	 * The targets using the embedded generator ( '$generator' ) are always generated ( see GenerationFingerprints )
+	 * @param incrementalGeneration
+	 */
+	public void setIncrementalGeneration(boolean incrementalGeneration) {
+		_incrementalGeneration = incrementalGeneration ;
+	}
+	
+	private boolean isParallelGeneration() {
+		return _parallelism > 1 || _executorService != null ;
+	}
+	
 	//--------------------------------------------------------------------------------------------------
 	// ABSTRACT METHODS
 	//--------------------------------------------------------------------------------------------------
 	/**
 	 * Method called after each file generation <br>
-	 * Typically used for refreshing generated files in Eclipse 
+	 * Typically used for refreshing generated files in Eclipse <br>
+	 * Called only when the files are written in the file system ( default 'FileSystemSink' ) 
 	 * @param target
 	 * @param fullFileName
 	 */
@@ -144,8 +276,9 @@ public abstract class AbstractGenerationTask
 	
 	/**
 	 * Run the task : <br>
-	 *  1) copy the resources if any<br>
+	 *  1) start the copy of the resources if any ( the files are copied in background )<br>
 	 *  2) launch the generation<br>
+	 *  3) wait for the end of the resources copy<br>
 	 * @param taskMonitor
 	 * @param overwriteChooser
 	 * @param copyHandler
@@ -154,45 +287,75 @@ public abstract class AbstractGenerationTask
 	protected void runTask(ITaskMonitor taskMonitor, OverwriteChooser overwriteChooser, CopyHandler copyHandler) 
 			throws InterruptedException {
 		
-		//--- 1) Copy the static resources of the bundle if any (if cancelled : 'InterruptedException' is thrown )
-		copyResourcesIfAny(overwriteChooser, copyHandler);
-		
-		//--- 2) Launch the generation (if cancelled : 'InterruptedException' is thrown )
-		generateSelectedTargets(taskMonitor, getAllProjectVariables());
+		ResourcesCopyEngine.RunningCopy resourcesCopy = null ;
+		boolean generationCompleted = false ;
+		try {
+			//--- 1) Start the copy of the static resources of the bundle if any (if cancelled : 'InterruptedException' is thrown )
+			resourcesCopy = startResourcesCopyIfAny(overwriteChooser, copyHandler);
+			
+			//--- 2) Launch the generation (if cancelled : 'InterruptedException' is thrown )
+			generateSelectedTargets(taskMonitor, getAllProjectVariables());
+			generationCompleted = true ;
+		}
+		finally {
+			//--- 3) Wait for the end of the resources copy ( the files not yet copied are skipped if cancelled )
+			if ( resourcesCopy != null ) {
+				if ( ! generationCompleted ) {
+					resourcesCopy.cancel();
+				}
+				try {
+					endResourcesCopy(resourcesCopy, generationCompleted);
+				}
+				finally {
+					//--- Shutdown the generator engine(s) used by the session
+					_session.close();
+				}
+			}
+			else {
+				//--- Shutdown the generator engine(s) used by the session
+				_session.close();
+			}
+		}
 	}
 	
 	//--------------------------------------------------------------------------------------------------
 	/**
-	 * Copy the static resources if any 
+	 * Starts the copy of the static resources if any <br>
+	 * The overwrite choices are made now, the files are copied during the generation ( v 3.0.0 )
 	 * @param overwriteChooser
 	 * @param copyHandler
+	 * @return the running copy (or null if no resources or error)
 	 * @throws InterruptedException
 	 */
-	private void copyResourcesIfAny(OverwriteChooser overwriteChooser, CopyHandler copyHandler) 
+	private ResourcesCopyEngine.RunningCopy startResourcesCopyIfAny(OverwriteChooser overwriteChooser, CopyHandler copyHandler) 
 			throws InterruptedException { 
 
 //		boolean continueTask = true ; 
 
 		List<TargetDefinition> resourcesTargetsDefinitions = this._resourcesTargets ;
-		if ( resourcesTargetsDefinitions != null ) {
+		if ( resourcesTargetsDefinitions != null && getFileSystemSink() == null ) {
+			//--- The resources are files copied in the destination folder : not supported by the other sinks
+			_logger.info("WARNING : the static resources are not copied with the generation sink '" 
+					+ _session.getGenerationSink().getClass().getSimpleName() + "'" );
+		}
+		else if ( resourcesTargetsDefinitions != null ) {
 			_logger.log(this, "run : copy resources " );
 			
 			BundleResourcesManager resourcesManager = new BundleResourcesManager( _telosysToolsCfg, _bundleName, _logger);
-			int numberOfResourcesCopied = 0 ;
 			try {
-				numberOfResourcesCopied = resourcesManager.copyTargetsResourcesInProject(
-						resourcesTargetsDefinitions, overwriteChooser, copyHandler);
+				return resourcesManager.startResourcesCopyInProject(
+						resourcesTargetsDefinitions, overwriteChooser, copyHandler); // v 3.0.0
 			} catch (Exception e) {
 				ErrorReport errorReport = new ErrorReport("Resources copy error", 
 						buildMessageForException(e), e);
 				//continueTask = onError(errorReport);
 				manageError(errorReport); // throws InterruptedException if 'canceled'
 			}
-			_result.setNumberOfResourcesCopied(numberOfResourcesCopied);
 		}
 		else {
 			_logger.log(this, "run : no resources to be copied" );
 		}
+		return null ;
 		
 //		if ( continueTask == false ) // An error has occurred and the user choose "Cancel"
 //		{
@@ -200,6 +363,33 @@ public abstract class AbstractGenerationTask
 //		}
 	}
 	
+	/**
+	 * Waits for the end of the resources copy and reports the result ( v 3.0.0 )
+	 * @param resourcesCopy
+	 * @param reportErrors false if the task is already interrupted ( a copy error is just logged )
+	 * @throws InterruptedException
+	 */
+	private void endResourcesCopy(ResourcesCopyEngine.RunningCopy resourcesCopy, boolean reportErrors) 
+			throws InterruptedException { 
+		int numberOfResourcesCopied = 0 ;
+		try {
+			ResourcesCopyResult copyResult = resourcesCopy.waitForEnd();
+			numberOfResourcesCopied = copyResult.isCanceled() ? -1 : copyResult.getNumberOfFilesCopied() ;
+			_result.setNumberOfResourcesSkipped(copyResult.getNumberOfFilesSkipped());
+			_result.setNumberOfResourcesBytesCopied(copyResult.getNumberOfBytesCopied());
+		} catch (GeneratorException e) {
+			if ( reportErrors ) {
+				ErrorReport errorReport = new ErrorReport("Resources copy error", 
+						buildMessageForException(e), e);
+				manageError(errorReport); // throws InterruptedException if 'canceled'
+			}
+			else {
+				_logger.error("Resources copy error : " + e.getMessage() );
+			}
+		}
+		_result.setNumberOfResourcesCopied(numberOfResourcesCopied);
+	}
+	
 	//--------------------------------------------------------------------------------------------------
 	/**
 	 * Generates all the "selected targets" ( once or for each entity depending on the target's type ) 
@@ -225,9 +415,8 @@ public abstract class AbstractGenerationTask
 		//--- Number of generations expected
 		int totalWorkTasks = ( _selectedEntities.size() * entityTargets.size() ) + onceTargets.size() ;
 
-		progressMonitor.beginTask("Generation in progress", totalWorkTasks ); 
-				
-		//boolean continueTask = true ; 
+		//--- All the generations to be done ( in the order of the reported results )
+		List<GenerationWork> works = new LinkedList<GenerationWork>();
 		//--- For each entity
 		for ( String entityName : _selectedEntities ) {
 			
@@ -236,31 +425,57 @@ public abstract class AbstractGenerationTask
 			if ( entity != null ) {
 				//--- For each "entity target" 
 				for ( TargetDefinition targetDefinition : entityTargets ) {
-					
 					//--- Get a specialized target for the current entity
 					Target target = new Target( targetDefinition, entity, variables ); // v 3.0.0
-					
-					//continueTask = generateTarget(progressMonitor, target, _selectedEntities); 
-					generateTarget(progressMonitor, target, _selectedEntities); // throws InterruptedException if error + 'cancel'
+					works.add( new GenerationWork(entityName, target) );
 				}
-				//--- One TARGET done 
 			}
 			else {
-				ErrorReport errorReport = new ErrorReport("Generation error", 
-						"Entity '" + entityName + "' not found in the repository", null);
-				//continueTask = onError(errorReport);
-				_logger.error("Entity '" + entityName + "' not found in the repository") ;
-				manageError(errorReport); // throws InterruptedException if 'canceled'
+				works.add( new GenerationWork(entityName, null) ); // error reported in its turn
 			}
-			//--- One ENTITY done
 		} // end of "For each entity"
 		
 		//--- Finally, generate the "ONCE" targets ( NEW in version 2.0.3 / Feb 2013 )
 		for ( TargetDefinition targetDefinition : onceTargets ) {
 			//--- Target without current entity
 			Target target = new Target( targetDefinition, variables ); // v 3.0.0
-			//continueTask = generateTarget(progressMonitor, target, _selectedEntities); 
-			generateTarget(progressMonitor, target, _selectedEntities);  // throws InterruptedException if error + 'cancel'
+			works.add( new GenerationWork(null, target) );
+		}
+
+		//--- Incremental generation : keep only the targets with new inputs
+		if ( _incrementalGeneration && getFileSystemSink() != null ) {
+			prepareIncrementalGeneration(works, variables);
+		}
+		
+		//--- Create all the output directories at once
+		if ( _precreateOutputDirectories && getFileSystemSink() != null ) {
+			createOutputDirectories(works);
+		}
+
+		progressMonitor.beginTask("Generation in progress", totalWorkTasks ); 
+				
+		try {
+			if ( isParallelGeneration() ) {
+				generateInParallel(progressMonitor, works); // throws InterruptedException if error + 'cancel'
+			}
+			else {
+				for ( GenerationWork work : works ) {
+					startWork(progressMonitor, work);
+					runWork(work);
+					reportWork(progressMonitor, work); // throws InterruptedException if error + 'cancel'
+				}
+			}
+		}
+		finally {
+			//--- Targets not generated (up to date or cancelled)
+			for ( GenerationWork work : works ) {
+				if ( work.target != null && ! work.done ) {
+					_result.incrementNumberOfTargetsSkipped();
+				}
+			}
+			if ( _manifest != null ) {
+				saveManifest();
+			}
 		}
 		
 		//--- Notifies that the work is done; that is, either the main task is completed or the user canceled it.
@@ -276,58 +491,300 @@ public abstract class AbstractGenerationTask
 		}
 		
 	}
+	
 	//--------------------------------------------------------------------------------------------------
 	/**
-	 * Generates the given target. <br>
-	 * More than one file can be generated if the embedded generator is used in the template.
+	 * Creates the output directories of all the given works ( except the works up to date )
+	 * @param works
+	 */
+	private void createOutputDirectories(List<GenerationWork> works) {
+		FileSystemSink fileSystemSink = getFileSystemSink() ;
+		String destinationFolder = fileSystemSink.getDestinationFolder() ;
+		List<File> directories = new LinkedList<File>();
+		for ( GenerationWork work : works ) {
+			if ( work.target != null && ! work.upToDate ) {
+				directories.add( new File(work.target.getOutputFileNameInFileSystem(destinationFolder)).getParentFile() );
+			}
+		}
+		try {
+			fileSystemSink.getOutputDirectories().createDirectories(directories);
+		} catch (GeneratorException e) {
+			// the error will be reported with the target
+			_logger.error("Cannot create output directories : " + e.getMessage() );
+		}
+		_logger.log(this, fileSystemSink.getOutputDirectories().getNumberOfDirectoriesCreated() + " output directories created" );
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Loads the manifest of the previous generations and flags the works that are up to date <br>
+	 * The orphan files ( entity or template removed, or file moved ) are reported in the result
+	 * @param works
+	 * @param variables
+	 */
+	private void prepareIncrementalGeneration(List<GenerationWork> works, Variable[] variables) {
+		String destinationFolder = getFileSystemSink().getDestinationFolder() ; // the folder where the files are written
+		String bundleFolder = getBundleFolder();
+		_manifest = new GenerationManifest(destinationFolder);
+		try {
+			_manifest.load();
+		} catch (IOException e) {
+			_logger.error("Cannot load generation manifest '" + _manifest.getManifestFile() + "' : " + e.getMessage() );
+			// Full generation 
+		}
+		
+		GenerationFingerprints fingerprints = new GenerationFingerprints(_model, _bundleName, bundleFolder, 
+				variables, _selectedEntities, _session.getOutputCharset());
+		int upToDate = 0 ;
+		Set<String> generationKeys = new HashSet<String>();
+		Set<String> outputFiles = new HashSet<String>();
+		for ( GenerationWork work : works ) {
+			if ( work.target != null ) {
+				work.outputFile = work.target.getOutputFileNameInFileSystem(destinationFolder);
+				generationKeys.add(GenerationManifest.generationKey(work.target.getTemplate(), work.target.getEntityName()));
+				outputFiles.add(work.outputFile);
+				try {
+					work.fingerprint = fingerprints.getTargetFingerprint(work.target);
+				} catch (IOException e) {
+					work.fingerprint = null ; // cannot be checked => generated
+				}
+				if ( work.fingerprint != null && _manifest.isUpToDate(work.outputFile, work.fingerprint) ) {
+					work.upToDate = true ;
+					upToDate++ ;
+				}
+			}
+		}
+		_logger.log(this, "incremental generation : " + upToDate + " target(s) up to date" );
+		
+		for ( String orphanFile : _manifest.findOrphanFiles(_bundleName, bundleFolder, _model) ) {
+			_logger.log(this, "orphan file : " + orphanFile );
+			_result.addOrphanFile(orphanFile);
+		}
+		for ( String movedFile : _manifest.removeMovedFiles(_bundleName, generationKeys, outputFiles) ) {
+			_logger.log(this, "orphan file (moved) : " + movedFile );
+			_result.addOrphanFile(movedFile);
+		}
+	}
+	
+	private String getBundleFolder() {
+		String templatesFolder = _telosysToolsCfg.getTemplatesFolderAbsolutePath() ;
+		if ( StrUtil.nullOrVoid(_bundleName) ) {
+			return templatesFolder ;
+		}
+		return FileUtil.buildFilePath(templatesFolder, _bundleName);
+	}
+	
+	private void saveManifest() {
+		try {
+			_manifest.save();
+		} catch (IOException e) {
+			_logger.error("Cannot save generation manifest '" + _manifest.getManifestFile() + "' : " + e.getMessage() );
+		}
+		_manifest = null ;
+	}
+	
+	/**
+	 * Updates the manifest after the generation of the given work ( if incremental generation )
+	 * @param work
+	 */
+	private void updateManifest(GenerationWork work) {
+		if ( _manifest != null && work.outputFile != null ) {
+			if ( work.exception == null && work.fingerprint != null ) {
+				_manifest.putEntry( new GenerationManifest.Entry(work.fingerprint, _bundleName, 
+						work.target.getTemplate(), work.target.getEntityName(), work.outputFile) );
+			}
+			else {
+				_manifest.removeEntry(work.outputFile);
+			}
+		}
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Generates all the given works with the executor and reports the results in the current thread <br>
+	 * ( the results are reported in the same order as with a sequential generation )
 	 * @param progressMonitor
-	 * @param target
-	 * @param selectedEntitiesNames
+	 * @param works
 	 * @throws InterruptedException
 	 */
-	private void generateTarget(ITaskMonitor progressMonitor, Target target, List<String> selectedEntitiesNames) 
-			throws InterruptedException
+	private void generateInParallel(ITaskMonitor progressMonitor, List<GenerationWork> works) throws InterruptedException 
 	{
-		//boolean continueTask = true ;
-		
-		_logger.log(this, "Generate TARGET : entity name '" + target.getEntityName() + "' - target file '" + target.getFile() + "' ");
+		final boolean ownExecutor = ( _executorService == null ) ;
+		ExecutorService executorService = ownExecutor ? Executors.newFixedThreadPool(_parallelism) : _executorService ;
+		final AtomicBoolean stopped = new AtomicBoolean(false);
 		
-		_currentTarget = target ;
-		
-		progressMonitor.subTask("Entity '" + target.getEntityName() + "' : target file '" + target.getFile() + "' ");
+		List<Future<GenerationWork>> futures = new ArrayList<Future<GenerationWork>>(works.size());
+		try {
+			for ( final GenerationWork work : works ) {
+				//--- Each thread keeps its engine for all its works ( all the engines are shutdown by the session )
+				futures.add( executorService.submit( new Callable<GenerationWork>() {
+					public GenerationWork call() {
+						if ( ! stopped.get() ) {
+							runWork(work);
+						}
+						return work ;
+					}
+				}));
+			}
+			//--- Report the results in the original order 
+			for ( Future<GenerationWork> future : futures ) {
+				if ( progressMonitor.isCanceled() ) {
+					break ;
+				}
+				GenerationWork work = getWork(future);
+				startWork(progressMonitor, work);
+				reportWork(progressMonitor, work); // throws InterruptedException if error + 'cancel'
+			}
+		}
+		finally {
+			//--- Skip the works not yet started and wait for the running ones
+			stopped.set(true);
+			for ( Future<GenerationWork> future : futures ) {
+				try {
+					future.get();
+				} catch (ExecutionException e) {
+					// already reported or no longer useful 
+				}
+			}
+			if ( ownExecutor ) {
+				executorService.shutdown();
+			}
+		}
+	}
+	
+	private GenerationWork getWork(Future<GenerationWork> future) throws InterruptedException {
+		try {
+			return future.get();
+		} catch (ExecutionException e) {
+			//--- Unexpected exception in the worker thread : same behavior as in the current thread
+			Throwable cause = e.getCause();
+			if ( cause instanceof RuntimeException ) {
+				throw (RuntimeException) cause ;
+			}
+			else if ( cause instanceof Error ) {
+				throw (Error) cause ;
+			}
+			else {
+				throw new RuntimeException(cause);
+			}
+		}
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * Notifies the start of the given work 
+	 * @param progressMonitor
+	 * @param work
+	 */
+	private void startWork(ITaskMonitor progressMonitor, GenerationWork work) {
+		if ( work.target != null ) {
+			Target target = work.target ;
+			_logger.log(this, "Generate TARGET : entity name '" + target.getEntityName() + "' - target file '" + target.getFile() + "' ");
+			_currentTarget = target ;
+			progressMonitor.subTask("Entity '" + target.getEntityName() + "' : target file '" + target.getFile() + "' ");
+		}
+	}
+	
+	/**
+	 * Generates the target of the given work ( can be called by any thread ) <br>
+	 * More than one file can be generated if the embedded generator is used in the template.
+	 * @param work
+	 */
+	private void runWork(GenerationWork work) {
+		if ( work.target != null && ! work.upToDate ) {
+//			Generator generator = new Generator( _telosysToolsCfg, _bundleName, _logger); // v 3.0.0
+			Generator generator = new Generator(_session); // the model context is built once for all the targets
+			try {
+				generator.generateTarget(work.target, _model, _selectedEntities, 
+						work.generatedTargets, work.unchangedTargets);
+			} catch (GeneratorException e) {
+				work.exception = e ;
+			}
+			work.done = true ;
+		}
+	}
+	
+	/**
+	 * Reports the result of the given work ( errors, generated files, progress ) in the current thread 
+	 * @param progressMonitor
+	 * @param work
+	 * @throws InterruptedException
+	 */
+	private void reportWork(ITaskMonitor progressMonitor, GenerationWork work) throws InterruptedException
+	{
+		if ( work.target == null ) {
+			ErrorReport errorReport = new ErrorReport("Generation error", 
+					"Entity '" + work.entityName + "' not found in the repository", null);
+			//continueTask = onError(errorReport);
+			_logger.error("Entity '" + work.entityName + "' not found in the repository") ;
+			manageError(errorReport); // throws InterruptedException if 'canceled'
+			return ;
+		}
 		
-		//--- Possible multiple generated targets for one main target (with embedded generator)
-		LinkedList<Target> generatedTargets = new LinkedList<Target>();
+		if ( work.upToDate ) {
+			//--- Incremental generation : nothing to do 
+			_logger.log(this, "up to date : " + work.outputFile );
+			progressMonitor.worked(1); // One unit done (not cumulative)
+			return ;
+		}
 		
-		Generator generator = new Generator( _telosysToolsCfg, _bundleName, _logger); // v 3.0.0
-		try {
-			generator.generateTarget(target, _model, selectedEntitiesNames, generatedTargets);
-		} catch (GeneratorException e) {
-			_result.addGenerationError(target);
+		updateManifest(work);
+		if ( work.exception != null ) {
+			_result.addGenerationError(work.target);
 			//continueTask = onError(buildErrorReportForGeneratorException(e));
-			ErrorReport errorReport = buildErrorReportForGeneratorException(e);
+			ErrorReport errorReport = buildErrorReportForGeneratorException(work.exception);
 			manageError(errorReport); // throws InterruptedException if 'canceled'
 		}
 
 		//--- After normal end of generation : refresh the generated files and update count
-		for ( Target generatedTarget : generatedTargets ) {
+		FileSystemSink fileSystemSink = getFileSystemSink() ; // null if the files are not in the file system
+		for ( Target generatedTarget : work.generatedTargets ) {
 			_logger.log(this, "generated target : " + generatedTarget.getFile() );
 
-			String generatedFileAbsolutePath = generatedTarget.getOutputFileNameInFileSystem(_telosysToolsCfg.getDestinationFolderAbsolutePath());
-			
 			//--- One more file : increment result count
 			_result.incrementNumberOfFilesGenerated();
+			_result.incrementNumberOfFilesWritten();
 
-			_logger.log(this, "Call afterFileGeneration(" + generatedFileAbsolutePath + ")...");
-			afterFileGeneration(generatedTarget, generatedFileAbsolutePath); // Abstract method
+			if ( fileSystemSink != null ) {
+				String generatedFileAbsolutePath = generatedTarget.getOutputFileNameInFileSystem(fileSystemSink.getDestinationFolder());
+				_logger.log(this, "Call afterFileGeneration(" + generatedFileAbsolutePath + ")...");
+				afterFileGeneration(generatedTarget, generatedFileAbsolutePath); // Abstract method
+			}
+		}
+		//--- Files generated with the same content : not written => no refresh
+		for ( Target unchangedTarget : work.unchangedTargets ) {
+			_logger.log(this, "unchanged target : " + unchangedTarget.getFile() );
+			_result.incrementNumberOfFilesGenerated();
+			_result.incrementNumberOfFilesUnchanged();
 		}
 		
 		//--- One TARGET done
 		// Notifies that a given number of work unit of the main task has been completed. 
 		// Note that this amount represents an installment, as opposed to a cumulative amount of work done to date.
 		progressMonitor.worked(1); // One unit done (not cumulative)
+	}
+	
+	//--------------------------------------------------------------------------------------------------
+	/**
+	 * One generation to be done : a target for an entity, a "once" target, or an entity not found
+	 */
+	private static class GenerationWork {
+		private final String             entityName ;
+		private final Target             target ; // null if entity not found
+		//--- Possible multiple generated targets for one main target (with embedded generator)
+		private final LinkedList<Target> generatedTargets = new LinkedList<Target>();
+		private final LinkedList<Target> unchangedTargets = new LinkedList<Target>();
+		private GeneratorException       exception = null ;
+		private boolean                  done = false ;
+		//--- Incremental generation 
+		private String                   outputFile = null ;
+		private String                   fingerprint = null ;
+		private boolean                  upToDate = false ;
 		
-		//return continueTask ;
+		private GenerationWork(String entityName, Target target) {
+			this.entityName = entityName ;
+			this.target     = target ;
+		}
 	}
 	
 	//--------------------------------------------------------------------------------------------------
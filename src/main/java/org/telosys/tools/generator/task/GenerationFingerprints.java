@@ -0,0 +1,485 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.lang.reflect.Array;
+import java.lang.reflect.Method;
+import java.lang.reflect.Modifier;
+import java.nio.charset.Charset;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.GeneratorVersion;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.context.names.ContextName;
+import org.telosys.tools.generic.model.Entity;
+import org.telosys.tools.generic.model.Link;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Fingerprints of the generation inputs, used by the incremental generation <br>
+ *
+ * The fingerprint of a target is a hash of : <br>
+ *  - the generator version, the bundle name and the output charset <br>
+ *  - the template file and all the files included with '#parse' or '#include' <br>
+ *  - the project variables <br>
+ *  - the entity and all the entities reachable through its links ( or all the entities for a "once" target ) <br>
+ *  - all the entities and the selected entities if the template uses '$model' or '$selectedEntities' <br>
+ *
+ * A target has no fingerprint ( always generated ) if its template uses the embedded generator ( '$generator' ) <br>
+ * ( the sub-targets are not known before the generation ), includes a file with a non literal name, <br>
+ * or uses an input located outside of the model and the bundle ( '$loader' classes, '$databases' file ). <br>
+ *
+ * The entities are described with all the values returned by the getters of the generic model interfaces. <br>
+ * All the intermediate fingerprints are computed once per generation run.
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationFingerprints {
+
+	private static final Charset  UTF8 = Charset.forName("UTF-8");
+
+	private static final String   GENERIC_MODEL_PACKAGE = Entity.class.getPackage().getName() ;
+
+	private static final Pattern  INCLUDE_PATTERN = Pattern.compile("#\\{?(parse|include)\\}?\\s*\\(([^)]*)\\)");
+	private static final Pattern  LITERAL_PATTERN = Pattern.compile("\\s*[\"']([^\"']+)[\"']\\s*");
+	private static final Pattern  GENERATOR_PATTERN = Pattern.compile("\\$!?\\{?" + ContextName.GENERATOR + "\\b");
+	private static final Pattern  MODEL_PATTERN = Pattern.compile("\\$!?\\{?(" + ContextName.MODEL + "|" 
+			+ ContextName.SELECTED_ENTITIES + ")\\b");
+	private static final Pattern  EXTERNAL_PATTERN = Pattern.compile("\\$!?\\{?(" + ContextName.LOADER + "|" 
+			+ ContextName.DATABASES + ")\\b");
+
+	private final Model          _model ;
+	private final String         _bundleName ;
+	private final String         _bundleFolder ;
+	private final Charset        _outputCharset ;
+	private final String         _variablesFingerprint ;
+	private final String         _modelFingerprint ;
+	private final List<String>   _selectedEntities ;
+
+	private final Map<String, String> _entitiesFingerprints  = new HashMap<String, String>();
+	private final Map<String, TemplateInfo> _templatesInfos = new HashMap<String, TemplateInfo>();
+	private String                    _selectedEntitiesFingerprint = null ;
+	private final Map<Class<?>, List<Method>> _gettersCache = new HashMap<Class<?>, List<Method>>();
+
+	/**
+	 * Constructor
+	 * @param model
+	 * @param bundleName
+	 * @param bundleFolder the folder containing the templates of the bundle
+	 * @param variables the project variables
+	 * @param selectedEntities
+	 * @param outputCharset the charset used to write the generated files
+	 */
+	public GenerationFingerprints(Model model, String bundleName, String bundleFolder,
+			Variable[] variables, List<String> selectedEntities, Charset outputCharset) {
+		super();
+		_model            = model ;
+		_bundleName       = bundleName ;
+		_bundleFolder     = bundleFolder ;
+		_outputCharset    = outputCharset ;
+		_selectedEntities = selectedEntities ;
+		_variablesFingerprint = buildVariablesFingerprint(variables);
+		_modelFingerprint     = buildModelFingerprint(model);
+	}
+
+	//------------------------------------------------------------------------------------------
+	/**
+	 * Returns the fingerprint of the given target
+	 * @param target
+	 * @return the fingerprint, or null if the target cannot be checked ( always generated )
+	 * @throws IOException if the template cannot be read
+	 */
+	public String getTargetFingerprint(Target target) throws IOException {
+		TemplateInfo templateInfo = getTemplateInfo(target.getTemplate());
+		if ( templateInfo.usesGenerator || templateInfo.dynamicInclude || templateInfo.usesExternalInput ) {
+			return null ;
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append("generator=").append(GeneratorVersion.GENERATOR_VERSION).append('\n');
+		sb.append("bundle=").append(_bundleName).append('\n');
+		sb.append("charset=").append(_outputCharset).append('\n');
+		sb.append("template=").append(templateInfo.fingerprint).append('\n');
+		sb.append("variables=").append(_variablesFingerprint).append('\n');
+		sb.append("model=").append(_modelFingerprint).append('\n');
+		String entityName = target.getEntityName() ;
+		if ( entityName != null && entityName.trim().length() > 0 ) {
+			sb.append("entity=").append(getEntityWithLinksFingerprint(entityName)).append('\n');
+			if ( templateInfo.usesModel ) {
+				sb.append("entities=").append(getSelectedEntitiesFingerprint()).append('\n');
+			}
+		}
+		else {
+			sb.append("entities=").append(getSelectedEntitiesFingerprint()).append('\n');
+		}
+		return hash(sb.toString().getBytes(UTF8));
+	}
+
+	//------------------------------------------------------------------------------------------
+	// VARIABLES
+	//------------------------------------------------------------------------------------------
+	private String buildVariablesFingerprint(Variable[] variables) {
+		StringBuilder sb = new StringBuilder();
+		if ( variables != null ) {
+			//--- Sorted by name : the order of the variables has no effect on the generation
+			Variable[] sortedVariables = variables.clone();
+			Arrays.sort(sortedVariables, new Comparator<Variable>() {
+				public int compare(Variable v1, Variable v2) {
+					return String.valueOf(v1.getName()).compareTo(String.valueOf(v2.getName()));
+				}
+			});
+			for ( Variable v : sortedVariables ) {
+				sb.append(v.getName()).append('=').append(v.getValue()).append('\n');
+			}
+		}
+		return hash(sb.toString().getBytes(UTF8));
+	}
+
+	//------------------------------------------------------------------------------------------
+	// MODEL
+	//------------------------------------------------------------------------------------------
+	private String buildModelFingerprint(Model model) {
+		//--- Model attributes only (the entities have their own fingerprint)
+		String s = model.getName() + "|" + model.getVersion() + "|" + model.getType() 
+				+ "|" + model.getDatabaseId() + "|" + model.getDatabaseProductName() ;
+		return hash(s.getBytes(UTF8));
+	}
+
+	//------------------------------------------------------------------------------------------
+	// TEMPLATES
+	//------------------------------------------------------------------------------------------
+	/**
+	 * Template analysis result ( for the template and all its includes )
+	 */
+	protected static class TemplateInfo {
+		private String  fingerprint    = null ;
+		private boolean usesGenerator  = false ; // '$generator' 
+		private boolean usesModel      = false ; // '$model' or '$selectedEntities'
+		private boolean dynamicInclude = false ; // '#parse' or '#include' with a non literal file name
+		private boolean usesExternalInput = false ; // '$loader' or '$databases'
+	}
+
+	/**
+	 * Returns the fingerprint of the given template and all its '#parse' / '#include' includes
+	 * @param templateFileName
+	 * @return
+	 * @throws IOException
+	 */
+	protected String getTemplateFingerprint(String templateFileName) throws IOException {
+		return getTemplateInfo(templateFileName).fingerprint ;
+	}
+
+	/**
+	 * Returns the analysis of the given template ( done once per generation run )
+	 * @param templateFileName
+	 * @return
+	 * @throws IOException
+	 */
+	protected TemplateInfo getTemplateInfo(String templateFileName) throws IOException {
+		TemplateInfo templateInfo = _templatesInfos.get(templateFileName);
+		if ( templateInfo == null ) {
+			templateInfo = new TemplateInfo();
+			MessageDigest md = newMessageDigest();
+			addTemplate(templateFileName, md, new ArrayList<String>(), templateInfo);
+			templateInfo.fingerprint = toHex(md.digest());
+			_templatesInfos.put(templateFileName, templateInfo);
+		}
+		return templateInfo ;
+	}
+
+	private void addTemplate(String templateFileName, MessageDigest md, List<String> alreadyAdded, 
+			TemplateInfo templateInfo) throws IOException {
+		if ( alreadyAdded.contains(templateFileName) ) {
+			return ; // recursive include
+		}
+		alreadyAdded.add(templateFileName);
+		File file = new File(_bundleFolder, templateFileName);
+		if ( ! file.isFile() ) {
+			md.update( ("(not found:" + templateFileName + ")").getBytes(UTF8) );
+			return ;
+		}
+		byte[] content = readFile(file);
+		md.update(templateFileName.getBytes(UTF8));
+		md.update(content);
+		String text = new String(content, UTF8);
+		if ( GENERATOR_PATTERN.matcher(text).find() ) {
+			templateInfo.usesGenerator = true ;
+		}
+		if ( MODEL_PATTERN.matcher(text).find() ) {
+			templateInfo.usesModel = true ;
+		}
+		if ( EXTERNAL_PATTERN.matcher(text).find() ) {
+			templateInfo.usesExternalInput = true ;
+		}
+		//--- Included templates
+		Matcher matcher = INCLUDE_PATTERN.matcher(text);
+		while ( matcher.find() ) {
+			Matcher literal = LITERAL_PATTERN.matcher(matcher.group(2));
+			if ( literal.matches() ) {
+				addTemplate(literal.group(1), md, alreadyAdded, templateInfo);
+			}
+			else {
+				templateInfo.dynamicInclude = true ; // the included file is known only at generation time
+			}
+		}
+	}
+
+	private byte[] readFile(File file) throws IOException {
+		byte[] content = new byte[(int) file.length()];
+		InputStream in = new FileInputStream(file);
+		try {
+			int offset = 0 ;
+			int len ;
+			while ( offset < content.length && ( len = in.read(content, offset, content.length - offset) ) > 0 ) {
+				offset += len ;
+			}
+		}
+		finally {
+			in.close();
+		}
+		return content ;
+	}
+
+	//------------------------------------------------------------------------------------------
+	// ENTITIES
+	//------------------------------------------------------------------------------------------
+	/**
+	 * Returns the fingerprint of the given entity including all the entities reachable through its links <br>
+	 * ( the links of the linked entities are followed too : '$link.targetEntity.links' can be used in a template )
+	 * @param entityClassName
+	 * @return
+	 */
+	protected String getEntityWithLinksFingerprint(String entityClassName) {
+		Entity entity = _model.getEntityByClassName(entityClassName);
+		if ( entity == null ) {
+			return "(no entity:" + entityClassName + ")" ;
+		}
+		//--- Sorted by table name => same fingerprint whatever the links order
+		TreeMap<String, String> linkedEntities = new TreeMap<String, String>();
+		IdentityHashMap<Entity, Entity> visited = new IdentityHashMap<Entity, Entity>();
+		LinkedList<Entity> toVisit = new LinkedList<Entity>();
+		visited.put(entity, entity);
+		toVisit.add(entity);
+		while ( ! toVisit.isEmpty() ) {
+			Entity current = toVisit.removeFirst();
+			if ( current.getLinks() != null ) {
+				for ( Link link : current.getLinks() ) {
+					Entity targetEntity = _model.getEntityByTableName(link.getTargetTableName());
+					if ( targetEntity != null && ! visited.containsKey(targetEntity) ) {
+						visited.put(targetEntity, targetEntity);
+						toVisit.add(targetEntity);
+						linkedEntities.put(link.getTargetTableName(), getEntityFingerprint(targetEntity));
+					}
+				}
+			}
+		}
+		StringBuilder sb = new StringBuilder();
+		sb.append(getEntityFingerprint(entity));
+		for ( Map.Entry<String, String> e : linkedEntities.entrySet() ) {
+			sb.append('|').append(e.getKey()).append('=').append(e.getValue());
+		}
+		return hash(sb.toString().getBytes(UTF8));
+	}
+
+	private String getSelectedEntitiesFingerprint() {
+		if ( _selectedEntitiesFingerprint == null ) {
+			StringBuilder sb = new StringBuilder();
+			//--- The whole model can be used by a "once" target
+			for ( Entity entity : _model.getEntities() ) {
+				sb.append(getEntityFingerprint(entity)).append('|');
+			}
+			sb.append("selected=").append(_selectedEntities);
+			_selectedEntitiesFingerprint = hash(sb.toString().getBytes(UTF8));
+		}
+		return _selectedEntitiesFingerprint ;
+	}
+
+	/**
+	 * Returns the fingerprint of the given entity (without the linked entities)
+	 * @param entity
+	 * @return
+	 */
+	protected String getEntityFingerprint(Entity entity) {
+		String key = entity.getClassName() ;
+		String fingerprint = _entitiesFingerprints.get(key);
+		if ( fingerprint == null ) {
+			StringBuilder sb = new StringBuilder();
+			describe(entity, sb, new IdentityHashMap<Object, Object>());
+			fingerprint = hash(sb.toString().getBytes(UTF8));
+			_entitiesFingerprints.put(key, fingerprint);
+		}
+		return fingerprint ;
+	}
+
+	/**
+	 * Appends the description of the given value in the StringBuilder <br>
+	 * For an object of the generic model : all the values returned by the interface getters
+	 * @param value
+	 * @param sb
+	 * @param visited
+	 */
+	private void describe(Object value, StringBuilder sb, IdentityHashMap<Object, Object> visited) {
+		if ( value == null ) {
+			sb.append("null");
+		}
+		else if ( value instanceof Collection<?> ) {
+			sb.append('[');
+			for ( Object o : (Collection<?>) value ) {
+				describe(o, sb, visited);
+				sb.append(',');
+			}
+			sb.append(']');
+		}
+		else if ( value.getClass().isArray() ) {
+			if ( value.getClass().getComponentType().isPrimitive() ) {
+				sb.append('[');
+				for ( int i = 0 ; i < Array.getLength(value) ; i++ ) {
+					sb.append(Array.get(value, i)).append(',');
+				}
+				sb.append(']');
+			}
+			else {
+				describe(Arrays.asList((Object[]) value), sb, visited);
+			}
+		}
+		else {
+			List<Method> getters = getModelGetters(value.getClass());
+			if ( getters.isEmpty() ) {
+				if ( hasValueText(value) ) {
+					sb.append(value); // String, Number, Boolean, enum, ...
+				}
+				else {
+					sb.append('(').append(value.getClass().getName()).append(')'); // no stable text ( identity hash )
+				}
+			}
+			else if ( visited.containsKey(value) ) {
+				sb.append("(ref)");
+			}
+			else {
+				visited.put(value, value);
+				sb.append('{');
+				for ( Method getter : getters ) {
+					sb.append(getter.getName()).append(':');
+					try {
+						describe(getter.invoke(value), sb, visited);
+					} catch (Exception e) {
+						sb.append("(error)");
+					}
+					sb.append(';');
+				}
+				sb.append('}');
+			}
+		}
+	}
+
+	/**
+	 * Returns true if the text of the given value is stable from one run to another <br>
+	 * ( value types and classes with their own 'toString' )
+	 * @param value
+	 * @return
+	 */
+	private static boolean hasValueText(Object value) {
+		if ( value instanceof CharSequence || value instanceof Number || value instanceof Boolean 
+				|| value instanceof Character || value instanceof Enum<?> ) {
+			return true ;
+		}
+		try {
+			return value.getClass().getMethod("toString").getDeclaringClass() != Object.class ;
+		} catch (NoSuchMethodException e) {
+			return false ;
+		}
+	}
+
+	/**
+	 * Returns the getters defined in the generic model interfaces implemented by the given class <br>
+	 * ( kept for this generation run only )
+	 * @param clazz
+	 * @return the getters sorted by name (void list if not a generic model class)
+	 */
+	private List<Method> getModelGetters(Class<?> clazz) {
+		List<Method> getters = _gettersCache.get(clazz);
+		if ( getters == null ) {
+			TreeMap<String, Method> methods = new TreeMap<String, Method>();
+			collectModelGetters(clazz, methods);
+			getters = new ArrayList<Method>(methods.values());
+			_gettersCache.put(clazz, getters);
+		}
+		return getters ;
+	}
+
+	private static void collectModelGetters(Class<?> clazz, Map<String, Method> methods) {
+		if ( clazz == null ) {
+			return ;
+		}
+		for ( Class<?> i : clazz.getInterfaces() ) {
+			if ( i.getPackage() != null && GENERIC_MODEL_PACKAGE.equals(i.getPackage().getName()) ) {
+				for ( Method m : i.getMethods() ) {
+					String name = m.getName();
+					if ( m.getParameterTypes().length == 0
+							&& ! Modifier.isStatic(m.getModifiers())
+							&& m.getReturnType() != Void.TYPE
+							&& ( name.startsWith("get") || name.startsWith("is") ) ) {
+						methods.put(name, m);
+					}
+				}
+			}
+			collectModelGetters(i, methods);
+		}
+		collectModelGetters(clazz.getSuperclass(), methods);
+	}
+
+	//------------------------------------------------------------------------------------------
+	// HASH
+	//------------------------------------------------------------------------------------------
+	private static MessageDigest newMessageDigest() {
+		try {
+			return MessageDigest.getInstance("SHA-1");
+		} catch (NoSuchAlgorithmException e) {
+			throw new IllegalStateException("SHA-1 not available", e);
+		}
+	}
+
+	private static String hash(byte[] bytes) {
+		return toHex(newMessageDigest().digest(bytes));
+	}
+
+	private static String toHex(byte[] bytes) {
+		StringBuilder sb = new StringBuilder(bytes.length * 2);
+		for ( byte b : bytes ) {
+			sb.append(Character.forDigit((b >> 4) & 0xF, 16));
+			sb.append(Character.forDigit(b & 0xF, 16));
+		}
+		return sb.toString();
+	}
+}
@@ -0,0 +1,266 @@
+/**
+ *  Copyright (C) 2008-2015  Telosys project org. ( http://www.telosys.org/ )
+ *
+ *  Licensed under the GNU LESSER GENERAL PUBLIC LICENSE, Version 3.0 (the "License");
+ *  you may not use this file except in compliance with the License.
+ *  You may obtain a copy of the License at
+ *
+ *          http://www.gnu.org/licenses/lgpl.html
+ *
+ *  Unless required by applicable law or agreed to in writing, software
+ *  distributed under the License is distributed on an "AS IS" BASIS,
+ *  WITHOUT WARRANTIES OR CONDITIONS OF ANY KIND, either express or implied.
+ *  See the License for the specific language governing permissions and
+ *  limitations under the License.
+ */
+package org.telosys.tools.generator.task;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStreamReader;
+import java.io.OutputStreamWriter;
+import java.nio.charset.Charset;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Manifest of the files generated in a destination folder ( used by the incremental generation ) <br>
+ *
+ * For each generated file : the fingerprint of the generation inputs, the bundle, the template and the entity <br>
+ * The manifest is stored in the destination folder ( file '.telosys-generation' ), one line per file : <br>
+ *   fingerprint TAB bundle TAB template TAB entity TAB file
+ *
+ * @author Laurent Guerin
+ *
+ */
+public class GenerationManifest {
+
+	public static final String MANIFEST_FILE_NAME = ".telosys-generation" ;
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+	private static final String  SEPARATOR = "\t" ;
+
+	/**
+	 * Manifest entry ( one for each generated file )
+	 */
+	public static class Entry {
+		private final String fingerprint ;
+		private final String bundleName ;
+		private final String templateName ;
+		private final String entityName ;
+		private final String fileName ;
+
+		public Entry(String fingerprint, String bundleName, String templateName, String entityName, String fileName) {
+			super();
+			this.fingerprint  = fingerprint ;
+			this.bundleName   = bundleName != null ? bundleName : "" ;
+			this.templateName = templateName != null ? templateName : "" ;
+			this.entityName   = entityName != null ? entityName : "" ;
+			this.fileName     = fileName ;
+		}
+		public String getFingerprint() {
+			return fingerprint;
+		}
+		public String getBundleName() {
+			return bundleName;
+		}
+		public String getTemplateName() {
+			return templateName;
+		}
+		public String getEntityName() {
+			return entityName;
+		}
+		public String getFileName() {
+			return fileName;
+		}
+		public String getGenerationKey() {
+			return generationKey(templateName, entityName);
+		}
+	}
+
+	/**
+	 * Returns the key identifying the generation of a template for an entity
+	 * @param templateName
+	 * @param entityName ( null or void for a "once" target )
+	 * @return
+	 */
+	public static String generationKey(String templateName, String entityName) {
+		return ( templateName != null ? templateName : "" ) + SEPARATOR + ( entityName != null ? entityName : "" ) ;
+	}
+
+	private final File                 _manifestFile ;
+	private final Map<String, Entry>   _entries = new TreeMap<String, Entry>(); // sorted => stable file content
+	private boolean                    _modified = false ;
+
+	/**
+	 * Constructor
+	 * @param destinationFolder the folder where the files are generated
+	 */
+	public GenerationManifest(String destinationFolder) {
+		super();
+		_manifestFile = new File(destinationFolder, MANIFEST_FILE_NAME);
+	}
+
+	public File getManifestFile() {
+		return _manifestFile ;
+	}
+
+	/**
+	 * Loads the manifest file if it exists
+	 * @throws IOException
+	 */
+	public void load() throws IOException {
+		_entries.clear();
+		_modified = false ;
+		if ( ! _manifestFile.isFile() ) {
+			return ;
+		}
+		BufferedReader reader = new BufferedReader(new InputStreamReader(new FileInputStream(_manifestFile), UTF8));
+		try {
+			String line ;
+			while ( ( line = reader.readLine() ) != null ) {
+				String[] parts = line.split(SEPARATOR, -1);
+				if ( parts.length == 5 ) {
+					Entry entry = new Entry(parts[0], parts[1], parts[2], parts[3], parts[4]);
+					_entries.put(entry.getFileName(), entry);
+				}
+				// else : invalid line => ignored (the file will be regenerated)
+			}
+		}
+		finally {
+			reader.close();
+		}
+	}
+
+	/**
+	 * Saves the manifest file if it has been modified since the last load
+	 * @throws IOException
+	 */
+	public void save() throws IOException {
+		if ( ! _modified ) {
+			return ;
+		}
+		File folder = _manifestFile.getParentFile();
+		if ( folder != null && ! folder.exists() ) {
+			folder.mkdirs();
+		}
+		BufferedWriter writer = new BufferedWriter(new OutputStreamWriter(new FileOutputStream(_manifestFile), UTF8));
+		try {
+			for ( Entry entry : _entries.values() ) {
+				writer.write(entry.getFingerprint() + SEPARATOR + entry.getBundleName() + SEPARATOR
+						+ entry.getTemplateName() + SEPARATOR + entry.getEntityName() + SEPARATOR + entry.getFileName() );
+				writer.newLine();
+			}
+		}
+		finally {
+			writer.close();
+		}
+		_modified = false ;
+	}
+
+	/**
+	 * Returns the entry for the given generated file (or null if none)
+	 * @param fileName
+	 * @return
+	 */
+	public Entry getEntry(String fileName) {
+		return _entries.get(fileName);
+	}
+
+	/**
+	 * Returns true if the given file exists and has been generated with the same inputs
+	 * @param fileName
+	 * @param fingerprint
+	 * @return
+	 */
+	public boolean isUpToDate(String fileName, String fingerprint) {
+		Entry entry = _entries.get(fileName);
+		return entry != null && entry.getFingerprint().equals(fingerprint) && new File(fileName).isFile() ;
+	}
+
+	/**
+	 * Set the entry for a generated file
+	 * @param entry
+	 */
+	public void putEntry(Entry entry) {
+		_entries.put(entry.getFileName(), entry);
+		_modified = true ;
+	}
+
+	/**
+	 * Removes the entry for the given file if any
+	 * @param fileName
+	 */
+	public void removeEntry(String fileName) {
+		if ( _entries.remove(fileName) != null ) {
+			_modified = true ;
+		}
+	}
+
+	public int size() {
+		return _entries.size();
+	}
+
+	/**
+	 * Returns the files generated by a previous run that cannot be generated anymore with the given bundle : <br>
+	 * the entity no longer exists in the model or the template no longer exists in the bundle
+	 * @param bundleName
+	 * @param bundleFolder
+	 * @param model
+	 * @return
+	 */
+	public List<String> findOrphanFiles(String bundleName, String bundleFolder, Model model) {
+		List<String> orphans = new LinkedList<String>();
+		for ( Entry entry : _entries.values() ) {
+			if ( entry.getBundleName().equals(bundleName) ) {
+				boolean orphan = false ;
+				if ( entry.getEntityName().length() > 0 && model.getEntityByClassName(entry.getEntityName()) == null ) {
+					orphan = true ; // entity removed from the model
+				}
+				else if ( ! new File(bundleFolder, entry.getTemplateName()).isFile() ) {
+					orphan = true ; // template removed from the bundle
+				}
+				if ( orphan && new File(entry.getFileName()).exists() ) {
+					orphans.add(entry.getFileName());
+				}
+			}
+		}
+		return orphans ;
+	}
+
+	/**
+	 * Removes the entries of the files generated by a previous run with a template and an entity of the current run, <br>
+	 * but not produced anymore by this run ( the output path has changed, e.g. after a variable change ) 
+	 * @param bundleName
+	 * @param generationKeys the generations of the current run ( see 'generationKey' )
+	 * @param outputFiles the files produced by the current run
+	 * @return the removed files that still exist ( orphan files )
+	 */
+	public List<String> removeMovedFiles(String bundleName, Collection<String> generationKeys, Collection<String> outputFiles) {
+		List<String> orphans = new LinkedList<String>();
+		Iterator<Entry> iterator = _entries.values().iterator();
+		while ( iterator.hasNext() ) {
+			Entry entry = iterator.next();
+			if ( entry.getBundleName().equals(bundleName) 
+					&& generationKeys.contains(entry.getGenerationKey()) 
+					&& ! outputFiles.contains(entry.getFileName()) ) {
+				iterator.remove();
+				_modified = true ;
+				if ( new File(entry.getFileName()).exists() ) {
+					orphans.add(entry.getFileName());
+				}
+			}
+		}
+		return orphans ;
+	}
+}
@@ -15,10 +15,14 @@
  */
 package org.telosys.tools.generator.task;
 
+import java.util.LinkedList;
+import java.util.List;
+
 import org.telosys.tools.generator.context.Target;
 
 /**
- * Generation task result 
+ * Generation task result <br>
+ * ( thread-safe : can be updated by the generation threads )
  * 
  * @author L. Guerin
  *
@@ -26,8 +30,14 @@ import org.telosys.tools.generator.context.Target;
 public class GenerationTaskResult {
 
 	private int numberOfResourcesCopied ;
+	private int numberOfResourcesSkipped ; // v 3.0.0
+	private long numberOfResourcesBytesCopied ; // v 3.0.0
 	private int numberOfFilesGenerated ;
 	private int numberOfGenerationErrors ;
+	private int numberOfFilesWritten ; // v 3.0.0
+	private int numberOfFilesUnchanged ; // v 3.0.0
+	private int numberOfTargetsSkipped ; // v 3.0.0
+	private final List<String> orphanFiles = new LinkedList<String>(); // v 3.0.0
 		
 	//--------------------------------------------------------------------------------------
 	/**
@@ -40,27 +50,101 @@ public class GenerationTaskResult {
 	}
 
 	//--------------------------------------------------------------------------------------
-	protected void setNumberOfResourcesCopied(int n) {
+	protected synchronized void setNumberOfResourcesCopied(int n) {
 		numberOfResourcesCopied = n;
 	}
-	public int getNumberOfResourcesCopied() {
+	public synchronized int getNumberOfResourcesCopied() {
 		return numberOfResourcesCopied;
 	}
 
 	//--------------------------------------------------------------------------------------
-	protected void incrementNumberOfFilesGenerated() {
+	protected synchronized void setNumberOfResourcesSkipped(int n) {
+		numberOfResourcesSkipped = n;
+	}
+	/**
+	 * Returns the number of resources files not copied ( up to date or not overwritten )
+	 * @return
+	 */
+	public synchronized int getNumberOfResourcesSkipped() {
+		return numberOfResourcesSkipped;
+	}
+
+	//--------------------------------------------------------------------------------------
+	protected synchronized void setNumberOfResourcesBytesCopied(long n) {
+		numberOfResourcesBytesCopied = n;
+	}
+	/**
+	 * Returns the number of bytes copied for the resources files
+	 * @return
+	 */
+	public synchronized long getNumberOfResourcesBytesCopied() {
+		return numberOfResourcesBytesCopied;
+	}
+
+	//--------------------------------------------------------------------------------------
+	protected synchronized void incrementNumberOfFilesGenerated() {
 		numberOfFilesGenerated++;
 	}
-	public int getNumberOfFilesGenerated() {
+	public synchronized int getNumberOfFilesGenerated() {
 		return numberOfFilesGenerated;
 	}
 	
 	//--------------------------------------------------------------------------------------
-	protected void addGenerationError(Target target) {
+	protected synchronized void incrementNumberOfFilesWritten() {
+		numberOfFilesWritten++;
+	}
+	/**
+	 * Returns the number of generated files written on the disk 
+	 * @return
+	 */
+	public synchronized int getNumberOfFilesWritten() {
+		return numberOfFilesWritten;
+	}
+	
+	//--------------------------------------------------------------------------------------
+	protected synchronized void incrementNumberOfFilesUnchanged() {
+		numberOfFilesUnchanged++;
+	}
+	/**
+	 * Returns the number of generated files not written because the existing file has the same content
+	 * @return
+	 */
+	public synchronized int getNumberOfFilesUnchanged() {
+		return numberOfFilesUnchanged;
+	}
+	
+	//--------------------------------------------------------------------------------------
+	protected synchronized void incrementNumberOfTargetsSkipped() {
+		numberOfTargetsSkipped++;
+	}
+	/**
+	 * Returns the number of targets not generated <br>
+	 * ( up to date in incremental generation, or task cancelled before their generation )
+	 * @return
+	 */
+	public synchronized int getNumberOfTargetsSkipped() {
+		return numberOfTargetsSkipped;
+	}
+	
+	//--------------------------------------------------------------------------------------
+	protected synchronized void addOrphanFile(String fileName) {
+		orphanFiles.add(fileName);
+	}
+	/**
+	 * Returns the files generated by a previous run with an entity or a template that no longer exists <br>
+	 * ( only in incremental generation, the files are not removed )
+	 * @return
+	 */
+	public synchronized List<String> getOrphanFiles() {
+		return new LinkedList<String>(orphanFiles);
+	}
+	
+	//--------------------------------------------------------------------------------------
+	protected synchronized void addGenerationError(Target target) {
 		numberOfGenerationErrors++;
 		//target.
 	}
-	public int getNumberOfGenerationErrors() {
+	public synchronized int getNumberOfGenerationErrors() {
 		return numberOfGenerationErrors;
 	}
 	
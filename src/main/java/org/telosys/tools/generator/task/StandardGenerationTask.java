@@ -130,6 +130,7 @@ public class StandardGenerationTask extends AbstractGenerationTask implements Ge
 			msgBoxInfo("END OF GENERATION" 
 					+ "\n\n" + generationTaskResult.getNumberOfResourcesCopied() + " resources(s) copied."
 					+ "\n\n" + generationTaskResult.getNumberOfFilesGenerated() + " file(s) generated."
+					+ "\n\n" + generationTaskResult.getNumberOfFilesUnchanged() + " file(s) unchanged."
 					+ "\n\n" + generationTaskResult.getNumberOfGenerationErrors() + " generation error(s).");
 			
 		} catch (InvocationTargetException invocationTargetException) {
@@ -140,6 +141,7 @@ public class StandardGenerationTask extends AbstractGenerationTask implements Ge
 			msgBoxInfo("GENERATION CANCELED" 
 					+ "\n\n" + generationTaskResult.getNumberOfResourcesCopied() + " resources(s) copied."
 					+ "\n\n" + generationTaskResult.getNumberOfFilesGenerated() + " file(s) generated."
+					+ "\n\n" + generationTaskResult.getNumberOfFilesUnchanged() + " file(s) unchanged."
 					+ "\n\n" + generationTaskResult.getNumberOfGenerationErrors() + " generation error(s).");
 		}
 		
@@ -0,0 +1,96 @@
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+
+import junit.env.telosys.tools.generator.TestsEnv;
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.dbcfg.DatabasesConfigurations;
+import org.telosys.tools.generator.context.DatabasesInContext;
+
+public class DatabasesConfigurationsCacheTest extends TestCase {
+
+	public void testNoFile() {
+		DatabasesConfigurationsCache cache = new DatabasesConfigurationsCache();
+		String fileName = new File("no-such-dir/databases.dbcfg").getPath();
+
+		DatabasesConfigurations dbcfg1 = cache.getDatabasesConfigurations(fileName);
+		assertNotNull(dbcfg1);
+		assertEquals(1, cache.getLoadsCount());
+
+		//--- Same file (not modified) => no reload
+		assertTrue(dbcfg1 == cache.getDatabasesConfigurations(fileName));
+		DatabasesInContext databases = cache.getDatabasesInContext(fileName);
+		assertTrue(databases == cache.getDatabasesInContext(fileName));
+		assertEquals(1, cache.getLoadsCount());
+
+		//--- Invalidation => reload
+		cache.invalidate(fileName);
+		assertFalse(dbcfg1 == cache.getDatabasesConfigurations(fileName));
+		assertEquals(2, cache.getLoadsCount());
+		cache.invalidateAll();
+		cache.getDatabasesConfigurations(fileName);
+		assertEquals(3, cache.getLoadsCount());
+	}
+
+	private File copyDbcfgFile() throws IOException {
+		File original = TestsEnv.getTestFile("myproject/TelosysTools/databases.dbcfg");
+		File copy = File.createTempFile("databases", ".dbcfg");
+		copy.deleteOnExit();
+		InputStream in = new FileInputStream(original);
+		try {
+			OutputStream out = new FileOutputStream(copy);
+			try {
+				byte[] buf = new byte[4096];
+				int len;
+				while ((len = in.read(buf)) > 0) {
+					out.write(buf, 0, len);
+				}
+			} finally {
+				out.close();
+			}
+		} finally {
+			in.close();
+		}
+		return copy ;
+	}
+
+	public void testReloadWhenFileChanged() throws IOException {
+		DatabasesConfigurationsCache cache = new DatabasesConfigurationsCache();
+		File file = copyDbcfgFile();
+		String fileName = file.getAbsolutePath();
+
+		DatabasesConfigurations dbcfg1 = cache.getDatabasesConfigurations(fileName);
+		assertNotNull(dbcfg1);
+		assertEquals(1, cache.getLoadsCount());
+
+		//--- Same file (not modified) => cache hit
+		assertTrue(dbcfg1 == cache.getDatabasesConfigurations(fileName));
+		assertEquals(1, cache.getLoadsCount());
+
+		//--- 'last modified' changed => reload
+		long lastModified = file.lastModified() + 10000 ;
+		assertTrue(file.setLastModified(lastModified));
+		DatabasesConfigurations dbcfg2 = cache.getDatabasesConfigurations(fileName);
+		assertFalse(dbcfg1 == dbcfg2);
+		assertEquals(2, cache.getLoadsCount());
+		assertTrue(dbcfg2 == cache.getDatabasesConfigurations(fileName));
+		assertEquals(2, cache.getLoadsCount());
+
+		//--- Size changed with the same 'last modified' => reload
+		OutputStream out = new FileOutputStream(file, true);
+		try {
+			out.write("\n".getBytes());
+		} finally {
+			out.close();
+		}
+		assertTrue(file.setLastModified(lastModified));
+		assertFalse(dbcfg2 == cache.getDatabasesConfigurations(fileName));
+		assertEquals(3, cache.getLoadsCount());
+	}
+}
@@ -0,0 +1,91 @@
+package org.telosys.tools.generator;
+
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.charset.Charset;
+import java.util.Arrays;
+
+import junit.framework.TestCase;
+
+public class GeneratedFileWriterTest extends TestCase {
+
+	private String buildContent(int lines) {
+		StringBuilder sb = new StringBuilder();
+		for ( int i = 0 ; i < lines ; i++ ) {
+			sb.append("Line " + i + " : caf\u00E9 \u00E0 la cr\u00E8me \u20AC\n");
+		}
+		return sb.toString();
+	}
+
+	private byte[] readFile(File file) throws IOException {
+		InputStream in = new FileInputStream(file);
+		try {
+			ByteArrayOutputStream out = new ByteArrayOutputStream();
+			byte[] buf = new byte[4096];
+			int len;
+			while ((len = in.read(buf)) > 0) {
+				out.write(buf, 0, len);
+			}
+			return out.toByteArray();
+		} finally {
+			in.close();
+		}
+	}
+
+	public void testWriteLargeFile() throws IOException {
+		Charset utf8 = Charset.forName("UTF-8");
+		String content = buildContent(10000) ; // more than one buffer
+		File file = File.createTempFile("generated", ".txt");
+		file.deleteOnExit();
+
+		GeneratedFileWriter writer = new GeneratedFileWriter(utf8);
+		writer.write(content, file);
+		assertTrue(Arrays.equals(content.getBytes("UTF-8"), readFile(file)));
+
+		//--- Same file rewritten with a shorter content 
+		writer.write("abc", file);
+		assertEquals(3, file.length());
+	}
+
+	public void testToBytes() throws IOException {
+		String content = buildContent(5000) ;
+		Charset iso = Charset.forName("ISO-8859-1");
+		GeneratedFileWriter writer = new GeneratedFileWriter(iso);
+		assertTrue(Arrays.equals(content.getBytes("ISO-8859-1"), writer.toBytes(content)));
+		assertEquals(0, writer.toBytes("").length);
+	}
+
+	public void testWriteIfChanged() throws IOException {
+		Charset utf8 = Charset.forName("UTF-8");
+		File file = File.createTempFile("generated", ".txt");
+		file.deleteOnExit();
+		assertTrue(file.delete());
+		GeneratedFileWriter writer = new GeneratedFileWriter(utf8);
+
+		assertTrue(writer.writeIfChanged("abc", file)); // new file
+		assertFalse(writer.writeIfChanged("abc", file)); // same content
+		assertTrue(writer.writeIfChanged("abd", file)); // same size, other content
+		assertTrue(writer.writeIfChanged("abcd", file)); // other size
+		assertTrue(Arrays.equals("abcd".getBytes("UTF-8"), readFile(file)));
+	}
+
+	public void testHasSameContentLargeFile() throws IOException {
+		Charset utf8 = Charset.forName("UTF-8");
+		String content = buildContent(10000) ; // more than one buffer
+		File file = File.createTempFile("generated", ".txt");
+		file.deleteOnExit();
+		GeneratedFileWriter writer = new GeneratedFileWriter(utf8);
+		writer.write(content, file);
+
+		assertTrue(writer.hasSameContent(content, file));
+		assertFalse(writer.hasSameContent("X" + content.substring(1), file)); // 1st chunk
+		assertFalse(writer.hasSameContent(content.substring(0, content.length() - 1) + "X", file)); // last chunk
+		assertFalse(writer.hasSameContent(content.substring(0, content.length() - 1), file)); // file longer
+		assertFalse(writer.hasSameContent(content + "X", file)); // file shorter
+		assertFalse(writer.hasSameContent("abc", file)); // file too long for the content
+		assertFalse(writer.writeIfChanged(content, file));
+	}
+}
@@ -0,0 +1,86 @@
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.util.LinkedList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+
+import junit.framework.TestCase;
+
+public class OutputDirectoriesTest extends TestCase {
+
+	private File newRoot() {
+		return new File(System.getProperty("java.io.tmpdir"), "output-dirs-" + System.nanoTime());
+	}
+
+	public void testCheckDirectory() throws GeneratorException {
+		File root = newRoot();
+		File dir = new File(root, "src/main/java/org/demo");
+		OutputDirectories outputDirectories = new OutputDirectories();
+		assertFalse(outputDirectories.isKnown(dir));
+		outputDirectories.checkDirectory(dir, true);
+		assertTrue(dir.isDirectory());
+		assertTrue(outputDirectories.isKnown(dir));
+		assertEquals(1, outputDirectories.getNumberOfDirectoriesCreated());
+		outputDirectories.checkDirectory(dir, true);
+		assertEquals(1, outputDirectories.getNumberOfDirectoriesCreated());
+		assertEquals(1, outputDirectories.getNumberOfKnownDirectories());
+	}
+
+	public void testCheckDirectoryWithoutCreation() {
+		File dir = new File(newRoot(), "foo");
+		OutputDirectories outputDirectories = new OutputDirectories();
+		try {
+			outputDirectories.checkDirectory(dir, false);
+			fail("GeneratorException expected");
+		} catch (GeneratorException e) {
+			assertFalse(outputDirectories.isKnown(dir));
+		}
+	}
+
+	public void testCreateDirectories() throws GeneratorException {
+		File root = newRoot();
+		List<File> directories = new LinkedList<File>();
+		for ( int i = 0 ; i < 20 ; i++ ) {
+			directories.add(new File(root, "src/main/java/org/demo/bean"));
+			directories.add(new File(root, "src/main/java/org/demo/dao"));
+		}
+		directories.add(new File(root, "src/test/java/org/demo"));
+		OutputDirectories outputDirectories = new OutputDirectories();
+		outputDirectories.createDirectories(directories);
+		assertEquals(3, outputDirectories.getNumberOfDirectoriesCreated());
+		assertEquals(3, outputDirectories.getNumberOfKnownDirectories());
+		assertTrue(new File(root, "src/main/java/org/demo/dao").isDirectory());
+	}
+
+	public void testConcurrentCreation() throws InterruptedException {
+		final File dir = new File(newRoot(), "src/main/java/org/demo/bean");
+		final OutputDirectories outputDirectories = new OutputDirectories();
+		final CountDownLatch start = new CountDownLatch(1);
+		final List<Throwable> errors = new LinkedList<Throwable>();
+		Thread[] threads = new Thread[8];
+		for ( int i = 0 ; i < threads.length ; i++ ) {
+			threads[i] = new Thread() {
+				@Override
+				public void run() {
+					try {
+						start.await();
+						outputDirectories.checkDirectory(dir, true);
+					} catch (Throwable e) {
+						synchronized (errors) {
+							errors.add(e);
+						}
+					}
+				}
+			};
+			threads[i].start();
+		}
+		start.countDown();
+		for ( Thread thread : threads ) {
+			thread.join();
+		}
+		assertTrue(errors.isEmpty());
+		assertTrue(dir.isDirectory());
+		assertTrue(outputDirectories.isKnown(dir));
+	}
+}
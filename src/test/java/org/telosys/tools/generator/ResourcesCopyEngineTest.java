@@ -0,0 +1,164 @@
+package org.telosys.tools.generator;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.io.CopyHandler;
+import org.telosys.tools.commons.io.OverwriteChooser;
+
+public class ResourcesCopyEngineTest extends TestCase {
+
+	private static class CountingHandler implements CopyHandler {
+		int copied = 0 ;
+		int notCopied = 0 ;
+		public void beforeCopy(File origin, File destination) { }
+		public void afterFileCopy(File origin, File destination) { copied++ ; }
+		public void afterFileNotCopied(File origin, File destination) { notCopied++ ; }
+	}
+
+	private static class FixedChooser implements OverwriteChooser {
+		final int choice ;
+		int calls = 0 ;
+		FixedChooser(int choice) { this.choice = choice ; }
+		public int choose(File sourceFile, File destinationFile) { calls++ ; return choice ; }
+	}
+
+	private File newFolder(String name) {
+		File folder = new File(System.getProperty("java.io.tmpdir"), name + "-" + System.nanoTime());
+		folder.mkdirs();
+		return folder ;
+	}
+
+	private void writeFile(File file, String content) throws IOException {
+		file.getParentFile().mkdirs();
+		FileWriter writer = new FileWriter(file);
+		writer.write(content);
+		writer.close();
+	}
+
+	private ResourcesCopyResult copy(File origin, File destination, OverwriteChooser chooser, CopyHandler handler) throws GeneratorException {
+		List<File> origins = new LinkedList<File>();
+		origins.add(origin);
+		List<File> destinations = new LinkedList<File>();
+		destinations.add(destination);
+		return new ResourcesCopyEngine(chooser, handler).copy(origins, destinations);
+	}
+
+	public void testCopyFolder() throws Exception {
+		File origin = newFolder("resources");
+		for ( int i = 0 ; i < 10 ; i++ ) {
+			writeFile(new File(origin, "css/style" + i + ".css"), "body { margin: " + i + "px; }");
+		}
+		writeFile(new File(origin, "index.html"), "<html></html>");
+		File destination = newFolder("webapp");
+
+		CountingHandler handler = new CountingHandler();
+		ResourcesCopyResult result = copy(origin, destination, null, handler);
+		assertEquals(11, result.getNumberOfFilesCopied());
+		assertEquals(0, result.getNumberOfFilesSkipped());
+		assertEquals(11, handler.copied);
+		assertTrue(new File(destination, "css/style9.css").exists());
+		assertEquals(13, new File(destination, "index.html").length());
+		assertTrue(result.getNumberOfBytesCopied() > 13);
+
+		//--- Second copy : all the files are up to date
+		FixedChooser chooser = new FixedChooser(OverwriteChooser.YES);
+		handler = new CountingHandler();
+		result = copy(origin, destination, chooser, handler);
+		assertEquals(0, result.getNumberOfFilesCopied());
+		assertEquals(11, result.getNumberOfFilesSkipped());
+		assertEquals(11, handler.notCopied);
+		assertEquals(0, chooser.calls); // no question for the up to date files
+	}
+
+	public void testStartAndCancel() throws Exception {
+		File origin = newFolder("resources");
+		for ( int i = 0 ; i < 50 ; i++ ) {
+			writeFile(new File(origin, "js/file" + i + ".js"), "var x = " + i + ";");
+		}
+		List<File> origins = new LinkedList<File>();
+		origins.add(origin);
+		List<File> destinations = new LinkedList<File>();
+		destinations.add(newFolder("webapp"));
+
+		//--- Started in background, then waited
+		CountingHandler handler = new CountingHandler();
+		ResourcesCopyEngine.RunningCopy runningCopy = new ResourcesCopyEngine(null, handler).start(origins, destinations);
+		assertEquals(0, handler.copied); // notified only by 'waitForEnd'
+		ResourcesCopyResult result = runningCopy.waitForEnd();
+		assertEquals(50, result.getNumberOfFilesCopied());
+		assertEquals(50, handler.copied);
+
+		//--- Canceled : the files not yet copied are skipped
+		destinations.clear();
+		destinations.add(newFolder("webapp"));
+		handler = new CountingHandler();
+		ResourcesCopyEngine engine = new ResourcesCopyEngine(null, handler);
+		engine.setParallelism(1);
+		runningCopy = engine.start(origins, destinations);
+		runningCopy.cancel();
+		result = runningCopy.waitForEnd();
+		assertEquals(50, result.getNumberOfFilesCopied() + result.getNumberOfFilesSkipped());
+		assertEquals(result.getNumberOfFilesCopied(), handler.copied);
+		assertEquals(result.getNumberOfFilesSkipped(), handler.notCopied);
+	}
+
+	public void testSameDestination() throws Exception {
+		File origin1 = newFolder("resources");
+		File origin2 = newFolder("resources");
+		for ( int i = 0 ; i < 20 ; i++ ) {
+			writeFile(new File(origin1, "file" + i + ".txt"), "first");
+			writeFile(new File(origin2, "file" + i + ".txt"), "second resource");
+		}
+		File destination = newFolder("webapp");
+		List<File> origins = new LinkedList<File>();
+		origins.add(origin1);
+		origins.add(origin2);
+		List<File> destinations = new LinkedList<File>();
+		destinations.add(destination);
+		destinations.add(destination);
+
+		CountingHandler handler = new CountingHandler();
+		ResourcesCopyResult result = new ResourcesCopyEngine(null, handler).copy(origins, destinations);
+		//--- Each destination file written once : the last one wins
+		assertEquals(20, result.getNumberOfFilesCopied());
+		assertEquals(20, result.getNumberOfFilesSkipped());
+		assertEquals(20, handler.copied);
+		assertEquals(20, handler.notCopied);
+		for ( int i = 0 ; i < 20 ; i++ ) {
+			assertEquals(15, new File(destination, "file" + i + ".txt").length());
+		}
+	}
+
+	public void testOverwriteChooser() throws Exception {
+		File origin = newFolder("resources");
+		writeFile(new File(origin, "a.txt"), "aaa");
+		writeFile(new File(origin, "b.txt"), "bbb");
+		File destination = newFolder("webapp");
+		writeFile(new File(destination, "a.txt"), "old a");
+		writeFile(new File(destination, "b.txt"), "old b");
+
+		FixedChooser chooser = new FixedChooser(OverwriteChooser.NO_TO_ALL);
+		ResourcesCopyResult result = copy(origin, destination, chooser, null);
+		assertEquals(1, chooser.calls); // 'no to all' kept for the next file
+		assertEquals(0, result.getNumberOfFilesCopied());
+		assertEquals(2, result.getNumberOfFilesSkipped());
+
+		chooser = new FixedChooser(OverwriteChooser.CANCEL);
+		result = copy(origin, destination, chooser, null);
+		assertTrue(result.isCanceled());
+		assertEquals(0, result.getNumberOfFilesCopied());
+		assertEquals(5, new File(destination, "a.txt").length()); // not copied
+
+		chooser = new FixedChooser(OverwriteChooser.YES);
+		result = copy(origin, destination, chooser, null);
+		assertEquals(2, chooser.calls);
+		assertEquals(2, result.getNumberOfFilesCopied());
+		assertEquals(3, new File(destination, "a.txt").length());
+	}
+}
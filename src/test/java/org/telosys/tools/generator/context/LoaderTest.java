@@ -0,0 +1,123 @@
+package org.telosys.tools.generator.context;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+
+import javax.tools.JavaCompiler;
+import javax.tools.ToolProvider;
+
+import junit.framework.TestCase;
+
+import org.telosys.tools.generator.GeneratorException;
+
+public class LoaderTest extends TestCase {
+
+	@StatelessTool
+	public static class MyStatelessTool {
+		public String hello() { return "hello" ; }
+	}
+	
+	private Loader buildLoader() {
+		File folder = new File(System.getProperty("java.io.tmpdir"), "loader-test-templates");
+		return new Loader(folder.getAbsolutePath());
+	}
+	
+	public void testLoadClass() throws GeneratorException {
+		Loader loader = buildLoader();
+		Class<?> c1 = loader.loadClass("java.lang.String");
+		Class<?> c2 = loader.loadClass("java.lang.String");
+		assertTrue(c1 == c2);
+		assertEquals(1, loader.getClassLoadersCount()); // same class loader for all the calls
+		loader.close();
+		loader.loadClass("java.lang.String");
+		assertEquals(2, loader.getClassLoadersCount());
+		loader.close();
+	}
+
+	public void testNewInstance() throws GeneratorException {
+		Loader loader = buildLoader();
+		Object sb1 = loader.newInstance("java.lang.StringBuilder");
+		Object sb2 = loader.newInstance("java.lang.StringBuilder");
+		assertFalse(sb1 == sb2);
+		Object tool1 = loader.newInstance(MyStatelessTool.class.getName());
+		Object tool2 = loader.newInstance(MyStatelessTool.class.getName());
+		assertTrue(tool1 == tool2); // stateless : shared instance
+		assertEquals(1, loader.getClassLoadersCount());
+		loader.close();
+	}
+	
+	public void testCheckForChanges() throws GeneratorException {
+		Loader loader = buildLoader();
+		assertFalse(loader.checkForChanges()); // nothing loaded
+		loader.loadClass("java.lang.Math");
+		assertFalse(loader.checkForChanges()); // no change
+		assertEquals(1, loader.getClassLoadersCount());
+		loader.close();
+	}
+
+	public void testUnknownClass() {
+		Loader loader = buildLoader();
+		try {
+			loader.loadClass("org.demo.NoSuchClass");
+			fail("GeneratorException expected");
+		} catch (GeneratorException e) {
+			// expected
+		}
+		loader.close();
+	}
+
+	public void testReloadSpecificClass() throws GeneratorException, IOException, ClassNotFoundException {
+		JavaCompiler compiler = ToolProvider.getSystemJavaCompiler();
+		if ( compiler == null ) {
+			System.out.println("No Java compiler (JRE) : test skipped");
+			return ;
+		}
+		//--- Specific class compiled in the 'classes' folder of a templates folder
+		File templatesFolder = new File(System.getProperty("java.io.tmpdir"), "loader-test-" + System.nanoTime());
+		File classesFolder = new File(templatesFolder, "classes");
+		File sourceFolder = new File(templatesFolder, "src/org/demo");
+		assertTrue(classesFolder.mkdirs());
+		assertTrue(sourceFolder.mkdirs());
+		File sourceFile = new File(sourceFolder, "Foo.java");
+		FileWriter writer = new FileWriter(sourceFile);
+		try {
+			writer.write("package org.demo; public class Foo { public String hello() { return \"hello\"; } }");
+		} finally {
+			writer.close();
+		}
+		File sourceFile2 = new File(sourceFolder, "Bar.java");
+		writer = new FileWriter(sourceFile2);
+		try {
+			writer.write("package org.demo; public class Bar { }");
+		} finally {
+			writer.close();
+		}
+		assertEquals(0, compiler.run(null, null, null, "-d", classesFolder.getAbsolutePath(), 
+				sourceFile.getAbsolutePath(), sourceFile2.getAbsolutePath()));
+		File classFile = new File(classesFolder, "org/demo/Foo.class");
+		assertTrue(classFile.isFile());
+
+		Loader loader = new Loader(templatesFolder.getAbsolutePath());
+		Class<?> c1 = loader.loadClass("org.demo.Foo");
+		assertFalse(c1.getClassLoader() == getClass().getClassLoader()); // loaded from the 'classes' folder
+		assertTrue(c1 == loader.loadClass("org.demo.Foo"));
+		assertEquals(1, loader.getClassLoadersCount());
+
+		//--- Class recompiled in its package folder ( the 'classes' folder date is not changed )
+		long classesFolderLastModified = classesFolder.lastModified();
+		assertTrue(classFile.setLastModified(classFile.lastModified() + 10000));
+		assertEquals(classesFolderLastModified, classesFolder.lastModified());
+		assertTrue(c1 == loader.loadClass("org.demo.Foo")); // no check for each call
+		assertTrue(loader.checkForChanges());
+		assertFalse(loader.checkForChanges());
+		Class<?> c2 = loader.loadClass("org.demo.Foo");
+		assertFalse(c1 == c2); // new class loader
+		assertEquals(2, loader.getClassLoadersCount());
+		assertTrue(c2 == loader.loadClass("org.demo.Foo"));
+		
+		//--- The replaced class loader is still usable until the end of the run ( lazy loading )
+		assertEquals("org.demo.Bar", c1.getClassLoader().loadClass("org.demo.Bar").getName());
+		loader.close();
+	}
+}
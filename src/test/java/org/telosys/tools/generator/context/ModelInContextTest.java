@@ -0,0 +1,407 @@
+package org.telosys.tools.generator.context;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import junit.env.telosys.tools.generator.TestsProject;
+import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
+import junit.framework.TestCase;
+
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.task.TelosysProject;
+import org.telosys.tools.generic.model.Model;
+
+public class ModelInContextTest extends TestCase {
+
+	/**
+	 * Returns the model of the tests 'dbrep' file ( with links and composite keys )
+	 * @return
+	 * @throws Exception
+	 */
+	private ModelInContext buildDbRepModel() throws Exception {
+		TelosysProject telosysProject = TestsProject.initProjectEnv("myproject", TestsProject.BUNDLE_NAME) ;
+		Model model = telosysProject.loadModelFromDbRep(TestsProject.REPO_FILENAME);
+		return new ModelInContext(model, "org.demo", null);
+	}
+
+	/**
+	 * Returns the links of the given entity using the given column as 'join column' ( links scan )
+	 * @param entity
+	 * @param columnName
+	 * @param owningSide
+	 * @param selectedOnly
+	 * @return
+	 */
+	private List<LinkInContext> scanLinksUsingColumn(EntityInContext entity, String columnName, 
+			boolean owningSide, boolean selectedOnly) {
+		List<LinkInContext> links = new ArrayList<LinkInContext>();
+		for ( LinkInContext link : entity.getLinks() ) {
+			if ( link.isOwningSide() == owningSide && ( link.isSelected() || ! selectedOnly ) ) {
+				for ( JoinColumnInContext joinColumn : link.getJoinColumns() ) {
+					if ( joinColumn.getName().equals(columnName) ) {
+						links.add(link);
+						break ;
+					}
+				}
+			}
+		}
+		return links ;
+	}
+
+	public void testSharedModelWithBoundEnv() throws GeneratorException {
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null);
+		EntityInContext entity = model.getEntityByClassName("Author");
+		assertNotNull(entity);
+		assertEquals("Author", entity.getName());
+
+		//--- 1st generation with its own env
+		EnvInContext env1 = new EnvInContext();
+		EnvInContext previous1 = model.bindEnv(env1);
+		assertNull(previous1);
+		env1.setEntityClassNamePrefix("Bean");
+		assertEquals("BeanAuthor", entity.getName());
+		assertEquals("org.demo.BeanAuthor", entity.getFullName());
+
+		//--- Nested generation (embedded generator) with another env
+		EnvInContext env2 = new EnvInContext();
+		EnvInContext previous2 = model.bindEnv(env2);
+		assertTrue(previous2 == env1);
+		assertEquals("Author", entity.getName());
+		env2.setEntityClassNameSuffix("Entity");
+		assertEquals("AuthorEntity", entity.getName());
+		model.restoreEnv(previous2);
+
+		//--- Back in the 1st generation
+		assertEquals("BeanAuthor", entity.getName());
+		model.restoreEnv(previous1);
+
+		//--- No more env
+		assertEquals("Author", entity.getName());
+	}
+
+	public void testAttributesLookup() throws GeneratorException {
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null);
+		EntityInContext entity = model.getEntityByClassName("Author");
+		assertEquals(1, entity.getAttributesCount());
+		AttributeInContext attribute = entity.getAttributes().get(0);
+		assertTrue(attribute == entity.getAttributeByColumnName("FIRST_NAME"));
+		assertTrue(attribute == entity.getAttributeByName("firstName"));
+		try {
+			entity.getAttributeByColumnName("NO_COLUMN");
+			fail("GeneratorException expected");
+		} catch (GeneratorException e) {
+			// expected
+		}
+		try {
+			entity.getAttributes().add(attribute);
+			fail("UnsupportedOperationException expected");
+		} catch (UnsupportedOperationException e) {
+			// expected : immutable list
+		}
+	}
+
+	public void testAttributesByCriteria() throws GeneratorException {
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null);
+		EntityInContext entity = model.getEntityByClassName("Author");
+
+		assertEquals(0, entity.getAttributesByCriteria(Const.KEY).size());
+		assertEquals(1, entity.getAttributesByCriteria(Const.NOT_KEY).size());
+		assertEquals(1, entity.getAttributesByCriteria(Const.NOT_KEY, Const.NOT_IN_SELECTED_LINKS).size());
+		assertEquals(0, entity.getAttributesByCriteria(Const.NOT_KEY, Const.IN_LINKS).size());
+		//--- 'NOT' has priority if both are given
+		assertEquals(1, entity.getAttributesByCriteria(Const.TEXT, Const.NOT_TEXT).size());
+
+		//--- Same criteria => same list
+		assertTrue(entity.getAttributesByCriteria(Const.NOT_KEY) == entity.getAttributesByCriteria(Const.NOT_KEY));
+	}
+
+	/**
+	 * Returns the attributes matching the given added criteria with a scan of the attributes and links <br>
+	 * ( reference result, without the memoized criteria )
+	 * @param entity
+	 * @param criteria
+	 * @return
+	 */
+	private List<AttributeInContext> scanAttributesByCriteria(EntityInContext entity, int criteria) {
+		List<LinkInContext> allLinks = entity.getLinks();
+		List<LinkInContext> selectedLinks = new ArrayList<LinkInContext>(entity.getSelectedLinks());
+		List<AttributeInContext> list = new ArrayList<AttributeInContext>();
+		for ( AttributeInContext attribute : entity.getAttributes() ) {
+			List<Boolean> checks = new ArrayList<Boolean>();
+			if ( ( criteria & Const.NOT_KEY ) != 0 ) checks.add( ! attribute.isKeyElement() );
+			else if ( ( criteria & Const.KEY ) != 0 ) checks.add( attribute.isKeyElement() );
+			if ( ( criteria & Const.NOT_TEXT ) != 0 ) checks.add( ! attribute.isLongText() );
+			else if ( ( criteria & Const.TEXT ) != 0 ) checks.add( attribute.isLongText() );
+			if ( ( criteria & Const.NOT_IN_LINKS ) != 0 ) checks.add( ! attribute.isUsedInLinkJoinColumn(allLinks) );
+			else if ( ( criteria & Const.IN_LINKS ) != 0 ) checks.add( attribute.isUsedInLinkJoinColumn(allLinks) );
+			if ( ( criteria & Const.NOT_IN_SELECTED_LINKS ) != 0 ) checks.add( ! attribute.isUsedInLinkJoinColumn(selectedLinks) );
+			else if ( ( criteria & Const.IN_SELECTED_LINKS ) != 0 ) checks.add( attribute.isUsedInLinkJoinColumn(selectedLinks) );
+			if ( ! checks.isEmpty() && ! checks.contains(Boolean.FALSE) ) {
+				list.add(attribute);
+			}
+		}
+		return list ;
+	}
+
+	public void testAttributesByCriteriaWithLinks() throws Exception {
+		ModelInContext model = buildDbRepModel();
+		//--- Composite key, both key attributes used in links
+		EntityInContext bookOrderItem = model.getEntityByClassName("BookOrderItem");
+		assertEquals(2, bookOrderItem.getAttributesByCriteria(Const.KEY).size());
+		assertEquals(2, bookOrderItem.getAttributesByCriteria(Const.KEY, Const.IN_LINKS).size());
+		assertEquals(2, bookOrderItem.getAttributesByCriteria(Const.IN_SELECTED_LINKS).size());
+		assertEquals(0, bookOrderItem.getAttributesByCriteria(Const.KEY, Const.NOT_IN_LINKS).size());
+		List<AttributeInContext> notKey = bookOrderItem.getAttributesByCriteria(Const.NOT_KEY, Const.NOT_IN_SELECTED_LINKS);
+		assertEquals(2, notKey.size());
+		assertEquals("quantity", notKey.get(0).getName());
+		assertEquals("price", notKey.get(1).getName());
+
+		//--- Same result as the attributes scan for all the entities and all the criteria ( 1 to 4 criteria )
+		int[] criterionValues = { Const.KEY, Const.NOT_KEY, Const.TEXT, Const.NOT_TEXT, 
+				Const.IN_LINKS, Const.NOT_IN_LINKS, Const.IN_SELECTED_LINKS, Const.NOT_IN_SELECTED_LINKS };
+		int nonEmpty = 0 ;
+		for ( EntityInContext entity : model.getAllEntites() ) {
+			for ( int mask = 1 ; mask < 256 ; mask++ ) {
+				List<Integer> c = new ArrayList<Integer>();
+				for ( int i = 0 ; i < criterionValues.length ; i++ ) {
+					if ( ( mask & ( 1 << i ) ) != 0 ) {
+						c.add(criterionValues[i]);
+					}
+				}
+				List<AttributeInContext> result ;
+				switch ( c.size() ) {
+				case 1 : result = entity.getAttributesByCriteria(c.get(0)); break ;
+				case 2 : result = entity.getAttributesByCriteria(c.get(0), c.get(1)); break ;
+				case 3 : result = entity.getAttributesByCriteria(c.get(0), c.get(1), c.get(2)); break ;
+				case 4 : result = entity.getAttributesByCriteria(c.get(0), c.get(1), c.get(2), c.get(3)); break ;
+				default : continue ; // more than 4 criteria not supported
+				}
+				int criteria = 0 ;
+				for ( Integer criterion : c ) {
+					criteria += criterion ;
+				}
+				assertEquals(entity.getName() + " / criteria " + criteria, 
+						scanAttributesByCriteria(entity, criteria), result);
+				if ( ! result.isEmpty() ) {
+					nonEmpty++ ;
+				}
+			}
+		}
+		assertTrue(nonEmpty > 0);
+	}
+
+	private LinkInContext getLink(EntityInContext entity, String fieldName) {
+		for ( LinkInContext link : entity.getLinks() ) {
+			if ( fieldName.equals(link.getFieldName()) ) {
+				return link ;
+			}
+		}
+		fail("No link '" + fieldName + "' in " + entity.getName());
+		return null ;
+	}
+
+	public void testLinkTargetEntityAndAttributes() throws Exception {
+		ModelInContext model = buildDbRepModel();
+		EntityInContext bookOrderItem = model.getEntityByClassName("BookOrderItem");
+		LinkInContext link = getLink(bookOrderItem, "book");
+
+		//--- Target entity resolved once
+		EntityInContext target = link.getTargetEntity();
+		assertTrue(target == model.getEntityByClassName("Book"));
+		assertTrue(target == link.getTargetEntity());
+
+		//--- Origin/target attributes pairs built once
+		List<LinkAttributeInContext> attributes = link.getAttributes();
+		assertEquals(1, attributes.size());
+		assertTrue(attributes.get(0).getOriginAttribute() == bookOrderItem.getAttributeByColumnName("BOOK_ID"));
+		assertTrue(attributes.get(0).getTargetAttribute() == target.getAttributeByColumnName("ID"));
+		assertTrue(attributes == link.getAttributes());
+
+		//--- Inverse side link : no join column
+		LinkInContext inverseLink = model.getEntityByClassName("Author").getLinks().get(0);
+		assertTrue(inverseLink.getTargetEntity() == target);
+		assertEquals(0, inverseLink.getAttributes().size());
+		assertTrue(inverseLink.getAttributes() == inverseLink.getAttributes());
+	}
+
+	public void testUsedInLinkJoinColumn() throws GeneratorException {
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null);
+		EntityInContext entity = model.getEntityByClassName("Author");
+		AttributeInContext attribute = entity.getAttributes().get(0);
+		//--- No links in the fake model : same result with the index and with a list
+		assertFalse(attribute.isUsedInLinkJoinColumn());
+		assertFalse(attribute.isUsedInSelectedLinkJoinColumn());
+		assertEquals(attribute.isUsedInLinkJoinColumn(), attribute.isUsedInLinkJoinColumn(entity.getLinks()));
+		assertEquals(attribute.isUsedInSelectedLinkJoinColumn(), 
+				attribute.isUsedInLinkJoinColumn(new ArrayList<LinkInContext>(entity.getSelectedLinks())));
+	}
+
+	public void testUsedInLinkJoinColumnWithLinks() throws Exception {
+		ModelInContext model = buildDbRepModel();
+		//--- Composite primary key, each key attribute used in an owning side link
+		EntityInContext bookOrderItem = model.getEntityByClassName("BookOrderItem");
+		assertEquals(2, bookOrderItem.getLinks().size());
+		assertTrue(bookOrderItem.getAttributeByName("bookOrderId").isUsedInLinkJoinColumn());
+		assertTrue(bookOrderItem.getAttributeByName("bookId").isUsedInLinkJoinColumn());
+		assertTrue(bookOrderItem.getAttributeByName("bookId").isUsedInSelectedLinkJoinColumn());
+		assertFalse(bookOrderItem.getAttributeByName("quantity").isUsedInLinkJoinColumn());
+		assertEquals(1, bookOrderItem.getOwningSideLinksUsingColumn("BOOK_ID").size());
+		assertEquals("book", bookOrderItem.getOwningSideLinksUsingColumn("BOOK_ID").get(0).getFieldName());
+		//--- Inverse side link only
+		EntityInContext author = model.getEntityByClassName("Author");
+		assertEquals(1, author.getLinks().size());
+		assertFalse(author.getAttributeByName("id").isUsedInLinkJoinColumn());
+		assertFalse(author.getAttributeByName("id").isUsedInSelectedLinkJoinColumn());
+
+		//--- Indexed results = links scan results, for all the attributes of all the entities
+		int usedCount = 0 ;
+		for ( EntityInContext entity : model.getAllEntites() ) {
+			List<LinkInContext> selectedLinks = new ArrayList<LinkInContext>(entity.getSelectedLinks());
+			for ( AttributeInContext attribute : entity.getAttributes() ) {
+				String column = attribute.getDatabaseName() ;
+				assertEquals(attribute.isUsedInLinkJoinColumn(entity.getLinks()), attribute.isUsedInLinkJoinColumn());
+				assertEquals(attribute.isUsedInLinkJoinColumn(selectedLinks), attribute.isUsedInSelectedLinkJoinColumn());
+				assertEquals(scanLinksUsingColumn(entity, column, true, false), entity.getOwningSideLinksUsingColumn(column));
+				assertEquals(scanLinksUsingColumn(entity, column, false, false), entity.getInverseSideLinksUsingColumn(column));
+				assertEquals( ! scanLinksUsingColumn(entity, column, true, true).isEmpty(), 
+						entity.isColumnUsedInOwningSideLink(column, true));
+				if ( attribute.isUsedInLinkJoinColumn() ) {
+					usedCount++ ;
+				}
+			}
+		}
+		assertTrue(usedCount > 2);
+	}
+
+	public void testNamesWithEnvChanges() throws GeneratorException {
+		EnvInContext env = new EnvInContext();
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", env);
+		EntityInContext entity = model.getEntityByClassName("Author");
+		assertEquals("Author", entity.getName());
+		assertTrue(entity.getName() == entity.getName()); // kept while the env doesn't change
+		env.setEntityClassNamePrefix("My");
+		assertEquals("MyAuthor", entity.getName());
+		assertEquals("org.demo.MyAuthor", entity.getFullName());
+		env.setEntityClassNameSuffix("Bean");
+		assertEquals("MyAuthorBean", entity.getName());
+		assertEquals("org.demo.MyAuthorBean", entity.getFullName());
+	}
+
+	public void testFragmentsCache() throws GeneratorException {
+		EnvInContext env = new EnvInContext();
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", env);
+		EntityInContext entity = model.getEntityByClassName("Author");
+		Java java = new Java();
+		String s1 = java.toStringMethod(entity.getAttributes(), 4);
+		assertTrue(s1 == java.toStringMethod(entity.getAttributes(), 4)); // built once
+		assertFalse(s1 == java.toStringMethod(entity.getAttributes(), 2));
+		FragmentsCache cache = entity.getFragmentsCache();
+		assertEquals(2, cache.size());
+		assertTrue(cache == entity.getFragmentsCache());
+		env.setEntityClassNameSuffix("Bean");
+		assertFalse(cache == entity.getFragmentsCache()); // env names changed
+		assertEquals(0, entity.getFragmentsCache().size());
+		assertEquals(s1, java.toStringMethod(entity.getAttributes(), 4));
+		env.setEntityClassNameSuffix("");
+		assertTrue(cache == entity.getFragmentsCache()); // same names again
+	}
+
+	public void testImportsListCanBeModified() throws GeneratorException {
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null);
+		EntityInContext entity = model.getEntityByClassName("Author");
+		//--- '#set($imports = $java.imports($entity))' then '$imports.add(...)' in a template
+		List<String> imports = new Java().imports(entity);
+		int size = imports.size();
+		imports.add("org.demo.MyType");
+		assertEquals(size, new Java().imports(entity).size()); // the cached list is not changed
+		List<String> jpaImports = new Jpa().imports(entity);
+		jpaImports.add("org.demo.MyType");
+		assertFalse(new Jpa().imports(entity).contains("org.demo.MyType"));
+	}
+
+	public void testFragmentsCacheSharedByTargets() throws GeneratorException {
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null);
+		EntityInContext entity = model.getEntityByClassName("Author");
+		Java java = new Java();
+
+		//--- 1st target with its own env
+		EnvInContext env1 = new EnvInContext();
+		EnvInContext previous = model.bindEnv(env1);
+		String s1 = java.toStringMethod(entity.getAttributes(), 4);
+		FragmentsCache cache1 = entity.getFragmentsCache();
+		model.restoreEnv(previous);
+
+		//--- 2nd target with a new env with the same names
+		EnvInContext env2 = new EnvInContext();
+		previous = model.bindEnv(env2);
+		assertTrue(cache1 == entity.getFragmentsCache());
+		assertTrue(s1 == java.toStringMethod(entity.getAttributes(), 4)); // not rebuilt
+
+		//--- Embedded generation with other names : doesn't replace the cache of the 1st names
+		EnvInContext env3 = new EnvInContext();
+		env3.setEntityClassNamePrefix("My");
+		EnvInContext previous3 = model.bindEnv(env3);
+		assertFalse(cache1 == entity.getFragmentsCache());
+		model.restoreEnv(previous3);
+		assertTrue(cache1 == entity.getFragmentsCache());
+		model.restoreEnv(previous);
+	}
+
+	public void testLazyEntities() throws GeneratorException {
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null);
+		assertEquals(2, model.getNumberOfEntities());
+		assertTrue(model.hasEntityWithClassName("Employee"));
+		assertTrue(model.hasEntityWithTableName("AUTHOR"));
+		assertFalse(model.hasEntityWithClassName("Foo"));
+		assertEquals(0, model.getNumberOfEntitiesBuilt());
+		EntityInContext author = model.getEntityByClassName("Author");
+		assertEquals(1, model.getNumberOfEntitiesBuilt());
+		assertTrue(author == model.getEntityByTableName("AUTHOR"));
+		assertNull(model.getEntityByTableName("FOO"));
+		assertEquals(1, model.getNumberOfEntitiesBuilt());
+		List<EntityInContext> all = model.getAllEntites();
+		assertEquals(2, model.getNumberOfEntitiesBuilt());
+		assertTrue(all.contains(author)); // already built : same instance
+		assertTrue(all == model.getAllEntites());
+	}
+
+	public void testParallelBuild() throws GeneratorException {
+		ModelInContext model = new ModelInContextBuilder(4).build(FakeModelProvider.buildModel(), "org.demo", null);
+		assertEquals(2, model.getNumberOfEntitiesBuilt());
+		List<EntityInContext> sequential = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null).getAllEntites();
+		List<EntityInContext> parallel = model.getAllEntites();
+		assertEquals(sequential.size(), parallel.size());
+		for ( int i = 0 ; i < sequential.size() ; i++ ) {
+			assertEquals(sequential.get(i).getName(), parallel.get(i).getName()); // same order
+		}
+		assertTrue(parallel.get(0) == model.getEntityByClassName(parallel.get(0).getName()));
+		// parallelism 1 : entities built on first use
+		model = new ModelInContextBuilder(1).build(FakeModelProvider.buildModel(), "org.demo", null);
+		assertEquals(0, model.getNumberOfEntitiesBuilt());
+	}
+
+	public void testLazyEntitiesWithEnv() throws GeneratorException {
+		EnvInContext env = new EnvInContext();
+		env.setEntityClassNamePrefix("My");
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", env);
+		assertNull(model.getEntityByClassName("Author"));
+		assertEquals("MyAuthor", model.getEntityByClassName("MyAuthor").getName());
+	}
+
+	public void testJdbcRequests() throws GeneratorException {
+		ModelInContext model = new ModelInContext(FakeModelProvider.buildModel(), "org.demo", null);
+		EntityInContext entity = model.getEntityByClassName("Author");
+		JdbcInContext jdbc = new JdbcFactoryInContext().getInstance(entity);
+		assertEquals("select FIRST_NAME from AUTHOR where ", jdbc.getSqlSelect());
+		assertEquals("select count(*) from AUTHOR where ", jdbc.getSqlExists());
+		assertEquals("insert into AUTHOR ( FIRST_NAME ) values ( ? )", jdbc.getSqlInsert());
+		assertEquals("update AUTHOR set FIRST_NAME = ? where ", jdbc.getSqlUpdate());
+		assertEquals("delete from AUTHOR where ", jdbc.getSqlDelete());
+		assertEquals(1, jdbc.getAttributesForUpdate().size());
+		// same instance for all the templates using the entity
+		assertTrue(jdbc == new JdbcFactoryInContext().getInstance(entity));
+		JdbcFactoryInContext jdbcFactory = new JdbcFactoryInContext();
+		jdbcFactory.useSchema(true);
+		assertFalse(jdbc == jdbcFactory.getInstance(entity));
+	}
+}
@@ -66,6 +66,44 @@ public class TargetTest extends TestCase {
 		
 	}
 
+	public void testTargetCreation3() {
+		
+		TargetDefinition targetDef = new TargetDefinition(
+				"Target 3", 
+				"${BEANNAME_UC}_${VAR1}_${UNKNOWN}.txt", 
+				"${SRC}/${ROOT_PKG}/${BEANNAME_LC}/${BEANNAME_LC}", 
+				"bean.vm", 
+				"*");
+		
+		Variable[] variables = getVariables();
+		Target target = new Target( targetDef, buildEntity("AUTHOR", "Author"), variables ); 
+		assertEquals("AUTHOR_VALUE1_${UNKNOWN}.txt", target.getFile());
+		assertEquals("/src/org/demo/foo/bar/author/author", target.getFolder());
+		assertEquals("src/org/demo/foo/bar/author/author/AUTHOR_VALUE1_${UNKNOWN}.txt", target.getOutputFileNameInProject());
+
+		//--- Same variables => patterns compiled only once
+		assertSame(targetDef.getFilePattern(variables), targetDef.getFilePattern(variables));
+		Target target2 = new Target( targetDef, buildEntity("BOOK", "Book"), variables ); 
+		assertEquals("BOOK_VALUE1_${UNKNOWN}.txt", target2.getFile());
+		assertEquals("/src/org/demo/foo/bar/book/book", target2.getFolder());
+	}
+
+	public void testTargetCreationOnce() {
+		
+		TargetDefinition targetDef = new TargetDefinition(
+				"Once", 
+				"${BEANNAME}${BEANNAME_UC}pom.xml", 
+				"${ENTITY_PKG}", 
+				"pom.vm", 
+				"1");
+		
+		Target target = new Target( targetDef, getVariables() ); 
+		//--- only the first form of the bean name is replaced 
+		assertEquals("${BEANNAME_UC}pom.xml", target.getFile());
+		assertEquals("org/demo/foo/bar/bean", target.getFolder());
+		assertEquals("", target.getEntityName());
+	}
+
 	private Entity buildEntity(String tableName, String className) { // v 3.0.0
 		EntityInFakeModel entity = new EntityInFakeModel();
 		entity.setDatabaseTable(tableName);
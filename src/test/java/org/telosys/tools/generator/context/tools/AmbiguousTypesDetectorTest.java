@@ -37,6 +37,17 @@ public class AmbiguousTypesDetectorTest extends TestCase  {
 		report(detector, 6, 4);
 	}
 	
+	public void test4() {		
+		AmbiguousTypesDetector detector = new AmbiguousTypesDetector();
+		detector.registerType("java.util.Date");
+		detector.registerType("java.util.Date"); // registered only once
+		detector.registerType("Date"); // no package 
+		detector.registerType("java.lang.String");
+		report(detector, 3, 0);
+		detector.registerType("java.sql.Date");
+		report(detector, 4, 3); // "Date" is also ambiguous now
+	}
+	
 	private void report(AmbiguousTypesDetector detector, int countAll, int countAmbiguous) {
 		List<String> allTypes = detector.getAllTypes();
 		print(allTypes);
@@ -0,0 +1,106 @@
+package org.telosys.tools.generator.sink;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import junit.env.telosys.tools.generator.fakemodel.EntityInFakeModel;
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.GeneratorException;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.target.TargetDefinition;
+
+public class GenerationSinksTest extends TestCase {
+
+	private static final Charset UTF8 = Charset.forName("UTF-8");
+
+	private Target buildTarget(String className) {
+		TargetDefinition targetDef = new TargetDefinition("Bean", "${BEANNAME}.java", "src/org/demo", "bean.vm", "*");
+		EntityInFakeModel entity = new EntityInFakeModel();
+		entity.setDatabaseTable(className.toUpperCase());
+		entity.setClassName(className);
+		return new Target(targetDef, entity, new Variable[0]);
+	}
+
+	public void testFileSystemSink() throws GeneratorException {
+		File root = new File(System.getProperty("java.io.tmpdir"), "sink-" + System.nanoTime());
+		FileSystemSink sink = new FileSystemSink(root.getAbsolutePath());
+		Target target = buildTarget("Author");
+		assertTrue(sink.write(target, "class Author {}", UTF8, true));
+		File file = new File(target.getOutputFileNameInFileSystem(root.getAbsolutePath()));
+		assertTrue(file.isFile());
+		assertEquals(1, sink.getOutputDirectories().getNumberOfDirectoriesCreated());
+		assertFalse(sink.write(target, "class Author {}", UTF8, true));
+		assertTrue(sink.write(target, "class Author { int id; }", UTF8, true));
+		sink.close();
+	}
+
+	public void testInMemorySink() throws GeneratorException {
+		InMemorySink sink = new InMemorySink();
+		Target author = buildTarget("Author");
+		assertTrue(sink.write(author, "class Author {}", UTF8, true));
+		assertTrue(sink.write(buildTarget("Book"), "class Book {}", UTF8, true));
+		assertFalse(sink.write(author, "class Author {}", UTF8, true));
+		assertTrue(sink.write(author, "class Author {}", UTF8, false));
+		sink.close();
+		assertEquals(2, sink.getNumberOfFiles());
+		assertEquals("class Author {}", new String(sink.getFile(author.getOutputFileNameInProject()), UTF8));
+		assertNull(sink.getFile("/foo/Bar.java"));
+		sink.clear();
+		assertEquals(0, sink.getNumberOfFiles());
+	}
+
+	public void testZipSink() throws GeneratorException, IOException {
+		ByteArrayOutputStream out = new ByteArrayOutputStream();
+		ZipSink sink = new ZipSink(out);
+		assertTrue(sink.write(buildTarget("Author"), "class Author {}", UTF8, false));
+		assertTrue(sink.write(buildTarget("Book"), "class Book { String t = \"\u00e9\"; }", UTF8, false));
+		//--- Same file written again : not an error, the first content is kept
+		assertFalse(sink.write(buildTarget("Book"), "class Book {}", UTF8, false));
+		assertEquals(2, sink.getNumberOfEntries());
+		sink.close();
+		sink.close(); // no effect
+		try {
+			sink.write(buildTarget("Review"), "class Review {}", UTF8, false);
+			fail("GeneratorException expected");
+		} catch (GeneratorException e) {
+			// closed
+		}
+
+		ZipInputStream in = new ZipInputStream(new ByteArrayInputStream(out.toByteArray()));
+		ZipEntry entry = in.getNextEntry();
+		assertEquals("src/org/demo/Author.java", entry.getName());
+		entry = in.getNextEntry();
+		assertEquals("src/org/demo/Book.java", entry.getName());
+		ByteArrayOutputStream content = new ByteArrayOutputStream();
+		byte[] buffer = new byte[256];
+		int n ;
+		while ( ( n = in.read(buffer) ) > 0 ) {
+			content.write(buffer, 0, n);
+		}
+		assertEquals("class Book { String t = \"\u00e9\"; }", new String(content.toByteArray(), UTF8));
+		assertNull(in.getNextEntry());
+		in.close();
+	}
+
+	public void testZipEntryName() {
+		assertEquals("src/org/demo/Foo.java", ZipSink.entryName("/src/org/demo/Foo.java"));
+		assertEquals("src/org/demo/Foo.java", ZipSink.entryName("\\src\\org\\demo\\Foo.java"));
+		assertEquals("pom.xml", ZipSink.entryName("pom.xml"));
+	}
+
+	public void testNullSink() throws GeneratorException {
+		NullSink sink = new NullSink();
+		assertTrue(sink.write(buildTarget("Author"), "12345", UTF8, true));
+		assertTrue(sink.write(buildTarget("Author"), "123", UTF8, true));
+		sink.close();
+		assertEquals(2, sink.getNumberOfFiles());
+		assertEquals(8, sink.getNumberOfChars());
+	}
+}
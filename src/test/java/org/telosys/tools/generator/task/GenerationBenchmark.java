@@ -0,0 +1,89 @@
+package org.telosys.tools.generator.task;
+
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.env.telosys.tools.generator.TestsProject;
+
+import org.telosys.tools.commons.ConsoleLogger;
+import org.telosys.tools.commons.TelosysToolsException;
+import org.telosys.tools.commons.TelosysToolsLogger;
+import org.telosys.tools.commons.cfg.TelosysToolsCfg;
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.GenerationSession;
+import org.telosys.tools.generator.Generator;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.target.TargetDefinition;
+import org.telosys.tools.generic.model.Model;
+
+/**
+ * Per-target overhead : <br>
+ *  - 'before' : a new Generator (and a new engine) for each target <br>
+ *  - 'new engine' : a single session (model context reused) but a new engine for each target <br>
+ *  - 'after'  : a single session (model context and engine reused) for all the targets <br>
+ *
+ * The difference between 'new engine' and 'after' is the engine initialization cost only
+ */
+public class GenerationBenchmark {
+
+	private static final int ITERATIONS = 20 ;
+
+	public static void main(String[] args) throws TelosysToolsException, Exception {
+
+		TelosysProject telosysProject = TestsProject.initProjectEnv("myproject", TestsProject.BUNDLE_NAME) ;
+		TelosysToolsCfg telosysToolsCfg = telosysProject.loadTelosysToolsCfg();
+		Model model = telosysProject.loadModelFromDbRep(TestsProject.REPO_FILENAME);
+
+		TargetDefinition targetDefinition = new TargetDefinition("Entity Java Bean", "${BEANNAME}.java", "${SRC}/${ENTITY_PKG}", "java_bean.vm", "");
+		List<Target> targets = new LinkedList<Target>();
+		for ( int i = 0 ; i < ITERATIONS ; i++ ) {
+			targets.add( new Target(targetDefinition, model.getEntityByClassName("Author"), new Variable[0]) );
+			targets.add( new Target(targetDefinition, model.getEntityByClassName("Badge"), new Variable[0]) );
+		}
+
+		TelosysToolsLogger logger = new ConsoleLogger() ;
+
+		//--- Warm up
+		runWithoutSession(targets, model, telosysToolsCfg, logger);
+		runWithSession(targets, model, telosysToolsCfg, logger, true);
+		runWithSession(targets, model, telosysToolsCfg, logger, false);
+
+		long before    = runWithoutSession(targets, model, telosysToolsCfg, logger);
+		long newEngine = runWithSession(targets, model, telosysToolsCfg, logger, true);
+		long after     = runWithSession(targets, model, telosysToolsCfg, logger, false);
+
+		System.out.println(targets.size() + " targets generated" );
+		System.out.println("Without session            : " + before    + " ms ( " + ((double)before    / targets.size()) + " ms per target )" );
+		System.out.println("Session, engine per target : " + newEngine + " ms ( " + ((double)newEngine / targets.size()) + " ms per target )" );
+		System.out.println("Session, shared engine     : " + after     + " ms ( " + ((double)after     / targets.size()) + " ms per target )" );
+	}
+
+	private static long runWithoutSession(List<Target> targets, Model model,
+			TelosysToolsCfg telosysToolsCfg, TelosysToolsLogger logger) throws Exception {
+		long t0 = System.currentTimeMillis();
+		for ( Target target : targets ) {
+			Generator generator = new Generator(telosysToolsCfg, TestsProject.BUNDLE_NAME, logger);
+			generator.generateTarget(target, model, null, null);
+		}
+		return System.currentTimeMillis() - t0 ;
+	}
+
+	private static long runWithSession(List<Target> targets, Model model,
+			TelosysToolsCfg telosysToolsCfg, TelosysToolsLogger logger, boolean enginePerTarget) throws Exception {
+		long t0 = System.currentTimeMillis();
+		GenerationSession session = new GenerationSession(model, telosysToolsCfg, TestsProject.BUNDLE_NAME, logger);
+		try {
+			Generator generator = new Generator(session);
+			for ( Target target : targets ) {
+				generator.generateTarget(target, model, null, null);
+				if ( enginePerTarget ) {
+					session.releaseGeneratorEngine(); // a new engine will be initialized for the next target
+				}
+			}
+		}
+		finally {
+			session.close();
+		}
+		return System.currentTimeMillis() - t0 ;
+	}
+}
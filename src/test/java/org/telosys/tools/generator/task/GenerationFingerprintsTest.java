@@ -0,0 +1,135 @@
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.FileWriter;
+import java.io.IOException;
+import java.nio.charset.Charset;
+import java.util.LinkedList;
+
+import junit.env.telosys.tools.generator.fakemodel.AttributeInFakeModel;
+import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
+import junit.framework.TestCase;
+
+import org.telosys.tools.commons.variables.Variable;
+import org.telosys.tools.generator.context.Target;
+import org.telosys.tools.generator.target.TargetDefinition;
+import org.telosys.tools.generic.model.Model;
+
+public class GenerationFingerprintsTest extends TestCase {
+
+	private void writeFile(File file, String content) throws IOException {
+		FileWriter writer = new FileWriter(file);
+		try {
+			writer.write(content);
+		} finally {
+			writer.close();
+		}
+	}
+
+	private File createBundleFolder() throws IOException {
+		File folder = File.createTempFile("bundle", "");
+		assertTrue(folder.delete());
+		assertTrue(folder.mkdirs());
+		folder.deleteOnExit();
+		return folder ;
+	}
+
+	private GenerationFingerprints buildFingerprints(Model model, File bundleFolder) {
+		return buildFingerprints(model, bundleFolder, Charset.forName("UTF-8"));
+	}
+
+	private GenerationFingerprints buildFingerprints(Model model, File bundleFolder, Charset outputCharset) {
+		return new GenerationFingerprints(model, "mybundle", bundleFolder.getAbsolutePath(), 
+				new Variable[0], new LinkedList<String>(), outputCharset);
+	}
+
+	public void testEntityFingerprint() {
+		Model model = FakeModelProvider.buildModel();
+		String fp1 = buildFingerprints(model, new File(".")).getEntityWithLinksFingerprint("Author");
+		String fp2 = buildFingerprints(model, new File(".")).getEntityWithLinksFingerprint("Author");
+		assertEquals(fp1, fp2);
+		assertFalse(fp1.equals(buildFingerprints(model, new File(".")).getEntityWithLinksFingerprint("Employee")));
+
+		//--- Attribute modified => new fingerprint
+		AttributeInFakeModel attribute = (AttributeInFakeModel) model.getEntityByClassName("Author").getAttributes().get(0);
+		attribute.setName("firstName2");
+		String fp3 = buildFingerprints(model, new File(".")).getEntityWithLinksFingerprint("Author");
+		assertFalse(fp1.equals(fp3));
+	}
+
+	public void testTemplateFingerprintWithInclude() throws IOException {
+		Model model = FakeModelProvider.buildModel();
+		File bundleFolder = createBundleFolder();
+		File template = new File(bundleFolder, "main.vm");
+		File include  = new File(bundleFolder, "include.vm");
+		template.deleteOnExit();
+		include.deleteOnExit();
+		writeFile(template, "Main\n#parse(\"include.vm\")\n");
+		writeFile(include, "Included 1");
+
+		String fp1 = buildFingerprints(model, bundleFolder).getTemplateFingerprint("main.vm");
+		assertEquals(fp1, buildFingerprints(model, bundleFolder).getTemplateFingerprint("main.vm"));
+
+		//--- Included template modified => new fingerprint
+		writeFile(include, "Included 2");
+		String fp2 = buildFingerprints(model, bundleFolder).getTemplateFingerprint("main.vm");
+		assertFalse(fp1.equals(fp2));
+	}
+
+	public void testTargetsNotCheckable() throws IOException {
+		Model model = FakeModelProvider.buildModel();
+		File bundleFolder = createBundleFolder();
+		File main     = new File(bundleFolder, "main.vm");
+		File include  = new File(bundleFolder, "include.vm");
+		File dynamic  = new File(bundleFolder, "dynamic.vm");
+		File withModel = new File(bundleFolder, "model.vm");
+		for ( File f : new File[] { main, include, dynamic, withModel } ) {
+			f.deleteOnExit();
+		}
+		writeFile(main, "Main\n#parse(\"include.vm\")\n");
+		writeFile(include, "$generator.generate($entity.name, \"${entity.name}Dao.java\", \"dao\", \"dao.vm\")");
+		writeFile(dynamic, "#parse($file)");
+		writeFile(withModel, "#foreach($e in $model.allEntites)$e.name #end");
+
+		GenerationFingerprints fingerprints = buildFingerprints(model, bundleFolder);
+		//--- Embedded generator ( in an included file ) or dynamic include => always generated
+		assertNull(fingerprints.getTargetFingerprint(buildTarget("main.vm")));
+		assertNull(fingerprints.getTargetFingerprint(buildTarget("dynamic.vm")));
+		//--- '$model' : the other entities are part of the fingerprint
+		String fp1 = fingerprints.getTargetFingerprint(buildTarget("model.vm"));
+		assertNotNull(fp1);
+		AttributeInFakeModel attribute = (AttributeInFakeModel) model.getEntityByClassName("Employee").getAttributes().get(0);
+		attribute.setName("firstName2");
+		assertFalse(fp1.equals(buildFingerprints(model, bundleFolder).getTargetFingerprint(buildTarget("model.vm"))));
+	}
+
+	public void testExternalInputs() throws IOException {
+		Model model = FakeModelProvider.buildModel();
+		File bundleFolder = createBundleFolder();
+		File simple    = new File(bundleFolder, "simple.vm");
+		File loader    = new File(bundleFolder, "loader.vm");
+		File databases = new File(bundleFolder, "databases.vm");
+		for ( File f : new File[] { simple, loader, databases } ) {
+			f.deleteOnExit();
+		}
+		writeFile(simple, "$entity.name");
+		writeFile(loader, "#set( $tool = $loader.newInstance('MyTool') )$tool.hello()");
+		writeFile(databases, "${databases.getDatabase(0).jdbcUrl}");
+
+		GenerationFingerprints fingerprints = buildFingerprints(model, bundleFolder);
+		//--- Classes of the 'classes' folder or 'dbcfg' file => always generated
+		assertNull(fingerprints.getTargetFingerprint(buildTarget("loader.vm")));
+		assertNull(fingerprints.getTargetFingerprint(buildTarget("databases.vm")));
+		//--- Output charset changed => new fingerprint
+		String fp1 = fingerprints.getTargetFingerprint(buildTarget("simple.vm"));
+		assertNotNull(fp1);
+		assertEquals(fp1, buildFingerprints(model, bundleFolder).getTargetFingerprint(buildTarget("simple.vm")));
+		assertFalse(fp1.equals(buildFingerprints(model, bundleFolder, Charset.forName("ISO-8859-1"))
+				.getTargetFingerprint(buildTarget("simple.vm"))));
+	}
+
+	private Target buildTarget(String template) {
+		TargetDefinition targetDefinition = new TargetDefinition("Bean", "${BEANNAME}.java", "src", template, "*");
+		return new Target(targetDefinition, FakeModelProvider.buildEntity_Author(), new Variable[0]);
+	}
+}
@@ -0,0 +1,100 @@
+package org.telosys.tools.generator.task;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedList;
+import java.util.List;
+
+import junit.env.telosys.tools.generator.fakemodel.FakeModelProvider;
+import junit.framework.TestCase;
+
+import org.telosys.tools.generic.model.Model;
+
+public class GenerationManifestTest extends TestCase {
+
+	private File createFolder() throws IOException {
+		File folder = File.createTempFile("dest", "");
+		assertTrue(folder.delete());
+		assertTrue(folder.mkdirs());
+		folder.deleteOnExit();
+		return folder ;
+	}
+
+	public void testSaveAndLoad() throws IOException {
+		File destFolder = createFolder();
+		File generatedFile = new File(destFolder, "Author.java");
+		assertTrue(generatedFile.createNewFile());
+		generatedFile.deleteOnExit();
+
+		GenerationManifest manifest = new GenerationManifest(destFolder.getAbsolutePath());
+		manifest.load(); // no file yet
+		assertEquals(0, manifest.size());
+		manifest.putEntry(new GenerationManifest.Entry("fp1", "mybundle", "bean.vm", "Author", generatedFile.getAbsolutePath()));
+		manifest.save();
+		manifest.getManifestFile().deleteOnExit();
+
+		GenerationManifest manifest2 = new GenerationManifest(destFolder.getAbsolutePath());
+		manifest2.load();
+		assertEquals(1, manifest2.size());
+		assertTrue(manifest2.isUpToDate(generatedFile.getAbsolutePath(), "fp1"));
+		assertFalse(manifest2.isUpToDate(generatedFile.getAbsolutePath(), "fp2"));
+		assertEquals("Author", manifest2.getEntry(generatedFile.getAbsolutePath()).getEntityName());
+
+		//--- Generated file removed => not up to date
+		assertTrue(generatedFile.delete());
+		assertFalse(manifest2.isUpToDate(generatedFile.getAbsolutePath(), "fp1"));
+	}
+
+	public void testOrphanFiles() throws IOException {
+		Model model = FakeModelProvider.buildModel();
+		File destFolder = createFolder();
+		File bundleFolder = createFolder();
+		File template = new File(bundleFolder, "bean.vm");
+		assertTrue(template.createNewFile());
+		template.deleteOnExit();
+
+		File file1 = new File(destFolder, "Author.java");
+		File file2 = new File(destFolder, "Book.java");
+		File file3 = new File(destFolder, "Author.txt");
+		for ( File f : new File[] { file1, file2, file3 } ) {
+			assertTrue(f.createNewFile());
+			f.deleteOnExit();
+		}
+		GenerationManifest manifest = new GenerationManifest(destFolder.getAbsolutePath());
+		manifest.putEntry(new GenerationManifest.Entry("fp", "mybundle", "bean.vm", "Author", file1.getAbsolutePath()));
+		manifest.putEntry(new GenerationManifest.Entry("fp", "mybundle", "bean.vm", "Book", file2.getAbsolutePath())); // no entity
+		manifest.putEntry(new GenerationManifest.Entry("fp", "mybundle", "text.vm", "Author", file3.getAbsolutePath())); // no template
+
+		List<String> orphans = manifest.findOrphanFiles("mybundle", bundleFolder.getAbsolutePath(), model);
+		assertEquals(2, orphans.size());
+		assertTrue(orphans.contains(file2.getAbsolutePath()));
+		assertTrue(orphans.contains(file3.getAbsolutePath()));
+		assertEquals(0, manifest.findOrphanFiles("otherbundle", bundleFolder.getAbsolutePath(), model).size());
+	}
+
+	public void testMovedFiles() throws IOException {
+		File destFolder = createFolder();
+		File oldFile = new File(destFolder, "AuthorOld.java");
+		File newFile = new File(destFolder, "Author.java");
+		File other   = new File(destFolder, "Book.java");
+		for ( File f : new File[] { oldFile, newFile, other } ) {
+			assertTrue(f.createNewFile());
+			f.deleteOnExit();
+		}
+		GenerationManifest manifest = new GenerationManifest(destFolder.getAbsolutePath());
+		manifest.putEntry(new GenerationManifest.Entry("fp", "mybundle", "bean.vm", "Author", oldFile.getAbsolutePath()));
+		manifest.putEntry(new GenerationManifest.Entry("fp", "mybundle", "bean.vm", "Book", other.getAbsolutePath()));
+
+		//--- Current run : 'bean.vm' for 'Author' only, with a new output file
+		List<String> keys = new LinkedList<String>();
+		keys.add(GenerationManifest.generationKey("bean.vm", "Author"));
+		List<String> outputFiles = new LinkedList<String>();
+		outputFiles.add(newFile.getAbsolutePath());
+		List<String> orphans = manifest.removeMovedFiles("mybundle", keys, outputFiles);
+		assertEquals(1, orphans.size());
+		assertEquals(oldFile.getAbsolutePath(), orphans.get(0));
+		assertNull(manifest.getEntry(oldFile.getAbsolutePath()));
+		assertNotNull(manifest.getEntry(other.getAbsolutePath())); // not in the current run : kept
+		assertEquals(0, manifest.removeMovedFiles("mybundle", keys, outputFiles).size());
+	}
+}
@@ -19,6 +19,12 @@ public class GenerationTaskTest {
 
 	private GenerationTaskResult launchGenerationTask(List<String> selectedEntities, 
 			String bundleName, List<TargetDefinition> selectedTargets ) throws TelosysToolsException, Exception {
+		return launchGenerationTask(selectedEntities, bundleName, selectedTargets, 1, false);
+	}
+
+	private GenerationTaskResult launchGenerationTask(List<String> selectedEntities, 
+			String bundleName, List<TargetDefinition> selectedTargets, 
+			int parallelism, boolean skipUnchangedFiles ) throws TelosysToolsException, Exception {
 		
 		TelosysProject telosysProject = TestsProject.initProjectEnv("myproject", bundleName) ;
 		
@@ -37,6 +43,8 @@ public class GenerationTaskTest {
 				model, selectedEntities, 
 				bundleName, selectedTargets, resourcesTargets, 
 				telosysToolsCfg, logger);
+		generationTask.setParallelism(parallelism);
+		generationTask.setSkipUnchangedFiles(skipUnchangedFiles);
 		
 		GenerationTaskResult generationTaskResult = generationTask.launch();
 		System.out.println("Nb file(s) generated : " + generationTaskResult.getNumberOfFilesGenerated() );
@@ -98,4 +106,45 @@ public class GenerationTaskTest {
 		assertEquals(0, generationTaskResult.getNumberOfResourcesCopied());
 	}
 
+	@Test
+	public void test4Parallel() throws TelosysToolsException, Exception {
+		
+		//--- List of entities to be generated
+		List<String> selectedEntities = new LinkedList<String>() ;
+		selectedEntities.add("Author"); 
+		selectedEntities.add("Badge");
+		selectedEntities.add("BookOrderItem"); // 2 files : entity + PK
+		
+		//--- List of targets
+		List<TargetDefinition> selectedTargets = new LinkedList<TargetDefinition>();
+		selectedTargets.add(new TargetDefinition("Entity Java Bean", "${BEANNAME}.java", "${SRC}/${ENTITY_PKG}", "jpa_bean_with_links.vm", ""));
+		
+		GenerationTaskResult generationTaskResult = launchGenerationTask(selectedEntities, "unit-tests", selectedTargets, 4, false);
+
+		assertEquals(4, generationTaskResult.getNumberOfFilesGenerated());
+		assertEquals(0, generationTaskResult.getNumberOfGenerationErrors());
+	}
+
+	@Test
+	public void test5SkipUnchangedFiles() throws TelosysToolsException, Exception {
+		
+		//--- List of entities to be generated
+		List<String> selectedEntities = new LinkedList<String>() ;
+		selectedEntities.add("Author");
+		
+		//--- List of targets ( template without date/time => same content for each generation )
+		List<TargetDefinition> selectedTargets = new LinkedList<TargetDefinition>();
+		selectedTargets.add(new TargetDefinition("Maven POM", "pom.xml", "", "pom_xml.vm", "1"));
+		
+		//--- 1rst generation : file written (if not already generated)
+		launchGenerationTask(selectedEntities, TestsProject.BUNDLE_NAME, selectedTargets, 1, true);
+		
+		//--- 2nd generation : same content => not written
+		GenerationTaskResult generationTaskResult = launchGenerationTask(selectedEntities, TestsProject.BUNDLE_NAME, selectedTargets, 1, true);
+		assertEquals(1, generationTaskResult.getNumberOfFilesGenerated());
+		assertEquals(0, generationTaskResult.getNumberOfFilesWritten());
+		assertEquals(1, generationTaskResult.getNumberOfFilesUnchanged());
+		assertEquals(0, generationTaskResult.getNumberOfTargetsSkipped());
+	}
+
 }